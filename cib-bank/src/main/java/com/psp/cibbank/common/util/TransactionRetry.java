@@ -0,0 +1,162 @@
+package com.psp.cibbank.common.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs short database transactions again when they lose a conflict with a concurrent transaction.
+ * A transaction that updated a row changed concurrently, as detected by its version, chosen as a deadlock victim,
+ * or timed out waiting for a lock, is rolled back entirely, so running it again from the start is safe: it then
+ * reads the outcome of the other transaction. Attempts are spaced by
+ * an exponential backoff with full jitter, so transactions contending for the same accounts do not collide
+ * again in lockstep. When the attempts run out, the last conflict is rethrown, and reported by the exception
+ * handler as temporarily unavailable.
+ * Conflicts, retries and exhausted retries are published as counters tagged with the operation; conflicts are
+ * also tagged with their kind (optimistic, deadlock, lock-timeout or serialization).
+ * The instapay, cib-bank and nbe-bank services each have a copy of this class, kept identical apart from
+ * the package: a change to one must be made to all three.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionRetry {
+
+    /**
+     * The MySQL error code of a transaction rolled back as a deadlock victim.
+     */
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    /**
+     * The MySQL error code of a statement that timed out waiting for a row lock.
+     */
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * The maximum number of times a transaction is run, including the first.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.retry.max-attempts}")
+    private int maxAttempts;
+
+    /**
+     * The base, in milliseconds, of the backoff between two attempts, doubled after each attempt.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.retry.base-backoff}")
+    private long baseBackoff;
+
+    /**
+     * The maximum backoff, in milliseconds, between two attempts.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.retry.max-backoff}")
+    private long maxBackoff;
+
+    /**
+     * Runs a unit of work that opens its own database transaction, running it again when the transaction
+     * loses a conflict.
+     *
+     * @param operation the name of the operation, used to tag the counters and in logs
+     * @param work the work to run; it must open and complete its own transaction
+     * @param <T> the type of the work's result
+     * @return the result of the work
+     * @throws IllegalStateException if called within a transaction, which could not be run again
+     * @throws ConcurrencyFailureException if the work keeps losing conflicts
+     */
+    public <T> T execute(String operation, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive())
+            throw new IllegalStateException(operation + " cannot be retried within an enclosing transaction");
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (ConcurrencyFailureException e) {
+                String kind = conflictKind(e);
+                counter("transaction.conflicts", "Transactions that lost a conflict with a concurrent one", operation)
+                        .tag("kind", kind)
+                        .register(meterRegistry)
+                        .increment();
+
+                if (attempt >= maxAttempts) {
+                    counter("transaction.exhausted", "Transactions rejected after losing every attempt", operation)
+                            .register(meterRegistry)
+                            .increment();
+                    log.error("{} lost {} conflicts in a row, giving up: {}", operation, attempt, kind);
+
+                    throw e;
+                }
+
+                counter("transaction.retries", "Transactions run again after losing a conflict", operation)
+                        .register(meterRegistry)
+                        .increment();
+                log.warn("{} lost a conflict ({}), retrying: attempt {} of {}", operation, kind, attempt + 1, maxAttempts);
+
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Waits before the next attempt, for a random time up to the exponential backoff of the attempt.
+     *
+     * @param attempt the number of the attempt that failed, starting at 1
+     * @param conflict the conflict the attempt lost, rethrown if the thread is interrupted while waiting
+     */
+    private void backoff(int attempt, ConcurrencyFailureException conflict) {
+        long ceiling = Math.min(maxBackoff, baseBackoff << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    /**
+     * Classifies a conflict by the error the database or the persistence provider reported.
+     *
+     * @param e the conflict
+     * @return "optimistic", "deadlock", "lock-timeout" or "serialization"
+     */
+    private static String conflictKind(ConcurrencyFailureException e) {
+        if (e instanceof OptimisticLockingFailureException)
+            return "optimistic";
+
+        if (NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLException sqlException) {
+            if (sqlException.getErrorCode() == ER_LOCK_DEADLOCK)
+                return "deadlock";
+            if (sqlException.getErrorCode() == ER_LOCK_WAIT_TIMEOUT)
+                return "lock-timeout";
+        }
+
+        return "serialization";
+    }
+
+    /**
+     * Starts a counter tagged with the operation.
+     *
+     * @param name the name of the counter
+     * @param description the description of the counter
+     * @param operation the name of the operation
+     * @return the builder of the counter
+     */
+    private static Counter.Builder counter(String name, String description, String operation) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation);
+    }
+}
@@ -5,6 +5,7 @@ import com.psp.cibbank.common.exception.CardNotFoundException;
 import com.psp.cibbank.common.exception.CustomerNotFoundException;
 import com.psp.cibbank.common.exception.TransactionException;
 import com.psp.cibbank.model.dto.response.ApiResponse;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -62,6 +63,16 @@ public class GlobalExceptionHandler {
                         .build());
     }
 
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ApiResponse> handleConcurrencyFailureException(ConcurrencyFailureException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ApiResponse.builder()
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .message("Too many concurrent transactions on these accounts, please try again later")
+                        .build());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<ApiResponse> handleIllegalArgumentException(IllegalArgumentException ex) {
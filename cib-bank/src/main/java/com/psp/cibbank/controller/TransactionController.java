@@ -1,34 +1,70 @@
 package com.psp.cibbank.controller;
 
+import com.psp.cibbank.common.util.TransactionRetry;
+import com.psp.cibbank.model.dto.request.BatchCommitRequest;
+import com.psp.cibbank.model.dto.request.BatchPrepareRequest;
+import com.psp.cibbank.model.dto.request.InternalTransferRequest;
 import com.psp.cibbank.model.dto.request.TransactionRequest;
+import com.psp.cibbank.model.dto.response.InternalTransferResponse;
 import com.psp.cibbank.model.dto.response.TransactionResponse;
 import com.psp.cibbank.model.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 /**
  * REST controller for managing transaction-related operations.
- * Provides endpoints to prepare, commit, and rollback transactions.
+ * Provides endpoints to prepare, commit, and rollback transactions, and to transfer money between accounts of the bank.
+ * Prepare and internal transfer requests may carry the time left to complete them in the X-Request-Timeout header,
+ * and each item of a prepare batch carries its own;
+ * work still waiting for its accounts once that time has passed is refused with a TIMEOUT status.
+ * Commits carry no deadline, as a commit is only sent once it is decided.
+ * Each request runs in its own database transaction, run again if it loses a conflict with a concurrent one.
  */
 @RestController
 @RequestMapping("/api/v1/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
+
+    /**
+     * The header carrying the time, in milliseconds, left to complete a request.
+     */
+    private static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
     private final TransactionService transactionService;
+    private final TransactionRetry transactionRetry;
 
     /**
      * Prepares a transaction based on the provided request data.
      *
+     * @param timeout the time, in milliseconds, left to complete the request, or null if it has no deadline
      * @param request the transaction request containing details for preparation
      * @return a TransactionResponse containing the prepared transaction details
      */
     @PostMapping("/prepare")
-    public TransactionResponse prepareTransaction(@Valid @RequestBody TransactionRequest request) {
-        return transactionService.prepareTransaction(request);
+    public TransactionResponse prepareTransaction(@RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeout,
+                                                  @Valid @RequestBody TransactionRequest request) {
+        Long deadline = deadlineOf(timeout);
+        return transactionRetry.execute("prepareTransaction", () -> transactionService.prepareTransaction(request, deadline));
+    }
+
+    /**
+     * Prepares a batch of transactions, each in its own database transaction and within its own deadline.
+     *
+     * @param requests the transaction requests containing details for preparation and the time left to prepare each
+     * @return the TransactionResponse of each request, in request order
+     */
+    @PostMapping("/prepare-batch")
+    public List<TransactionResponse> prepareTransactions(@RequestBody List<@Valid BatchPrepareRequest> requests) {
+        return transactionService.prepareTransactions(
+                requests.stream().map(BatchPrepareRequest::getRequest).toList(),
+                requests.stream().map(request -> deadlineOf(request.getTimeout())).toList());
     }
 
     /**
@@ -39,7 +75,19 @@ public class TransactionController {
      */
     @PostMapping("/commit")
     public TransactionResponse commitTransaction(@RequestBody Long transactionId) {
-        return transactionService.commitTransaction(transactionId);
+        return transactionRetry.execute("commitTransaction", () -> transactionService.commitTransaction(transactionId));
+    }
+
+    /**
+     * Commits a batch of transactions, each in its own database transaction.
+     *
+     * @param requests the IDs of the transactions to commit
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    @PostMapping("/commit-batch")
+    public List<TransactionResponse> commitTransactions(@RequestBody List<@Valid BatchCommitRequest> requests) {
+        return transactionService.commitTransactions(
+                requests.stream().map(BatchCommitRequest::getTransactionId).toList());
     }
 
     /**
@@ -50,6 +98,41 @@ public class TransactionController {
      */
     @PostMapping("/rollback")
     public TransactionResponse rollbackTransaction(@RequestBody Long transactionId) {
-        return transactionService.rollbackTransaction(transactionId);
+        return transactionRetry.execute("rollbackTransaction", () -> transactionService.rollbackTransaction(transactionId));
+    }
+
+    /**
+     * Rolls back a batch of transactions, each in its own database transaction.
+     *
+     * @param transactionIds the IDs of the transactions to roll back
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    @PostMapping("/rollback-batch")
+    public List<TransactionResponse> rollbackTransactions(@RequestBody List<Long> transactionIds) {
+        return transactionService.rollbackTransactions(transactionIds);
+    }
+
+    /**
+     * Transfers money between two accounts of the bank in a single database transaction.
+     *
+     * @param timeout the time, in milliseconds, left to complete the request, or null if it has no deadline
+     * @param request the internal transfer request containing the accounts and the amount
+     * @return an InternalTransferResponse containing the outcome of the transfer
+     */
+    @PostMapping("/internal-transfer")
+    public InternalTransferResponse transferInternally(@RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeout,
+                                                       @Valid @RequestBody InternalTransferRequest request) {
+        Long deadline = deadlineOf(timeout);
+        return transactionRetry.execute("transferInternally", () -> transactionService.transferInternally(request, deadline));
+    }
+
+    /**
+     * Converts the time left to complete a request into a deadline, counted from the moment the request was received.
+     *
+     * @param timeout the time, in milliseconds, left to complete the request, or null if it has no deadline
+     * @return the deadline in epoch milliseconds, or null if the request has none
+     */
+    private static Long deadlineOf(Long timeout) {
+        return timeout == null ? null : System.currentTimeMillis() + timeout;
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.psp.cibbank.model.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for one item of a batch of transactions to commit.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchCommitRequest {
+
+    /**
+     * The unique identifier of the transaction to commit.
+     * This field is required.
+     */
+    @NotNull(message = "Transaction ID is required")
+    private Long transactionId;
+}
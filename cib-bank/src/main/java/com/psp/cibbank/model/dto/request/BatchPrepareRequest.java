@@ -0,0 +1,32 @@
+package com.psp.cibbank.model.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for one item of a batch of transactions to prepare.
+ * Each item carries its own timeout, so it is refused on its own once its deadline has passed.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchPrepareRequest {
+
+    /**
+     * The details of the transaction to prepare.
+     * This field is required.
+     */
+    @NotNull(message = "Transaction request is required")
+    @Valid
+    private TransactionRequest request;
+
+    /**
+     * The time, in milliseconds, left to prepare the transaction, or null if it has no deadline.
+     */
+    private Long timeout;
+}
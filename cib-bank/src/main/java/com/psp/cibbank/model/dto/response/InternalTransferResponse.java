@@ -0,0 +1,48 @@
+package com.psp.cibbank.model.dto.response;
+
+import com.psp.cibbank.model.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for internal transfer responses.
+ * Encapsulates the outcome of a transfer between two accounts of the bank.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InternalTransferResponse {
+
+    /**
+     * The unique identifier of the withdrawal transaction on the source account.
+     */
+    private Long withdrawalTransactionId;
+
+    /**
+     * The unique identifier of the deposit transaction on the destination account.
+     */
+    private Long depositTransactionId;
+
+    /**
+     * The status of the transfer (e.g., COMMITTED, FAILED).
+     */
+    private TransactionStatus status;
+
+    /**
+     * A message providing additional information about the transfer.
+     */
+    private String message;
+
+    /**
+     * The balance of the source account once the transfer is applied.
+     */
+    private Double sourceBalance;
+
+    /**
+     * The balance of the destination account once the transfer is applied.
+     */
+    private Double destinationBalance;
+}
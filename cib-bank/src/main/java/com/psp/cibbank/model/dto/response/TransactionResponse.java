@@ -30,4 +30,9 @@ public class TransactionResponse {
      * A message providing additional information about the transaction.
      */
     private String message;
+
+    /**
+     * The balance of the transaction's account once the transaction is committed or rolled back.
+     */
+    private Double balance;
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -54,6 +55,14 @@ public class Account {
     @Column(name = "active", nullable = false)
     private boolean active = true;
 
+    /**
+     * Version of the account, incremented on every update, so that concurrent updates of the same account are detected
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * Timestamp when the account was created
      */
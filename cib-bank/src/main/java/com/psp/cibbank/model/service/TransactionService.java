@@ -1,9 +1,13 @@
 package com.psp.cibbank.model.service;
 
+import com.psp.cibbank.model.dto.request.InternalTransferRequest;
 import com.psp.cibbank.model.dto.request.TransactionRequest;
+import com.psp.cibbank.model.dto.response.InternalTransferResponse;
 import com.psp.cibbank.model.dto.response.TransactionResponse;
 import com.psp.cibbank.model.entity.Transaction;
 
+import java.util.List;
+
 /**
  * Service interface for transaction-related operations.
  * Provides methods to prepare, commit, and rollback transactions.
@@ -14,9 +18,19 @@ public interface TransactionService {
      * Prepares a transaction based on the provided request.
      *
      * @param request the request object containing transaction details
+     * @param deadline the time, in epoch milliseconds, after which the work is refused, or null if it has none
      * @return a TransactionResponse object containing the prepared transaction details
      */
-    TransactionResponse prepareTransaction(TransactionRequest request);
+    TransactionResponse prepareTransaction(TransactionRequest request, Long deadline);
+
+    /**
+     * Prepares a batch of transactions, each in its own database transaction.
+     *
+     * @param requests the request objects containing transaction details
+     * @param deadlines the time, in epoch milliseconds, after which each request is refused, or null if it has none
+     * @return the TransactionResponse of each request, in request order
+     */
+    List<TransactionResponse> prepareTransactions(List<TransactionRequest> requests, List<Long> deadlines);
 
     /**
      * Commits a transaction based on the provided transaction ID.
@@ -26,6 +40,14 @@ public interface TransactionService {
      */
     TransactionResponse commitTransaction(Long transactionId);
 
+    /**
+     * Commits a batch of transactions, each in its own database transaction.
+     *
+     * @param transactionIds the unique identifiers of the transactions to be committed
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    List<TransactionResponse> commitTransactions(List<Long> transactionIds);
+
     /**
      * Rolls back a transaction based on the provided transaction ID.
      *
@@ -33,4 +55,21 @@ public interface TransactionService {
      * @return a TransactionResponse object containing the rolled-back transaction details
      */
     TransactionResponse rollbackTransaction(Long transactionId);
+
+    /**
+     * Rolls back a batch of transactions, each in its own database transaction.
+     *
+     * @param transactionIds the unique identifiers of the transactions to be rolled back
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    List<TransactionResponse> rollbackTransactions(List<Long> transactionIds);
+
+    /**
+     * Transfers money between two accounts of the bank in a single database transaction.
+     *
+     * @param request the request object containing the accounts and the amount to transfer
+     * @param deadline the time, in epoch milliseconds, after which the work is refused, or null if it has none
+     * @return an InternalTransferResponse object containing the outcome of the transfer
+     */
+    InternalTransferResponse transferInternally(InternalTransferRequest request, Long deadline);
 }
\ No newline at end of file
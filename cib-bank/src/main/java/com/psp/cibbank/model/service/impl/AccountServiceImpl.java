@@ -15,7 +15,6 @@ import com.psp.cibbank.model.service.AccountService;
 import com.psp.cibbank.common.exception.AccountNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -24,6 +23,7 @@ import java.util.Map;
 /**
  * Implementation of the AccountService interface.
  * Provides methods to retrieve account balances and account details.
+ * The reads take no locks, so they never wait for the transfers updating the accounts.
  */
 @Service
 @RequiredArgsConstructor
@@ -42,13 +42,13 @@ public class AccountServiceImpl implements AccountService {
      * @throws AccountNotFoundException if the account is not found
      */
     @Override
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Transactional(readOnly = true)
     public Double getBalance(String accountNumber) {
         // Decrypt the account number
         String decryptedAccountNumber = encryptionUtil.decrypt(accountNumber);
 
         // Fetch the account using the decrypted account number
-        Account account = accountRepository.findForShareByAccountNumber(decryptedAccountNumber)
+        Account account = accountRepository.findByAccountNumber(decryptedAccountNumber)
                 .orElseThrow(() -> new AccountNotFoundException("Account not found"));
 
         // Return the balance of the account
@@ -66,7 +66,7 @@ public class AccountServiceImpl implements AccountService {
      * @throws AccountNotFoundException if no accounts are found for the given card
      */
     @Override
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Transactional(readOnly = true)
     public GetAccountsResponse getAccountsByCard(GetAccountsRequest getAccountsRequest) {
         // Decrypt the card number, PIN, and phone number
         String cardNumber = encryptionUtil.decrypt(getAccountsRequest.getCardNumber());
@@ -82,7 +82,7 @@ public class AccountServiceImpl implements AccountService {
                 .orElseThrow(() -> new CardNotFoundException("Card not found"));
 
         // Fetch accounts associated with the card
-        List<Account> accounts = accountRepository.findForShareByCard(card);
+        List<Account> accounts = accountRepository.findAllByCard(card);
         if (accounts == null || accounts.isEmpty()) {
             throw new AccountNotFoundException("No accounts found for the given card");
         }
@@ -0,0 +1,232 @@
+package com.psp.cibbank.model.service.impl;
+
+import com.psp.cibbank.common.util.EncryptionUtil;
+import com.psp.cibbank.common.util.TransactionRetry;
+import com.psp.cibbank.model.dto.request.InternalTransferRequest;
+import com.psp.cibbank.model.dto.request.TransactionRequest;
+import com.psp.cibbank.model.dto.response.InternalTransferResponse;
+import com.psp.cibbank.model.dto.response.TransactionResponse;
+import com.psp.cibbank.model.entity.Account;
+import com.psp.cibbank.model.entity.Transaction;
+import com.psp.cibbank.model.enums.TransactionStatus;
+import com.psp.cibbank.model.enums.TransactionType;
+import com.psp.cibbank.model.repository.AccountRepository;
+import com.psp.cibbank.model.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests of the TransactionServiceImpl: the items of a batch are applied in account number order,
+ * each in its own database transaction, and a failing item is reported on its own; commits and rollbacks,
+ * including the reversal of a committed leg, report the resulting balance; an internal transfer is applied
+ * at most once per reference; and a prepare or internal transfer past its deadline is refused with a TIMEOUT.
+ */
+class TransactionServiceImplTest {
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final EncryptionUtil encryptionUtil = mock(EncryptionUtil.class);
+    private final AtomicLong nextTransactionId = new AtomicLong(1);
+
+    private TransactionServiceImpl transactionService;
+
+    @BeforeEach
+    void setUp() {
+        TransactionRetry transactionRetry = new TransactionRetry(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(transactionRetry, "maxAttempts", 1);
+
+        transactionService = new TransactionServiceImpl(transactionRepository, accountRepository, encryptionUtil,
+                mock(EntityManager.class), mock(PlatformTransactionManager.class), transactionRetry);
+
+        when(encryptionUtil.decrypt(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRepository.save(any())).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            if (transaction.getId() == null)
+                transaction.setId(nextTransactionId.getAndIncrement());
+            return transaction;
+        });
+    }
+
+    @Test
+    void batchItemsArePreparedInAccountNumberOrder() {
+        Account first = account("1000000000000001", 100.0);
+        Account second = account("2000000000000002", 100.0);
+
+        List<TransactionResponse> responses = transactionService.prepareTransactions(
+                List.of(request(second, TransactionType.DEPOSIT), request(first, TransactionType.WITHDRAWAL)),
+                Arrays.asList(null, null));
+
+        InOrder order = inOrder(accountRepository);
+        order.verify(accountRepository).findByAccountNumber(first.getAccountNumber());
+        order.verify(accountRepository).findByAccountNumber(second.getAccountNumber());
+        assertEquals(TransactionStatus.PREPARED, responses.get(0).getStatus());
+        assertEquals(TransactionStatus.PREPARED, responses.get(1).getStatus());
+        assertEquals(2L, responses.get(0).getTransactionId());
+        assertEquals(1L, responses.get(1).getTransactionId());
+    }
+
+    @Test
+    void failingBatchItemIsReportedWithoutAffectingTheOthers() {
+        Account account = account("1000000000000001", 100.0);
+        TransactionRequest missingAccount = TransactionRequest.builder()
+                .accountNumber("9000000000000009")
+                .type(TransactionType.DEPOSIT)
+                .amount(10.0)
+                .build();
+        when(accountRepository.findByAccountNumber(missingAccount.getAccountNumber())).thenReturn(Optional.empty());
+
+        List<TransactionResponse> responses = transactionService.prepareTransactions(
+                List.of(missingAccount, request(account, TransactionType.WITHDRAWAL)),
+                Arrays.asList(null, null));
+
+        assertEquals(TransactionStatus.FAILED, responses.get(0).getStatus());
+        assertNull(responses.get(0).getTransactionId());
+        assertEquals(TransactionStatus.PREPARED, responses.get(1).getStatus());
+    }
+
+    @Test
+    void batchItemPastItsOwnDeadlineIsRefusedWithoutAffectingTheOthers() {
+        Account first = account("1000000000000001", 100.0);
+        Account second = account("2000000000000002", 100.0);
+
+        List<TransactionResponse> responses = transactionService.prepareTransactions(
+                List.of(request(first, TransactionType.WITHDRAWAL), request(second, TransactionType.DEPOSIT)),
+                Arrays.asList(System.currentTimeMillis() - 1, null));
+
+        assertEquals(TransactionStatus.TIMEOUT, responses.get(0).getStatus());
+        assertEquals(TransactionStatus.PREPARED, responses.get(1).getStatus());
+    }
+
+    @Test
+    void internalTransferPastItsDeadlineIsRefused() {
+        Account source = lockedAccount("1000000000000001", 100.0);
+        Account destination = lockedAccount("2000000000000002", 100.0);
+        when(transactionRepository.findAllByReference(44L)).thenReturn(List.of());
+
+        InternalTransferResponse response = transactionService.transferInternally(internalTransfer(44L),
+                System.currentTimeMillis() - 1);
+
+        assertEquals(TransactionStatus.TIMEOUT, response.getStatus());
+        assertEquals(100.0, source.getBalance());
+        assertEquals(100.0, destination.getBalance());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void commitReportsTheResultingBalance() {
+        Account account = account("1000000000000001", 100.0);
+        Transaction transaction = transaction(5L, account, TransactionType.DEPOSIT, TransactionStatus.PREPARED);
+        when(transactionRepository.findById(5L)).thenReturn(Optional.of(transaction));
+
+        TransactionResponse response = transactionService.commitTransaction(5L);
+
+        assertEquals(TransactionStatus.COMMITTED, response.getStatus());
+        assertEquals(130.0, response.getBalance());
+        assertEquals(130.0, account.getBalance());
+    }
+
+    @Test
+    void rollbackOfACommittedLegReversesItAndReportsTheResultingBalance() {
+        Account account = account("1000000000000001", 70.0);
+        Transaction transaction = transaction(5L, account, TransactionType.WITHDRAWAL, TransactionStatus.COMMITTED);
+        when(transactionRepository.findById(5L)).thenReturn(Optional.of(transaction));
+
+        TransactionResponse response = transactionService.rollbackTransaction(5L);
+
+        assertEquals(TransactionStatus.ROLLED_BACK, response.getStatus());
+        assertEquals(100.0, response.getBalance());
+        assertEquals(100.0, account.getBalance());
+        assertEquals(TransactionStatus.ROLLED_BACK, transaction.getStatus());
+    }
+
+    @Test
+    void internalTransferRepeatedWithItsReferenceReturnsTheOriginalOutcome() {
+        Account source = lockedAccount("1000000000000001", 70.0);
+        Account destination = lockedAccount("2000000000000002", 130.0);
+        when(transactionRepository.findAllByReference(42L)).thenReturn(List.of(
+                transaction(5L, source, TransactionType.WITHDRAWAL, TransactionStatus.COMMITTED),
+                transaction(6L, destination, TransactionType.DEPOSIT, TransactionStatus.COMMITTED)));
+
+        InternalTransferResponse response = transactionService.transferInternally(internalTransfer(42L), null);
+
+        assertEquals(TransactionStatus.COMMITTED, response.getStatus());
+        assertEquals(5L, response.getWithdrawalTransactionId());
+        assertEquals(6L, response.getDepositTransactionId());
+        assertEquals(70.0, response.getSourceBalance());
+        assertEquals(130.0, response.getDestinationBalance());
+        verify(accountRepository, never()).save(any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void internalTransferWithANewReferenceIsApplied() {
+        Account source = lockedAccount("1000000000000001", 100.0);
+        Account destination = lockedAccount("2000000000000002", 100.0);
+        when(transactionRepository.findAllByReference(43L)).thenReturn(List.of());
+
+        InternalTransferResponse response = transactionService.transferInternally(internalTransfer(43L), null);
+
+        assertEquals(TransactionStatus.COMMITTED, response.getStatus());
+        assertEquals(70.0, source.getBalance());
+        assertEquals(130.0, destination.getBalance());
+        assertEquals(70.0, response.getSourceBalance());
+        assertEquals(130.0, response.getDestinationBalance());
+    }
+
+    private Account account(String accountNumber, Double balance) {
+        Account account = new Account(null, accountNumber, balance, true);
+        when(accountRepository.findByAccountNumber(accountNumber)).thenReturn(Optional.of(account));
+        return account;
+    }
+
+    private Account lockedAccount(String accountNumber, Double balance) {
+        Account account = new Account(null, accountNumber, balance, true);
+        when(accountRepository.findForUpdateByAccountNumber(accountNumber)).thenReturn(Optional.of(account));
+        return account;
+    }
+
+    private static Transaction transaction(Long id, Account account, TransactionType type, TransactionStatus status) {
+        return Transaction.builder()
+                .id(id)
+                .Account(account)
+                .amount(30.0)
+                .transactionType(type)
+                .status(status)
+                .build();
+    }
+
+    private static InternalTransferRequest internalTransfer(Long reference) {
+        return InternalTransferRequest.builder()
+                .sourceAccountNumber("1000000000000001")
+                .destinationAccountNumber("2000000000000002")
+                .amount(30.0)
+                .reference(reference)
+                .build();
+    }
+
+    private static TransactionRequest request(Account account, TransactionType type) {
+        return TransactionRequest.builder()
+                .accountNumber(account.getAccountNumber())
+                .type(type)
+                .amount(10.0)
+                .build();
+    }
+}
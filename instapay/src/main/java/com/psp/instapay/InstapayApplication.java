@@ -3,14 +3,17 @@ package com.psp.instapay;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main class for the Instapay application.
  * This is the entry point of the Spring Boot application.
- * It also enables Feign clients for making HTTP requests to external services.
+ * It also enables Feign clients for making HTTP requests to external services,
+ * and scheduling for the recovery of in-doubt transactions.
  */
 @SpringBootApplication
 @EnableFeignClients
+@EnableScheduling
 public class InstapayApplication {
 
     /**
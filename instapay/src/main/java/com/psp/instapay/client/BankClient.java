@@ -1,12 +1,18 @@
 package com.psp.instapay.client;
 
+import com.psp.instapay.model.dto.request.InternalTransferRequest;
 import com.psp.instapay.model.dto.request.TransactionRequest;
+import com.psp.instapay.model.dto.request.BatchCommitRequest;
+import com.psp.instapay.model.dto.request.BatchPrepareRequest;
 import com.psp.instapay.model.dto.request.GetAccountsRequest;
 import com.psp.instapay.model.dto.response.ResponseDto;
 import com.psp.instapay.model.dto.response.GetAccountsResponse;
+import com.psp.instapay.model.dto.response.InternalTransferResponse;
 import com.psp.instapay.model.dto.response.TransactionResponse;
 import org.springframework.http.ResponseEntity;
 
+import java.util.List;
+
 /**
  * Interface defining the contract for bank client operations.
  * Provides methods for interacting with bank APIs, such as retrieving account balances,
@@ -61,4 +67,36 @@ public interface BankClient {
      * @return a TransactionResponse containing the rolled-back transaction details
      */
     TransactionResponse rollbackTransaction(Long transactionId);
+
+    /**
+     * Prepares a batch of transactions in a single request.
+     *
+     * @param requests the transaction requests containing transaction details and the time left to prepare each
+     * @return the TransactionResponse of each request, in request order
+     */
+    List<TransactionResponse> prepareTransactions(List<BatchPrepareRequest> requests);
+
+    /**
+     * Commits a batch of transactions in a single request.
+     *
+     * @param requests the IDs of the transactions to commit
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    List<TransactionResponse> commitTransactions(List<BatchCommitRequest> requests);
+
+    /**
+     * Rolls back a batch of transactions in a single request.
+     *
+     * @param transactionIds the IDs of the transactions to roll back
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    List<TransactionResponse> rollbackTransactions(List<Long> transactionIds);
+
+    /**
+     * Transfers money between two accounts of the bank in a single request and database transaction.
+     *
+     * @param request the internal transfer request containing the accounts and the amount
+     * @return an InternalTransferResponse containing the outcome of the transfer
+     */
+    InternalTransferResponse transferInternally(InternalTransferRequest request);
 }
\ No newline at end of file
@@ -1,41 +1,403 @@
 package com.psp.instapay.client;
 
-import com.psp.instapay.client.banks.CIBClient;
-import com.psp.instapay.client.banks.NBEClient;
+import com.psp.instapay.client.banks.BankFeignClient;
+import com.psp.instapay.config.BankHttpClients;
+import com.psp.instapay.exception.BankUnavailableException;
+import com.psp.instapay.model.entity.Bank;
+import com.psp.instapay.util.BankRegistry;
+import com.psp.instapay.util.CircuitBreaker;
+import feign.Request;
+import feign.hc5.ApacheHttp5Client;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.io.CloseMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.FeignClientBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Factory class for creating and managing bank client instances.
- * This class provides a way to retrieve the appropriate BankClient implementation
- * based on the bank name.
+ * Registry of the bank client instances.
+ * The banks and the endpoints of their APIs are resolved through the BankRegistry, which alone loads them from
+ * the bank table: the clients are rebuilt from the banks published on each of its refreshes, so a bank can be
+ * added, or given more replicas, without a redeploy. A bank whose endpoints column is empty
+ * falls back to the default endpoints configured under bank-client.banks.<bank>.endpoints, if any. A BankClient is built at runtime
+ * for each bank with endpoints, on top of a pooled transport balancing its calls across those endpoints.
+ * When batching is enabled, each client is wrapped in a BatchingBankClient so that concurrent 2PC calls
+ * to the same bank share one request. Every client is then wrapped in a ResilientBankClient with its own
+ * bulkhead and circuit breaker, so a slow or failing bank cannot starve the calls to the others.
+ * Outermost, a HedgingBankClient hedges slow reads, when enabled.
+ * A bank keeps its client, and the state of its bulkhead and breaker, until its endpoints change.
  */
+@Slf4j
 @Component
 public class BankClientFactory {
-    private final Map<String, BankClient> clients;
+
+    private final BankRegistry bankRegistry;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final FeignClientBuilder feignClientBuilder;
+    private final ExecutorService bankCallExecutor;
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Map<String, RegisteredBank> banks = Map.of();
+
+    /**
+     * Whether concurrent 2PC calls to the same bank are batched.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.batching.enabled}")
+    private boolean batchingEnabled;
+
+    /**
+     * How long, in milliseconds, a call waits for others to join its batch.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.batching.window}")
+    private long batchingWindow;
+
+    /**
+     * The maximum number of calls sent in one batch.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.batching.max-size}")
+    private int batchingMaxSize;
+
+    /**
+     * The maximum number of calls in progress against each bank.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.bulkhead.max-concurrent-calls}")
+    private int maxConcurrentCalls;
+
+    /**
+     * How long, in milliseconds, a call waits for a free slot before it is rejected.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.bulkhead.max-wait}")
+    private long bulkheadWait;
+
+    /**
+     * The number of consecutive failures that opens the circuit breaker of a bank.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.circuit-breaker.failure-threshold}")
+    private int failureThreshold;
+
+    /**
+     * How long, in milliseconds, a circuit breaker stays open before probing its bank.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.circuit-breaker.open-duration}")
+    private long openDuration;
+
+    /**
+     * The maximum number of probe calls in flight while a circuit breaker is half-open.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.circuit-breaker.half-open-probes}")
+    private int halfOpenProbes;
+
+    /**
+     * The policy choosing the endpoint of a call to a bank with several endpoints.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.load-balancing.policy}")
+    private LoadBalancingClient.Policy loadBalancingPolicy;
+
+    /**
+     * The number of consecutive failures that ejects an endpoint.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.load-balancing.ejection.failure-threshold}")
+    private int ejectionThreshold;
+
+    /**
+     * How long, in milliseconds, an ejected endpoint receives no calls.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.load-balancing.ejection.duration}")
+    private long ejectionDuration;
+
+    /**
+     * The floor, in milliseconds, of the timeout adapted to the latency of a bank.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.adaptive-timeout.min}")
+    private long adaptiveTimeoutMin;
+
+    /**
+     * The multiple of the p99 latency of a bank used as the timeout of its calls.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.adaptive-timeout.p99-multiplier}")
+    private double adaptiveTimeoutMultiplier;
+
+    /**
+     * Whether read calls still unanswered after the p95 read latency of their bank are sent a second time.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.hedging.enabled}")
+    private boolean hedgingEnabled;
+
+    /**
+     * The minimum time, in milliseconds, a read call waits before it is hedged.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.hedging.min-delay}")
+    private long minHedgeDelay;
+
+    /**
+     * The maximum number of open connections to each endpoint of a bank.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.http.max-connections}")
+    private int maxConnections;
+
+    /**
+     * The maximum time, in milliseconds, to establish a connection to a bank.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.http.connect-timeout}")
+    private long connectTimeout;
+
+    /**
+     * The maximum time, in milliseconds, to wait for a response from a bank.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.http.response-timeout}")
+    private long responseTimeout;
+
+    /**
+     * The time, in milliseconds, after which an idle connection to a bank is closed.
+     * This value is injected from the application properties.
+     */
+    @Value("${bank-client.http.idle-timeout}")
+    private long idleTimeout;
 
     /**
      * Constructor for BankClientFactory.
-     * Initializes the factory with specific bank client implementations.
      *
-     * @param cibClient the CIBClient implementation
-     * @param nbeClient the NBEClient implementation
+     * @param bankRegistry the registry the banks and their endpoints are resolved through
+     * @param environment the environment the API key of each bank is read from
+     * @param meterRegistry the registry the connection pool metrics are published to
+     * @param applicationContext the context the Feign clients are built in
+     * @param bankCallExecutor the executor on which batched and hedged calls are sent
      */
-    public BankClientFactory(CIBClient cibClient, NBEClient nbeClient) {
-        clients = new HashMap<>();
-        clients.put("CIB", cibClient);
-        clients.put("NBE", nbeClient);
+    public BankClientFactory(BankRegistry bankRegistry, Environment environment, MeterRegistry meterRegistry,
+                             ApplicationContext applicationContext, ExecutorService bankCallExecutor) {
+        this.bankRegistry = bankRegistry;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.feignClientBuilder = new FeignClientBuilder(applicationContext);
+        this.bankCallExecutor = bankCallExecutor;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("bank-client-scheduler").daemon().factory());
     }
 
     /**
      * Retrieves the BankClient implementation for the specified bank name.
+     * A bank without a client is looked up in the BankRegistry, which refreshes on a lookup of an unknown bank,
+     * so a newly added bank can be called before the next periodic refresh.
      *
      * @param bankName the name of the bank (e.g., "CIB", "NBE")
-     * @return the corresponding BankClient implementation, or null if not found
+     * @return the corresponding BankClient implementation
+     * @throws BankUnavailableException if the bank is unknown or has no endpoints
      */
     public BankClient getBankClient(String bankName) {
-        return clients.get(bankName);
+        RegisteredBank bank = banks.get(bankName);
+        if (bank == null && bankRegistry.findByName(bankName).isPresent())
+            bank = banks.get(bankName);
+
+        if (bank == null)
+            throw new BankUnavailableException("Bank " + bankName + " has no registered endpoints");
+
+        return bank.client();
+    }
+
+    /**
+     * Rebuilds the clients from the banks published by a refresh of the BankRegistry.
+     * A bank whose endpoints changed gets a new client; the transport of its previous client is closed once
+     * the calls still in flight on it have had time to complete. A bank removed from the table, or left without
+     * endpoints, is unregistered. A bank whose client cannot be built keeps its previous client, if any.
+     *
+     * @param refreshed the banks loaded by the refresh
+     */
+    @EventListener
+    public void onBanksRefreshed(BankRegistry.Refreshed refreshed) {
+        reloadLock.lock();
+        try {
+            Map<String, RegisteredBank> previous = banks;
+            Map<String, RegisteredBank> reloaded = new HashMap<>();
+
+            for (Bank bank : refreshed.banks()) {
+                List<String> endpoints = endpointsOf(bank);
+                if (endpoints.isEmpty())
+                    continue;
+
+                RegisteredBank registered = previous.get(bank.getName());
+                if (registered == null || !registered.endpoints().equals(endpoints)) {
+                    try {
+                        registered = register(bank.getName(), endpoints);
+                        log.info("Registered bank {} with endpoints {}", bank.getName(), endpoints);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to register bank {}: {}", bank.getName(), e.getMessage());
+                        if (registered == null)
+                            continue;
+                    }
+                }
+                reloaded.put(bank.getName(), registered);
+            }
+
+            banks = Map.copyOf(reloaded);
+
+            for (RegisteredBank bank : previous.values()) {
+                if (reloaded.get(bank.name()) != bank) {
+                    log.info("Unregistered endpoints {} of bank {}", bank.endpoints(), bank.name());
+                    retire(bank);
+                }
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Builds the client of a bank: a Feign client sending the calls through a load-balanced pooled transport,
+     * bounded by the deadline of each call and by a timeout adapted to the bank's latency,
+     * wrapped in the batching, resilience and hedging decorators.
+     *
+     * @param bankName the name of the bank
+     * @param endpoints the base URLs of the bank's endpoints
+     * @return the registered bank
+     * @throws IllegalStateException if no API key is configured for the bank
+     */
+    private RegisteredBank register(String bankName, List<String> endpoints) {
+        String clientName = clientNameOf(bankName);
+        String apiKey = environment.getProperty(clientName + ".api.key");
+        if (apiKey == null)
+            throw new IllegalStateException("No API key configured under " + clientName + ".api.key");
+
+        CloseableHttpClient httpClient = BankHttpClients.pooled(clientName, maxConnections, endpoints.size(),
+                connectTimeout, responseTimeout, idleTimeout, meterRegistry);
+        DeadlineClient transport = new DeadlineClient(bankName,
+                new LoadBalancingClient(bankName, new ApacheHttp5Client(httpClient),
+                        endpoints, loadBalancingPolicy, ejectionThreshold, ejectionDuration),
+                meterRegistry, adaptiveTimeoutMin, responseTimeout, adaptiveTimeoutMultiplier);
+
+        BankClient client;
+        try {
+            client = feignClientBuilder.forType(BankFeignClient.class, clientName)
+                    .url("http://" + clientName)
+                    .customize(builder -> builder
+                            .client(transport)
+                            .options(new Request.Options(connectTimeout, TimeUnit.MILLISECONDS,
+                                    responseTimeout, TimeUnit.MILLISECONDS, true))
+                            .requestInterceptor(template -> template.header("X-API-Key", apiKey)))
+                    .build();
+        } catch (RuntimeException e) {
+            httpClient.close(CloseMode.IMMEDIATE);
+            throw e;
+        }
+
+        if (batchingEnabled)
+            client = new BatchingBankClient(client, batchingWindow, batchingMaxSize, scheduler, bankCallExecutor);
+
+        client = new ResilientBankClient(client, bankName, maxConcurrentCalls, bulkheadWait,
+                new CircuitBreaker(bankName, failureThreshold, openDuration, halfOpenProbes));
+
+        client = new HedgingBankClient(client, bankName, bankCallExecutor, hedgingEnabled, minHedgeDelay,
+                meterRegistry);
+
+        return new RegisteredBank(bankName, endpoints, client, httpClient);
+    }
+
+    /**
+     * Closes the transport of a client that is no longer registered, once the calls still in flight on it
+     * have had time to complete.
+     *
+     * @param bank the unregistered bank
+     */
+    private void retire(RegisteredBank bank) {
+        scheduler.schedule(() -> bank.httpClient().close(CloseMode.GRACEFUL), responseTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the endpoints of a bank: those of its endpoints column, or the default endpoints configured for it
+     * under bank-client.banks.<bank>.endpoints when the column is empty.
+     *
+     * @param bank the bank
+     * @return the base URLs of the bank's endpoints, or an empty list if it has none
+     */
+    private List<String> endpointsOf(Bank bank) {
+        List<String> endpoints = parseEndpoints(bank.getEndpoints());
+        if (!endpoints.isEmpty())
+            return endpoints;
+
+        return parseEndpoints(environment.getProperty("bank-client.banks." + clientNameOf(bank.getName()) + ".endpoints"));
+    }
+
+    /**
+     * Returns the name under which the properties of a bank are configured: its name in lower case,
+     * with every character other than letters, digits and hyphens replaced by a hyphen.
+     *
+     * @param bankName the name of the bank
+     * @return the client name of the bank
+     */
+    private static String clientNameOf(String bankName) {
+        return bankName.toLowerCase().replaceAll("[^a-z0-9-]", "-");
+    }
+
+    /**
+     * Parses the comma-separated endpoints of a bank.
+     *
+     * @param endpoints the endpoints as stored in the bank table, possibly null
+     * @return the base URLs of the endpoints, in order
+     */
+    private static List<String> parseEndpoints(String endpoints) {
+        if (endpoints == null)
+            return List.of();
+
+        return Arrays.stream(endpoints.split(","))
+                .map(String::trim)
+                .filter(endpoint -> !endpoint.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Stops the scheduler and closes the transports of the registered banks.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (RegisteredBank bank : banks.values())
+            bank.httpClient().close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * A bank registered in the factory.
+     *
+     * @param name the name of the bank
+     * @param endpoints the base URLs of the bank's endpoints
+     * @param client the client of the bank
+     * @param httpClient the pooled HTTP client the calls to the bank are sent through
+     */
+    private record RegisteredBank(String name, List<String> endpoints, BankClient client,
+                                  CloseableHttpClient httpClient) {
     }
-}
\ No newline at end of file
+}
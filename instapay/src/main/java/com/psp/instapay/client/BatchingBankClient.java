@@ -0,0 +1,110 @@
+package com.psp.instapay.client;
+
+import com.psp.instapay.model.dto.request.BatchCommitRequest;
+import com.psp.instapay.model.dto.request.BatchPrepareRequest;
+import com.psp.instapay.model.dto.request.GetAccountsRequest;
+import com.psp.instapay.model.dto.request.InternalTransferRequest;
+import com.psp.instapay.model.dto.request.TransactionRequest;
+import com.psp.instapay.model.dto.response.GetAccountsResponse;
+import com.psp.instapay.model.dto.response.InternalTransferResponse;
+import com.psp.instapay.model.dto.response.ResponseDto;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+import com.psp.instapay.util.Deadline;
+import com.psp.instapay.util.MicroBatcher;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
+
+/**
+ * BankClient decorator that coalesces concurrent 2PC calls to the same bank.
+ * Prepare, commit, and rollback calls issued within a short window are sent as one request to the bank's
+ * batch endpoints, which process each of them in its own database transaction. Each prepare call carries
+ * the time left before its own deadline, so the bank refuses a late call without affecting the others.
+ * All other calls go straight to the underlying client.
+ */
+public class BatchingBankClient implements BankClient {
+    private final BankClient delegate;
+    private final MicroBatcher<TransactionRequest, TransactionResponse> prepareBatcher;
+    private final MicroBatcher<Long, TransactionResponse> commitBatcher;
+    private final MicroBatcher<Long, TransactionResponse> rollbackBatcher;
+
+    /**
+     * Creates a batching client around the given bank client.
+     *
+     * @param delegate the bank client sending the requests
+     * @param windowMillis how long, in milliseconds, a call waits for others to join its batch
+     * @param maxBatchSize the maximum number of calls sent in one request
+     * @param scheduler the scheduler closing the batching windows
+     * @param executor the executor sending the batches
+     */
+    public BatchingBankClient(BankClient delegate, long windowMillis, int maxBatchSize,
+                              ScheduledExecutorService scheduler, Executor executor) {
+        this.delegate = delegate;
+        this.prepareBatcher = new MicroBatcher<>(delegate::prepareTransaction,
+                (requests, deadlines) -> delegate.prepareTransactions(IntStream.range(0, requests.size())
+                        .mapToObj(i -> new BatchPrepareRequest(requests.get(i), Deadline.remaining(deadlines.get(i))))
+                        .toList()),
+                windowMillis, maxBatchSize, scheduler, executor);
+        this.commitBatcher = new MicroBatcher<>(delegate::commitTransaction,
+                (transactionIds, deadlines) -> delegate.commitTransactions(transactionIds.stream()
+                        .map(BatchCommitRequest::new)
+                        .toList()),
+                windowMillis, maxBatchSize, scheduler, executor);
+        this.rollbackBatcher = new MicroBatcher<>(delegate::rollbackTransaction,
+                (transactionIds, deadlines) -> delegate.rollbackTransactions(transactionIds),
+                windowMillis, maxBatchSize, scheduler, executor);
+    }
+
+    @Override
+    public Double getBalance(String accountNumber) {
+        return delegate.getBalance(accountNumber);
+    }
+
+    @Override
+    public GetAccountsResponse getAccounts(GetAccountsRequest getAccountsRequest) {
+        return delegate.getAccounts(getAccountsRequest);
+    }
+
+    @Override
+    public ResponseEntity<ResponseDto> getCustomerByPhoneNumber(String phoneNumber) {
+        return delegate.getCustomerByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public TransactionResponse prepareTransaction(TransactionRequest request) {
+        return prepareBatcher.submit(request);
+    }
+
+    @Override
+    public TransactionResponse commitTransaction(Long transactionId) {
+        return commitBatcher.submit(transactionId);
+    }
+
+    @Override
+    public TransactionResponse rollbackTransaction(Long transactionId) {
+        return rollbackBatcher.submit(transactionId);
+    }
+
+    @Override
+    public List<TransactionResponse> prepareTransactions(List<BatchPrepareRequest> requests) {
+        return delegate.prepareTransactions(requests);
+    }
+
+    @Override
+    public List<TransactionResponse> commitTransactions(List<BatchCommitRequest> requests) {
+        return delegate.commitTransactions(requests);
+    }
+
+    @Override
+    public List<TransactionResponse> rollbackTransactions(List<Long> transactionIds) {
+        return delegate.rollbackTransactions(transactionIds);
+    }
+
+    @Override
+    public InternalTransferResponse transferInternally(InternalTransferRequest request) {
+        return delegate.transferInternally(request);
+    }
+}
\ No newline at end of file
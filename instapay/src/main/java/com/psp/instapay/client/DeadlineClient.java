@@ -0,0 +1,123 @@
+package com.psp.instapay.client;
+
+import com.psp.instapay.exception.DeadlineExceededException;
+import com.psp.instapay.util.Deadline;
+import com.psp.instapay.util.LatencyPercentile;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feign transport bounding every call to a bank by the deadline of the work it is made for, and by a timeout
+ * adapted to the bank's observed latency.
+ * The adaptive timeout is a multiple of the bank's recent p99 latency, kept between a floor and the configured
+ * response timeout, so a call stuck on a degraded bank is abandoned long before the static timeout would fire.
+ * A call made within a deadline gets at most the remaining budget, which is also sent to the bank in the
+ * {@link Deadline#HEADER} header; a call whose deadline has already passed is not sent at all.
+ * The latency of every call is published as the "bank.call.latency" timer of the bank.
+ */
+public class DeadlineClient implements Client {
+
+    /**
+     * The number of calls to observe before the timeout adapts to the latency.
+     */
+    private static final long MIN_SAMPLES = 100;
+
+    private final String bankName;
+    private final Client delegate;
+    private final LatencyPercentile p99Latency;
+    private final long minTimeoutMillis;
+    private final long maxTimeoutMillis;
+    private final double percentileMultiplier;
+
+    /**
+     * Creates a deadline-aware transport.
+     *
+     * @param bankName the name of the bank, used to tag the latency timer and in error messages
+     * @param delegate the transport sending the calls
+     * @param meterRegistry the registry the latency timer is published to
+     * @param minTimeoutMillis the floor, in milliseconds, of the adaptive timeout
+     * @param maxTimeoutMillis the ceiling, in milliseconds, of the adaptive timeout, used until enough calls are observed
+     * @param percentileMultiplier the multiple of the p99 latency used as the timeout
+     */
+    public DeadlineClient(String bankName, Client delegate, MeterRegistry meterRegistry,
+                          long minTimeoutMillis, long maxTimeoutMillis, double percentileMultiplier) {
+        this.bankName = bankName;
+        this.delegate = delegate;
+        this.p99Latency = new LatencyPercentile("bank.call.latency", "Latency of the calls to a bank",
+                bankName, 0.99, MIN_SAMPLES, meterRegistry);
+        this.minTimeoutMillis = minTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.percentileMultiplier = percentileMultiplier;
+    }
+
+    /**
+     * Sends a call with a timeout of the smaller of the adaptive timeout and the remaining budget of its deadline.
+     *
+     * @param request the request
+     * @param options the options of the request, whose timeouts are replaced
+     * @return the response of the bank
+     * @throws IOException if the call fails or times out
+     * @throws DeadlineExceededException if the deadline of the call has already passed
+     */
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        long timeout = adaptiveTimeout();
+        boolean boundByDeadline = false;
+
+        Long deadline = Deadline.current();
+        if (deadline != null) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                throw new DeadlineExceededException("Deadline passed before calling bank " + bankName);
+
+            if (remaining < timeout) {
+                timeout = remaining;
+                boundByDeadline = true;
+            }
+
+            Map<String, Collection<String>> headers = new HashMap<>(request.headers());
+            headers.put(Deadline.HEADER, List.of(String.valueOf(remaining)));
+            request = Request.create(request.httpMethod(), request.url(), headers,
+                    request.body(), request.charset(), request.requestTemplate());
+        }
+
+        long connectTimeout = Math.min(options.connectTimeoutUnit().toMillis(options.connectTimeout()), timeout);
+        Request.Options callOptions = new Request.Options(connectTimeout, TimeUnit.MILLISECONDS,
+                timeout, TimeUnit.MILLISECONDS, options.isFollowRedirects());
+
+        long startedAt = System.nanoTime();
+        try {
+            Response response = delegate.execute(request, callOptions);
+            p99Latency.recordSince(startedAt);
+            return response;
+        } catch (IOException e) {
+            // A call cut short by its deadline says nothing about the latency of the bank
+            if (!boundByDeadline)
+                p99Latency.recordSince(startedAt);
+
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the adaptive timeout. Until enough calls are observed, or while no call was observed recently, the ceiling is used.
+     *
+     * @return the adaptive timeout in milliseconds
+     */
+    private long adaptiveTimeout() {
+        long p99 = p99Latency.millis();
+        if (p99 < 0)
+            return maxTimeoutMillis;
+
+        return Math.clamp((long) (p99 * percentileMultiplier), minTimeoutMillis, maxTimeoutMillis);
+    }
+}
@@ -0,0 +1,270 @@
+package com.psp.instapay.client;
+
+import com.psp.instapay.exception.BankUnavailableException;
+import com.psp.instapay.exception.DeadlineExceededException;
+import com.psp.instapay.model.dto.request.BatchCommitRequest;
+import com.psp.instapay.model.dto.request.BatchPrepareRequest;
+import com.psp.instapay.model.dto.request.GetAccountsRequest;
+import com.psp.instapay.model.dto.request.InternalTransferRequest;
+import com.psp.instapay.model.dto.request.TransactionRequest;
+import com.psp.instapay.model.dto.response.GetAccountsResponse;
+import com.psp.instapay.model.dto.response.InternalTransferResponse;
+import com.psp.instapay.model.dto.response.ResponseDto;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+import com.psp.instapay.util.Deadline;
+import com.psp.instapay.util.LatencyPercentile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BankClient decorator cutting the tail latency of the read calls to a bank.
+ * When hedging is enabled, a read still unanswered after the bank's recent p95 read latency is sent a second
+ * time, and the first successful answer is used; it fails only if both calls fail. No read is hedged until
+ * enough reads have been observed to know the p95. Only idempotent reads are hedged; every other call is
+ * passed through. Concurrent balance reads of the same account are coalesced before they reach the client,
+ * by the AccountBalanceCache.
+ * The number of reads, of hedges sent and of hedges that answered first are published as counters tagged
+ * with the bank's name.
+ */
+public class HedgingBankClient implements BankClient {
+
+    /**
+     * The number of reads to observe before the hedging delay adapts to the latency.
+     */
+    private static final long MIN_SAMPLES = 100;
+
+    private final BankClient delegate;
+    private final String bankName;
+    private final ExecutorService executor;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayMillis;
+    private final LatencyPercentile p95Latency;
+
+    private final Counter reads;
+    private final Counter hedgedReads;
+    private final Counter hedgeWins;
+
+    /**
+     * Creates a hedging client around the given bank client.
+     *
+     * @param delegate the bank client sending the requests
+     * @param bankName the name of the bank, used to tag the metrics and in error messages
+     * @param executor the executor on which hedged reads are sent
+     * @param hedgingEnabled whether slow reads are hedged
+     * @param minHedgeDelayMillis the minimum time, in milliseconds, a read waits before it is hedged
+     * @param meterRegistry the registry the metrics are published to
+     */
+    public HedgingBankClient(BankClient delegate, String bankName, ExecutorService executor,
+                             boolean hedgingEnabled, long minHedgeDelayMillis, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.bankName = bankName;
+        this.executor = executor;
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+        this.p95Latency = new LatencyPercentile("bank.read.latency", "Latency of the read calls to a bank",
+                bankName, 0.95, MIN_SAMPLES, meterRegistry);
+        this.reads = counter("bank.read.calls", "Read calls made to a bank", meterRegistry);
+        this.hedgedReads = counter("bank.read.hedged", "Read calls sent a second time because the first was slow", meterRegistry);
+        this.hedgeWins = counter("bank.read.hedge.wins", "Hedged read calls answered first by the second call", meterRegistry);
+    }
+
+    @Override
+    public Double getBalance(String accountNumber) {
+        reads.increment();
+        return hedge(() -> delegate.getBalance(accountNumber));
+    }
+
+    @Override
+    public GetAccountsResponse getAccounts(GetAccountsRequest getAccountsRequest) {
+        reads.increment();
+        return hedge(() -> delegate.getAccounts(getAccountsRequest));
+    }
+
+    @Override
+    public ResponseEntity<ResponseDto> getCustomerByPhoneNumber(String phoneNumber) {
+        return delegate.getCustomerByPhoneNumber(phoneNumber);
+    }
+
+    @Override
+    public TransactionResponse prepareTransaction(TransactionRequest request) {
+        return delegate.prepareTransaction(request);
+    }
+
+    @Override
+    public TransactionResponse commitTransaction(Long transactionId) {
+        return delegate.commitTransaction(transactionId);
+    }
+
+    @Override
+    public TransactionResponse rollbackTransaction(Long transactionId) {
+        return delegate.rollbackTransaction(transactionId);
+    }
+
+    @Override
+    public List<TransactionResponse> prepareTransactions(List<BatchPrepareRequest> requests) {
+        return delegate.prepareTransactions(requests);
+    }
+
+    @Override
+    public List<TransactionResponse> commitTransactions(List<BatchCommitRequest> requests) {
+        return delegate.commitTransactions(requests);
+    }
+
+    @Override
+    public List<TransactionResponse> rollbackTransactions(List<Long> transactionIds) {
+        return delegate.rollbackTransactions(transactionIds);
+    }
+
+    @Override
+    public InternalTransferResponse transferInternally(InternalTransferRequest request) {
+        return delegate.transferInternally(request);
+    }
+
+    /**
+     * Sends a read, hedging it if it is still unanswered after the hedging delay.
+     *
+     * @param read the read to send
+     * @param <T> the type of the bank's answer
+     * @return the first successful answer of the bank
+     */
+    private <T> T hedge(Supplier<T> read) {
+        long delay = hedgeDelay();
+        if (delay < 0)
+            return timed(read);
+
+        Long deadline = Deadline.current();
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(() -> Deadline.callAt(deadline, () -> timed(read)), executor);
+        try {
+            return primary.get(Math.min(delay, Math.max(Deadline.remaining(), 0)), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (Deadline.isExpired())
+                return await(primary);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BankUnavailableException("Interrupted while reading from bank " + bankName);
+        }
+
+        hedgedReads.increment();
+        CompletableFuture<T> hedge = CompletableFuture.supplyAsync(() -> Deadline.callAt(deadline, () -> timed(read)), executor);
+
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((answer, failure) -> complete(first, answer, failure, failures));
+        hedge.whenComplete((answer, failure) -> {
+            if (complete(first, answer, failure, failures) && failure == null)
+                hedgeWins.increment();
+        });
+
+        return await(first);
+    }
+
+    /**
+     * Completes the result of a hedged read with the answer of one of its calls: with the first successful
+     * answer, or with the failure of the second call if both fail.
+     *
+     * @param first the result of the hedged read
+     * @param answer the answer of the call, if it succeeded
+     * @param failure the failure of the call, if it failed
+     * @param failures the number of calls of the read that failed so far
+     * @param <T> the type of the bank's answer
+     * @return true if the call completed the result
+     */
+    private static <T> boolean complete(CompletableFuture<T> first, T answer, Throwable failure, AtomicInteger failures) {
+        if (failure == null)
+            return first.complete(answer);
+
+        return failures.incrementAndGet() == 2 && first.completeExceptionally(failure);
+    }
+
+    /**
+     * Sends a read, recording its latency if it succeeds.
+     *
+     * @param read the read to send
+     * @param <T> the type of the bank's answer
+     * @return the bank's answer
+     */
+    private <T> T timed(Supplier<T> read) {
+        long startedAt = System.nanoTime();
+        T answer = read.get();
+        p95Latency.recordSince(startedAt);
+        return answer;
+    }
+
+    /**
+     * Returns how long a read waits before it is hedged.
+     *
+     * @return the hedging delay in milliseconds, or -1 if reads are not hedged
+     */
+    private long hedgeDelay() {
+        if (!hedgingEnabled)
+            return -1;
+
+        long p95 = p95Latency.millis();
+        return p95 < 0 ? -1 : Math.max(p95, minHedgeDelayMillis);
+    }
+
+    /**
+     * Waits for the answer of a read, within the deadline of the current thread, if any.
+     *
+     * @param result the future of the read
+     * @param <T> the type of the bank's answer
+     * @return the bank's answer
+     * @throws DeadlineExceededException if the deadline passes before the bank answers
+     */
+    private <T> T await(CompletableFuture<T> result) {
+        try {
+            Long deadline = Deadline.current();
+            if (deadline == null)
+                return result.get();
+
+            return result.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Deadline passed while reading from bank " + bankName);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BankUnavailableException("Interrupted while reading from bank " + bankName);
+        }
+    }
+
+    /**
+     * Returns the failure of a read as thrown by the bank client.
+     *
+     * @param e the exception wrapping the failure
+     * @return the failure to throw
+     */
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause)
+            return cause;
+
+        return new IllegalStateException(e.getCause());
+    }
+
+    /**
+     * Registers a counter tagged with the bank's name.
+     *
+     * @param name the name of the counter
+     * @param description the description of the counter
+     * @param meterRegistry the registry the counter is published to
+     * @return the counter
+     */
+    private Counter counter(String name, String description, MeterRegistry meterRegistry) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("bank", bankName)
+                .register(meterRegistry);
+    }
+}
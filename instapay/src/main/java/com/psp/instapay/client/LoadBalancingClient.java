@@ -0,0 +1,179 @@
+package com.psp.instapay.client;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feign transport spreading the calls to a bank across the bank's endpoints.
+ * Each call is sent to an endpoint chosen by the configured policy, round-robin or least outstanding requests.
+ * An endpoint that fails a number of consecutive calls, by refusing connections, timing out, or answering
+ * that it is unavailable (502, 503, 504), is ejected for a while and receives no calls until it comes back.
+ * If every endpoint is ejected, the calls are spread across all of them rather than rejected.
+ * A call whose connection is refused never reached the bank, so it is retried on another endpoint.
+ */
+@Slf4j
+public class LoadBalancingClient implements Client {
+
+    /**
+     * The policies choosing the endpoint of a call.
+     */
+    public enum Policy {
+        ROUND_ROBIN,
+        LEAST_OUTSTANDING
+    }
+
+    private final String bankName;
+    private final Client delegate;
+    private final List<Endpoint> endpoints;
+    private final Policy policy;
+    private final int failureThreshold;
+    private final long ejectionMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Creates a load-balancing transport.
+     *
+     * @param bankName the name of the bank, used in logs
+     * @param delegate the transport sending the calls
+     * @param endpointUrls the base URLs of the bank's endpoints
+     * @param policy the policy choosing the endpoint of a call
+     * @param failureThreshold the number of consecutive failures that ejects an endpoint
+     * @param ejectionMillis how long, in milliseconds, an ejected endpoint receives no calls
+     */
+    public LoadBalancingClient(String bankName, Client delegate, List<String> endpointUrls, Policy policy,
+                               int failureThreshold, long ejectionMillis) {
+        if (endpointUrls.isEmpty())
+            throw new IllegalArgumentException("Bank " + bankName + " has no endpoints");
+
+        this.bankName = bankName;
+        this.delegate = delegate;
+        this.endpoints = endpointUrls.stream().map(Endpoint::new).toList();
+        this.policy = policy;
+        this.failureThreshold = failureThreshold;
+        this.ejectionMillis = ejectionMillis;
+    }
+
+    /**
+     * Sends a call to one of the bank's endpoints, keeping the path and query of the original request.
+     *
+     * @param request the request, targeting the bank's logical URL
+     * @param options the options of the request
+     * @return the response of the endpoint
+     * @throws IOException if the call fails
+     */
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        URI uri = URI.create(request.url());
+        String pathAndQuery = uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+
+        List<Endpoint> tried = new ArrayList<>();
+        while (true) {
+            Endpoint endpoint = choose(tried);
+            Request endpointRequest = Request.create(request.httpMethod(), endpoint.baseUrl + pathAndQuery,
+                    request.headers(), request.body(), request.charset(), request.requestTemplate());
+
+            endpoint.outstanding.incrementAndGet();
+            try {
+                Response response = delegate.execute(endpointRequest, options);
+                if (isUnavailable(response.status()))
+                    onFailure(endpoint);
+                else
+                    endpoint.consecutiveFailures.set(0);
+
+                return response;
+            } catch (ConnectException e) {
+                onFailure(endpoint);
+                tried.add(endpoint);
+                if (tried.size() == endpoints.size())
+                    throw e;
+
+                log.warn("Endpoint {} of bank {} refused the connection, retrying on another endpoint", endpoint.baseUrl, bankName);
+            } catch (IOException e) {
+                onFailure(endpoint);
+                throw e;
+            } finally {
+                endpoint.outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Chooses the endpoint of a call among the endpoints not tried yet, preferring those not ejected.
+     *
+     * @param tried the endpoints the call already failed on
+     * @return the chosen endpoint
+     */
+    private Endpoint choose(List<Endpoint> tried) {
+        long now = System.currentTimeMillis();
+
+        List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints)
+            if (!tried.contains(endpoint) && endpoint.ejectedUntil <= now)
+                candidates.add(endpoint);
+
+        if (candidates.isEmpty())
+            for (Endpoint endpoint : endpoints)
+                if (!tried.contains(endpoint))
+                    candidates.add(endpoint);
+
+        int start = Math.floorMod(next.getAndIncrement(), candidates.size());
+        if (policy == Policy.ROUND_ROBIN)
+            return candidates.get(start);
+
+        // Least outstanding requests, starting from a rotating index so that ties are spread evenly
+        Endpoint chosen = candidates.get(start);
+        for (int i = 1; i < candidates.size(); i++) {
+            Endpoint candidate = candidates.get((start + i) % candidates.size());
+            if (candidate.outstanding.get() < chosen.outstanding.get())
+                chosen = candidate;
+        }
+        return chosen;
+    }
+
+    /**
+     * Records a failed call on an endpoint, ejecting it once it reaches the failure threshold.
+     *
+     * @param endpoint the endpoint the call failed on
+     */
+    private void onFailure(Endpoint endpoint) {
+        if (endpoint.consecutiveFailures.incrementAndGet() < failureThreshold)
+            return;
+
+        endpoint.consecutiveFailures.set(0);
+        endpoint.ejectedUntil = System.currentTimeMillis() + ejectionMillis;
+        log.warn("Ejected endpoint {} of bank {} for {} ms", endpoint.baseUrl, bankName, ejectionMillis);
+    }
+
+    /**
+     * Checks whether a response status shows that the endpoint, rather than the request, is at fault.
+     *
+     * @param status the status of the response
+     * @return true if the endpoint is unavailable
+     */
+    private static boolean isUnavailable(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * An endpoint of the bank and its health.
+     */
+    private static final class Endpoint {
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long ejectedUntil;
+
+        private Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        }
+    }
+}
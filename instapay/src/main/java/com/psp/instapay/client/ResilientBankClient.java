@@ -0,0 +1,148 @@
+package com.psp.instapay.client;
+
+import com.psp.instapay.exception.BankUnavailableException;
+import com.psp.instapay.exception.DeadlineExceededException;
+import com.psp.instapay.model.dto.request.BatchCommitRequest;
+import com.psp.instapay.model.dto.request.BatchPrepareRequest;
+import com.psp.instapay.model.dto.request.GetAccountsRequest;
+import com.psp.instapay.model.dto.request.InternalTransferRequest;
+import com.psp.instapay.model.dto.request.TransactionRequest;
+import com.psp.instapay.model.dto.response.GetAccountsResponse;
+import com.psp.instapay.model.dto.response.InternalTransferResponse;
+import com.psp.instapay.model.dto.response.ResponseDto;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+import com.psp.instapay.util.CircuitBreaker;
+import feign.FeignException;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * BankClient decorator isolating the callers from a slow or failing bank.
+ * A bulkhead bounds the number of calls in progress against the bank, so a slow bank cannot hold every
+ * request thread and database connection; a call that cannot get a slot within a short wait is rejected.
+ * A circuit breaker rejects every call while the bank keeps failing, and probes it again once it has been
+ * open for a while. Rejected calls throw a BankUnavailableException without contacting the bank.
+ * Error responses from the bank (4xx) show that the bank is up and do not count as failures, and neither
+ * do calls abandoned before being sent because their deadline had passed.
+ */
+public class ResilientBankClient implements BankClient {
+    private final BankClient delegate;
+    private final String bankName;
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMillis;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Creates a resilient client around the given bank client.
+     *
+     * @param delegate the bank client sending the requests
+     * @param bankName the name of the bank, used in error messages
+     * @param maxConcurrentCalls the maximum number of calls in progress against the bank
+     * @param bulkheadWaitMillis how long, in milliseconds, a call waits for a free slot before it is rejected
+     * @param circuitBreaker the circuit breaker of the bank
+     */
+    public ResilientBankClient(BankClient delegate, String bankName, int maxConcurrentCalls, long bulkheadWaitMillis,
+                               CircuitBreaker circuitBreaker) {
+        this.delegate = delegate;
+        this.bankName = bankName;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Double getBalance(String accountNumber) {
+        return call(() -> delegate.getBalance(accountNumber));
+    }
+
+    @Override
+    public GetAccountsResponse getAccounts(GetAccountsRequest getAccountsRequest) {
+        return call(() -> delegate.getAccounts(getAccountsRequest));
+    }
+
+    @Override
+    public ResponseEntity<ResponseDto> getCustomerByPhoneNumber(String phoneNumber) {
+        return call(() -> delegate.getCustomerByPhoneNumber(phoneNumber));
+    }
+
+    @Override
+    public TransactionResponse prepareTransaction(TransactionRequest request) {
+        return call(() -> delegate.prepareTransaction(request));
+    }
+
+    @Override
+    public TransactionResponse commitTransaction(Long transactionId) {
+        return call(() -> delegate.commitTransaction(transactionId));
+    }
+
+    @Override
+    public TransactionResponse rollbackTransaction(Long transactionId) {
+        return call(() -> delegate.rollbackTransaction(transactionId));
+    }
+
+    @Override
+    public List<TransactionResponse> prepareTransactions(List<BatchPrepareRequest> requests) {
+        return call(() -> delegate.prepareTransactions(requests));
+    }
+
+    @Override
+    public List<TransactionResponse> commitTransactions(List<BatchCommitRequest> requests) {
+        return call(() -> delegate.commitTransactions(requests));
+    }
+
+    @Override
+    public List<TransactionResponse> rollbackTransactions(List<Long> transactionIds) {
+        return call(() -> delegate.rollbackTransactions(transactionIds));
+    }
+
+    @Override
+    public InternalTransferResponse transferInternally(InternalTransferRequest request) {
+        return call(() -> delegate.transferInternally(request));
+    }
+
+    /**
+     * Sends a call through the circuit breaker and the bulkhead.
+     *
+     * @param call the call to send
+     * @param <T> the type of the bank's answer
+     * @return the bank's answer
+     * @throws BankUnavailableException if the circuit breaker is open or the bulkhead is full
+     */
+    private <T> T call(Supplier<T> call) {
+        if (!circuitBreaker.tryAcquire())
+            throw new BankUnavailableException(bankName + " bank is unavailable, please try again later");
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            circuitBreaker.onIgnored();
+            throw new BankUnavailableException(bankName + " bank has too many requests in progress, please try again later");
+        }
+
+        try {
+            T result = call.get();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (FeignException.FeignClientException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (DeadlineExceededException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+}
@@ -1,23 +1,27 @@
 package com.psp.instapay.client.banks;
 
 import com.psp.instapay.client.BankClient;
-import com.psp.instapay.config.CibClientConfig;
+import com.psp.instapay.model.dto.request.InternalTransferRequest;
 import com.psp.instapay.model.dto.request.TransactionRequest;
+import com.psp.instapay.model.dto.request.BatchCommitRequest;
+import com.psp.instapay.model.dto.request.BatchPrepareRequest;
 import com.psp.instapay.model.dto.request.GetAccountsRequest;
 import com.psp.instapay.model.dto.response.ResponseDto;
 import com.psp.instapay.model.dto.response.GetAccountsResponse;
+import com.psp.instapay.model.dto.response.InternalTransferResponse;
 import com.psp.instapay.model.dto.response.TransactionResponse;
-import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+
 /**
- * Feign client interface for interacting with the CIB bank API.
- * Extends the BankClient interface to provide specific implementations for CIB bank.
+ * Feign client interface for interacting with a bank API.
+ * Every bank exposes the same API, so a client of this interface is built at runtime for each bank
+ * registered in the BankClientFactory, on top of a transport balancing the calls across the bank's endpoints.
  */
-@FeignClient(name = "cib", url = "http://localhost:8090", configuration = CibClientConfig.class)
-public interface CIBClient extends BankClient {
+public interface BankFeignClient extends BankClient {
 
     /**
      * Retrieves the balance of a specific account.
@@ -78,4 +82,44 @@ public interface CIBClient extends BankClient {
     @Override
     @PostMapping("/api/v1/transactions/rollback")
     TransactionResponse rollbackTransaction(@RequestBody Long transactionId);
+
+    /**
+     * Prepares a batch of transactions in a single request.
+     *
+     * @param requests the transaction requests containing transaction details and the time left to prepare each
+     * @return the TransactionResponse of each request, in request order
+     */
+    @Override
+    @PostMapping("/api/v1/transactions/prepare-batch")
+    List<TransactionResponse> prepareTransactions(@RequestBody List<BatchPrepareRequest> requests);
+
+    /**
+     * Commits a batch of transactions in a single request.
+     *
+     * @param requests the IDs of the transactions to commit
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    @Override
+    @PostMapping("/api/v1/transactions/commit-batch")
+    List<TransactionResponse> commitTransactions(@RequestBody List<BatchCommitRequest> requests);
+
+    /**
+     * Rolls back a batch of transactions in a single request.
+     *
+     * @param transactionIds the IDs of the transactions to roll back
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    @Override
+    @PostMapping("/api/v1/transactions/rollback-batch")
+    List<TransactionResponse> rollbackTransactions(@RequestBody List<Long> transactionIds);
+
+    /**
+     * Transfers money between two accounts of the bank in a single request and database transaction.
+     *
+     * @param request the internal transfer request containing the accounts and the amount
+     * @return an InternalTransferResponse containing the outcome of the transfer
+     */
+    @Override
+    @PostMapping("/api/v1/transactions/internal-transfer")
+    InternalTransferResponse transferInternally(@RequestBody InternalTransferRequest request);
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.psp.instapay.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration class for the executors used by the transaction flow.
+ * Provides the executor on which the calls to the participating banks are fanned out,
+ * the bounded executor on which asynchronously accepted transfers are processed,
+ * and the executor on which the transfers of bulk transfers are pipelined.
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Creates the executor used to call the source and destination banks concurrently.
+     * Every bank call runs on its own virtual thread, so waiting on a slow bank only parks
+     * a virtual thread instead of pinning a platform thread.
+     *
+     * @return an ExecutorService that starts a new virtual thread for each task
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService bankCallExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Creates the executor that runs the transfers of bulk transfers.
+     * Concurrency is bounded per destination bank by the bulk transfer service, so each transfer can
+     * simply run on its own virtual thread.
+     *
+     * @return an ExecutorService that starts a new virtual thread for each task
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService bulkTransferExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Creates the bounded executor that runs the 2PC of asynchronously accepted transfers.
+     * Both the number of workers and the number of waiting transfers are capped, so a burst of
+     * transfers is rejected early instead of piling up in memory.
+     *
+     * @param poolSize the number of transfers processed concurrently
+     * @param queueCapacity the number of accepted transfers allowed to wait for a free worker
+     * @return the configured ThreadPoolTaskExecutor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor transferExecutor(
+            @Value("${transaction.async.pool-size}") int poolSize,
+            @Value("${transaction.async.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("transfer-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Creates the transaction template used to run the steps of a transfer outside the request thread.
+     * Runs at the default READ COMMITTED isolation: concurrent changes of a transaction are detected by its version,
+     * and the rows a transfer must hold while it checks them are locked explicitly.
+     *
+     * @param transactionManager the transaction manager of the application
+     * @return the configured TransactionTemplate
+     */
+    @Bean
+    public TransactionTemplate transferTransactionTemplate(PlatformTransactionManager transactionManager) {
+        return new TransactionTemplate(transactionManager);
+    }
+}
@@ -0,0 +1,77 @@
+package com.psp.instapay.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+/**
+ * Factory of the pooled HTTP clients used as the transport of the bank Feign clients.
+ * Each bank gets its own keep-alive connection pool, so a burst against one bank cannot exhaust the
+ * connections of another, and every 2PC call reuses an open connection instead of paying a new handshake.
+ */
+public final class BankHttpClients {
+
+    /**
+     * How long an idle pooled connection may stay unused before it is checked before reuse.
+     */
+    private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(2);
+
+    /**
+     * The prefix of the names of the connection pool metrics.
+     */
+    private static final String POOL_METRICS_PREFIX = "httpcomponents.httpclient.pool";
+
+    private BankHttpClients() {
+    }
+
+    /**
+     * Creates a pooled HTTP client for a bank and publishes the metrics of its connection pool,
+     * replacing those of a previous pool of the bank.
+     * Automatic retries are disabled: a repeated 2PC call is the coordinator's decision, not the transport's.
+     *
+     * @param bankName the name of the bank, used to tag the pool metrics
+     * @param maxConnections the maximum number of open connections to each endpoint of the bank
+     * @param endpointCount the number of endpoints of the bank
+     * @param connectTimeout the maximum time, in milliseconds, to establish a connection
+     * @param responseTimeout the maximum time, in milliseconds, to wait for a response
+     * @param idleTimeout the time, in milliseconds, after which an idle connection is closed
+     * @param meterRegistry the registry the pool metrics are published to
+     * @return a pooled HTTP client
+     */
+    public static CloseableHttpClient pooled(String bankName, int maxConnections, int endpointCount, long connectTimeout,
+                                             long responseTimeout, long idleTimeout, MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections * endpointCount)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                        .setSocketTimeout(Timeout.ofMilliseconds(responseTimeout))
+                        .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+                        .build())
+                .build();
+
+        // A bank whose endpoints changed gets a new pool; drop the metrics of the previous one so they are bound to the new pool
+        meterRegistry.getMeters().stream()
+                .filter(meter -> meter.getId().getName().startsWith(POOL_METRICS_PREFIX)
+                        && bankName.equals(meter.getId().getTag("httpclient")))
+                .forEach(meterRegistry::remove);
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, bankName).bindTo(meterRegistry);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout))
+                .disableAutomaticRetries()
+                .build();
+    }
+}
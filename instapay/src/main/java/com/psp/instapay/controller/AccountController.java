@@ -4,6 +4,7 @@ import com.psp.instapay.model.dto.request.AccountDetailsRequest;
 import com.psp.instapay.model.dto.response.ResponseDto;
 import com.psp.instapay.model.service.AccountService;
 import com.psp.instapay.model.dto.request.GetAccountsRequest;
+import com.psp.instapay.model.dto.request.TransactionHistoryRequest;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -122,18 +123,19 @@ public class AccountController {
     }
 
     /**
-     * Retrieves the transaction history for a specific account.
+     * Retrieves one page of the transaction history for a specific account, newest first.
+     * The next page is requested with the cursor returned with the previous one.
      *
-     * @param accountDetailsRequest the request containing account details
-     * @return a ResponseEntity containing an ResponseDto with the transaction history
+     * @param request the request containing the account number, and the optional cursor, page size and filters
+     * @return a ResponseEntity containing an ResponseDto with the page of the transaction history
      */
     @PostMapping("/transactions/history")
-    public ResponseEntity<ResponseDto> getTransactionHistory(@Valid @RequestBody AccountDetailsRequest accountDetailsRequest) {
+    public ResponseEntity<ResponseDto> getTransactionHistory(@Valid @RequestBody TransactionHistoryRequest request) {
         return ResponseEntity.ok(
                 ResponseDto.builder()
                         .status(HttpStatus.OK)
                         .message("Transaction history retrieved successfully")
-                        .data(accountService.getAccountTransactionHistory(accountDetailsRequest))
+                        .data(accountService.getAccountTransactionHistory(request))
                         .build()
         );
     }
@@ -0,0 +1,40 @@
+package com.psp.instapay.controller;
+
+import com.psp.instapay.model.dto.response.ResponseDto;
+import com.psp.instapay.model.service.BankService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for managing the banks known to the application.
+ * Provides an endpoint for reloading the banks after the bank table changed.
+ */
+@RestController
+@RequestMapping("/api/banks")
+@RequiredArgsConstructor
+public class BankController {
+    private final BankService bankService;
+
+    /**
+     * Reloads the banks and the clients of their APIs from the bank table.
+     * This endpoint is restricted to users with the 'ADMIN' authority.
+     *
+     * @return a ResponseEntity containing an ResponseDto with the names of the registered banks
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @PostMapping("/refresh")
+    public ResponseEntity<ResponseDto> refreshBanks() {
+        return ResponseEntity.ok(
+                ResponseDto.builder()
+                        .status(HttpStatus.OK)
+                        .data(bankService.refreshBanks())
+                        .message("Banks refreshed successfully")
+                        .build()
+        );
+    }
+}
@@ -1,57 +1,206 @@
 package com.psp.instapay.controller;
 
+import com.psp.instapay.model.dto.request.BulkTransferRequest;
 import com.psp.instapay.model.dto.request.SendMoneyRequest;
+import com.psp.instapay.model.dto.request.TransactionHistoryRequest;
 import com.psp.instapay.model.dto.response.ResponseDto;
+import com.psp.instapay.model.enums.ExportFormat;
+import com.psp.instapay.model.service.BulkTransferService;
+import com.psp.instapay.model.service.IdempotencyService;
 import com.psp.instapay.model.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST controller for managing transaction-related operations.
- * Provides endpoints for sending money and retrieving transaction history.
+ * Provides endpoints for sending money, retrieving transaction history and exporting it.
  */
 @RestController
 @RequestMapping("/api/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
     private final TransactionService transactionService;
+    private final BulkTransferService bulkTransferService;
+    private final IdempotencyService idempotencyService;
 
     /**
      * Sends money based on the provided request details.
+     * A request retried with the same Idempotency-Key header returns the outcome of the original request
+     * instead of sending the money again.
      *
+     * @param idempotencyKey the optional idempotency key chosen by the client
      * @param request the SendMoneyRequest containing transaction details
      * @return a ResponseEntity containing an ResponseDto with the transaction status and details
      */
     @PostMapping("/send")
-    public ResponseEntity<ResponseDto> sendMoney(@Valid @RequestBody SendMoneyRequest request) {
+    public ResponseEntity<ResponseDto> sendMoney(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                 @Valid @RequestBody SendMoneyRequest request) {
         return ResponseEntity.ok(
                 ResponseDto.builder()
                         .status(HttpStatus.OK)
-                        .data(transactionService.sendMoney(request))
+                        .data(idempotencyService.sendMoney(request, idempotencyKey))
                         .message("Transaction successful")
                         .build()
         );
     }
 
     /**
-     * Retrieves the transaction history for the user.
+     * Accepts a money transfer for background processing and returns immediately.
+     * The transfer can be tracked through the status endpoint using the returned transaction ID.
      *
-     * @return a ResponseEntity containing an ResponseDto with the transaction history
+     * @param request the SendMoneyRequest containing transaction details
+     * @return a ResponseEntity with status 202 containing an ResponseDto with the accepted transaction's ID
+     */
+    @PostMapping("/send-async")
+    public ResponseEntity<ResponseDto> sendMoneyAsync(@Valid @RequestBody SendMoneyRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                ResponseDto.builder()
+                        .status(HttpStatus.ACCEPTED)
+                        .data(transactionService.sendMoneyAsync(request))
+                        .message("Transaction accepted")
+                        .build()
+        );
+    }
+
+    /**
+     * Retrieves the current status of a transaction.
+     *
+     * @param id the ID of the transaction
+     * @return a ResponseEntity containing an ResponseDto with the transaction's current status
+     */
+    @GetMapping("/{id}/status")
+    public ResponseEntity<ResponseDto> getTransactionStatus(@PathVariable Long id) {
+        return ResponseEntity.ok(
+                ResponseDto.builder()
+                        .status(HttpStatus.OK)
+                        .data(transactionService.getTransactionStatus(id))
+                        .message("Transaction status retrieved successfully")
+                        .build()
+        );
+    }
+
+    /**
+     * Accepts a bulk transfer, such as a payroll run, of many transfers from one source account.
+     * The whole list is validated up front; the transfers are then processed in the background and
+     * their progress can be tracked through the bulk transfer endpoint using the returned ID.
+     *
+     * @param request the BulkTransferRequest containing the transfers to send
+     * @return a ResponseEntity with status 202 containing an ResponseDto with the accepted bulk transfer's ID
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<ResponseDto> submitBulkTransfer(@Valid @RequestBody BulkTransferRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                ResponseDto.builder()
+                        .status(HttpStatus.ACCEPTED)
+                        .data(bulkTransferService.submitBulkTransfer(request))
+                        .message("Bulk transfer accepted")
+                        .build()
+        );
+    }
+
+    /**
+     * Retrieves the progress of a bulk transfer and the status of each of its transfers.
+     *
+     * @param id the ID of the bulk transfer
+     * @return a ResponseEntity containing an ResponseDto with the bulk transfer's progress
+     */
+    @GetMapping("/bulk/{id}")
+    public ResponseEntity<ResponseDto> getBulkTransfer(@PathVariable Long id) {
+        return ResponseEntity.ok(
+                ResponseDto.builder()
+                        .status(HttpStatus.OK)
+                        .data(bulkTransferService.getBulkTransfer(id))
+                        .message("Bulk transfer retrieved successfully")
+                        .build()
+        );
+    }
+
+    /**
+     * Retrieves the queue of transfers of every account with transfers in progress: its depth and how long its
+     * transfers wait for their turn.
+     * This endpoint is restricted to users with the 'ADMIN' authority.
+     *
+     * @return a ResponseEntity containing an ResponseDto with the queue of each busy account
+     */
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/queues")
+    public ResponseEntity<ResponseDto> getAccountQueues() {
+        return ResponseEntity.ok(
+                ResponseDto.builder()
+                        .status(HttpStatus.OK)
+                        .data(transactionService.getAccountQueues())
+                        .message("Account queues retrieved successfully")
+                        .build()
+        );
+    }
+
+    /**
+     * Retrieves one page of the transaction history for the user, newest first.
+     * The next page is requested with the cursor returned with the previous one.
+     *
+     * @param request the optional cursor, page size and filters of the page
+     * @return a ResponseEntity containing an ResponseDto with the page of the transaction history
      */
     @PostMapping("/history")
-    public ResponseEntity<ResponseDto> getTransactionHistory() {
+    public ResponseEntity<ResponseDto> getTransactionHistory(@Valid @RequestBody(required = false) TransactionHistoryRequest request) {
         return ResponseEntity.ok(
                 ResponseDto.builder()
                         .status(HttpStatus.OK)
-                        .data(transactionService.getTransactionHistory())
+                        .data(transactionService.getTransactionHistory(request))
                         .message("Transaction history retrieved successfully")
                         .build()
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Exports the whole transaction history of the user, newest first, as a file streamed while it is read.
+     * The export is written from a forward-only cursor, so it can be of any size.
+     *
+     * @param format the format of the export, csv or ndjson
+     * @param gzip whether the export is compressed with gzip
+     * @return a ResponseEntity streaming the export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactionHistory(@RequestParam(defaultValue = "csv") String format,
+                                                                          @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        StreamingResponseBody body = out -> {
+            if (!gzip) {
+                transactionService.exportTransactionHistory(exportFormat, out);
+                return;
+            }
+
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+            transactionService.exportTransactionHistory(exportFormat, compressed);
+            compressed.finish();
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions." + exportFormat.getExtension())
+                        .build()
+                        .toString());
+        if (gzip)
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        return response.body(body);
+    }
+}
@@ -0,0 +1,450 @@
+package com.psp.instapay.coordinator;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of the 2PC coordinator.
+ * Records are appended to fixed-size, memory-mapped segment files. The PREPARED record, which carries the IDs
+ * of the prepared legs, and the COMMIT decision are forced to disk; the END record is written lazily.
+ * Following the presumed-abort protocol, a transaction without a durable COMMIT record is treated as aborted
+ * and the legs of its PREPARED record are rolled back. A durable COMMIT is final and never overridden.
+ * Concurrent forces are batched, so a single flush makes the decisions of all waiting transactions durable.
+ * A segment is deleted once it is full and every transaction with a record in it has ended.
+ */
+@Slf4j
+@Component
+public class CoordinatorLog {
+
+    /**
+     * The size of a record on disk: type, six longs, checksum, and padding.
+     */
+    private static final int RECORD_SIZE = 64;
+
+    /**
+     * The offset of the checksum within a record, which covers every byte before it.
+     */
+    private static final int CHECKSUM_OFFSET = 1 + 6 * Long.BYTES;
+
+    private static final String SEGMENT_PREFIX = "coordinator-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * The directory holding the segment files.
+     * Loaded from the application properties.
+     */
+    @Value("${coordinator.log.directory}")
+    private String directory;
+
+    /**
+     * The size, in bytes, of a newly created segment file.
+     * Loaded from the application properties.
+     */
+    @Value("${coordinator.log.segment-size}")
+    private int segmentSize;
+
+    /**
+     * Guards appends, the active segment, and the bookkeeping of open transactions.
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /**
+     * Ensures a single thread flushes the active segment at a time; the others wait and reuse its flush.
+     */
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    /**
+     * The segments holding records of every transaction that has not ended yet.
+     */
+    private final Map<Long, List<Segment>> openTransactions = new HashMap<>();
+
+    /**
+     * The latest record of every transaction left unfinished by the previous run and not ended since.
+     */
+    private final Map<Long, CoordinatorRecord> inDoubtRecords = new LinkedHashMap<>();
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private Path logDirectory;
+    private Segment activeSegment;
+    private long appendedSequence;
+    private volatile long durableSequence;
+
+    /**
+     * Replays the existing segments to find the transactions left in doubt and opens a new active segment.
+     *
+     * @throws IOException If the log directory or one of its segments cannot be read or created.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        logDirectory = Path.of(directory);
+        Files.createDirectories(logDirectory);
+
+        List<Path> segmentPaths;
+        try (Stream<Path> files = Files.list(logDirectory)) {
+            segmentPaths = files
+                    .filter(CoordinatorLog::isSegment)
+                    .sorted(Comparator.comparingLong(CoordinatorLog::sequenceOf))
+                    .toList();
+        }
+
+        Map<Long, CoordinatorRecord> latestRecords = new LinkedHashMap<>();
+        long nextSequence = 0;
+        for (Path path : segmentPaths) {
+            Segment segment = Segment.open(path, sequenceOf(path));
+            replay(segment, latestRecords);
+            segment.sealed = true;
+            segments.add(segment);
+            nextSequence = segment.sequence + 1;
+        }
+
+        for (Segment segment : List.copyOf(segments)) {
+            if (segment.openTransactions == 0)
+                delete(segment);
+        }
+
+        activeSegment = Segment.create(logDirectory, nextSequence, segmentSize);
+        segments.add(activeSegment);
+        inDoubtRecords.putAll(latestRecords);
+
+        log.info("Coordinator log opened at {} with {} in-doubt transactions", logDirectory, inDoubtRecords.size());
+    }
+
+    /**
+     * Flushes the active segment and releases all segments.
+     */
+    @PreDestroy
+    public void close() {
+        appendLock.lock();
+        try {
+            activeSegment.buffer.force();
+            for (Segment segment : segments)
+                segment.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the latest record of every transaction the previous run did not finish.
+     * A transaction stays in this list until its END record is written.
+     *
+     * @return The in-doubt records, in log order.
+     */
+    public List<CoordinatorRecord> getInDoubtRecords() {
+        appendLock.lock();
+        try {
+            return List.copyOf(inDoubtRecords.values());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Records that both banks prepared their legs of a transaction and waits until it is durable,
+     * so that the legs are rolled back by recovery if the coordinator stops before its decision.
+     *
+     * @param transactionId The ID of the transaction.
+     * @param sourceBankId The ID of the source bank.
+     * @param sourceBankTransactionId The ID of the withdrawal leg.
+     * @param destinationBankId The ID of the destination bank.
+     * @param destinationBankTransactionId The ID of the deposit leg.
+     */
+    public void logPrepared(long transactionId, long sourceBankId, long sourceBankTransactionId,
+                            long destinationBankId, long destinationBankTransactionId) {
+        force(append(new CoordinatorRecord(CoordinatorRecordType.PREPARED, transactionId,
+                sourceBankId, sourceBankTransactionId, destinationBankId, destinationBankTransactionId,
+                System.currentTimeMillis())));
+    }
+
+    /**
+     * Records the decision to commit a transaction and waits until it is durable.
+     *
+     * @param transactionId The ID of the transaction.
+     * @param sourceBankId The ID of the source bank.
+     * @param sourceBankTransactionId The ID of the withdrawal leg.
+     * @param destinationBankId The ID of the destination bank.
+     * @param destinationBankTransactionId The ID of the deposit leg.
+     */
+    public void logCommit(long transactionId, long sourceBankId, long sourceBankTransactionId,
+                          long destinationBankId, long destinationBankTransactionId) {
+        force(append(new CoordinatorRecord(CoordinatorRecordType.COMMIT, transactionId,
+                sourceBankId, sourceBankTransactionId, destinationBankId, destinationBankTransactionId,
+                System.currentTimeMillis())));
+    }
+
+    /**
+     * Records that a transaction is finished and its outcome is stored in the database. The record is not forced.
+     *
+     * @param transactionId The ID of the transaction.
+     */
+    public void logEnd(long transactionId) {
+        append(new CoordinatorRecord(CoordinatorRecordType.END, transactionId, 0, 0, 0, 0,
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * Appends a record to the active segment, rolling over to a new segment when it is full.
+     *
+     * @param record The record to append.
+     * @return The sequence number of the appended record.
+     */
+    private long append(CoordinatorRecord record) {
+        byte[] bytes = encode(record);
+
+        appendLock.lock();
+        try {
+            if (activeSegment.position + RECORD_SIZE > activeSegment.capacity)
+                roll();
+
+            activeSegment.buffer.put(activeSegment.position, bytes);
+            activeSegment.position += RECORD_SIZE;
+            track(record, activeSegment);
+
+            return ++appendedSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record with the given sequence number is on disk.
+     * The first waiting thread flushes everything appended so far, which also covers the records of the
+     * threads queued behind it, so they return without flushing again.
+     *
+     * @param sequence The sequence number of the record.
+     */
+    private void force(long sequence) {
+        if (durableSequence >= sequence)
+            return;
+
+        forceLock.lock();
+        try {
+            if (durableSequence >= sequence)
+                return;
+
+            Segment segment;
+            long target;
+            appendLock.lock();
+            try {
+                segment = activeSegment;
+                target = appendedSequence;
+            } finally {
+                appendLock.unlock();
+            }
+
+            segment.buffer.force();
+            durableSequence = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Seals the active segment and starts a new one. Must be called while holding the append lock.
+     */
+    private void roll() {
+        Segment previous = activeSegment;
+        previous.buffer.force();
+        previous.sealed = true;
+
+        try {
+            activeSegment = Segment.create(logDirectory, previous.sequence + 1, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create coordinator log segment", e);
+        }
+        segments.add(activeSegment);
+
+        if (previous.openTransactions == 0)
+            delete(previous);
+    }
+
+    /**
+     * Updates the bookkeeping of open transactions for a record written to a segment.
+     * An END record releases every segment holding records of the transaction.
+     *
+     * @param record The record written.
+     * @param segment The segment it was written to.
+     */
+    private void track(CoordinatorRecord record, Segment segment) {
+        if (record.getType() == CoordinatorRecordType.END) {
+            inDoubtRecords.remove(record.getTransactionId());
+
+            List<Segment> touched = openTransactions.remove(record.getTransactionId());
+            if (touched == null)
+                return;
+
+            for (Segment touchedSegment : touched) {
+                touchedSegment.openTransactions--;
+                if (touchedSegment.sealed && touchedSegment.openTransactions == 0)
+                    delete(touchedSegment);
+            }
+            return;
+        }
+
+        List<Segment> touched = openTransactions.computeIfAbsent(record.getTransactionId(), id -> new ArrayList<>(2));
+        if (!touched.contains(segment)) {
+            touched.add(segment);
+            segment.openTransactions++;
+        }
+    }
+
+    /**
+     * Reads the records of a segment up to the first empty or torn record.
+     *
+     * @param segment The segment to read.
+     * @param latestRecords The latest record of every unfinished transaction, updated in place.
+     */
+    private void replay(Segment segment, Map<Long, CoordinatorRecord> latestRecords) {
+        byte[] bytes = new byte[RECORD_SIZE];
+        while (segment.position + RECORD_SIZE <= segment.capacity) {
+            segment.buffer.get(segment.position, bytes);
+
+            CoordinatorRecord record = decode(bytes);
+            if (record == null)
+                break;
+
+            segment.position += RECORD_SIZE;
+            track(record, segment);
+
+            if (record.getType() == CoordinatorRecordType.END)
+                latestRecords.remove(record.getTransactionId());
+            else
+                latestRecords.put(record.getTransactionId(), record);
+        }
+    }
+
+    /**
+     * Closes a segment that no longer holds records of open transactions and deletes its file.
+     *
+     * @param segment The segment to delete.
+     */
+    private void delete(Segment segment) {
+        segment.close();
+        segments.remove(segment);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Failed to delete coordinator log segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    /**
+     * Serializes a record, followed by a CRC32 checksum of its content.
+     *
+     * @param record The record to serialize.
+     * @return The bytes of the record.
+     */
+    private static byte[] encode(CoordinatorRecord record) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.put(record.getType().getCode());
+        buffer.putLong(record.getTransactionId());
+        buffer.putLong(record.getSourceBankId());
+        buffer.putLong(record.getSourceBankTransactionId());
+        buffer.putLong(record.getDestinationBankId());
+        buffer.putLong(record.getDestinationBankTransactionId());
+        buffer.putLong(record.getTimestamp());
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, CHECKSUM_OFFSET);
+        buffer.putInt((int) checksum.getValue());
+
+        return buffer.array();
+    }
+
+    /**
+     * Deserializes a record, verifying its checksum.
+     *
+     * @param bytes The bytes of the record.
+     * @return The record, or null if the slot is empty or the record was torn by a crash.
+     */
+    private static CoordinatorRecord decode(byte[] bytes) {
+        CoordinatorRecordType type = CoordinatorRecordType.fromCode(bytes[0]);
+        if (type == null)
+            return null;
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 0, CHECKSUM_OFFSET);
+        if (buffer.getInt(CHECKSUM_OFFSET) != (int) checksum.getValue())
+            return null;
+
+        buffer.position(1);
+        return new CoordinatorRecord(type,
+                buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * A memory-mapped segment file of the log.
+     */
+    private static final class Segment {
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int position;
+        private int openTransactions;
+        private boolean sealed;
+
+        private Segment(long sequence, Path path, FileChannel channel, int capacity) throws IOException {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.capacity = capacity;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        private static Segment open(Path path, long sequence) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(sequence, path, channel, (int) channel.size());
+        }
+
+        private static Segment create(Path directory, long sequence, int capacity) throws IOException {
+            Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(sequence, path, channel, capacity);
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close coordinator log segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
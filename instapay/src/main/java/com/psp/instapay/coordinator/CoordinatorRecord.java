@@ -0,0 +1,51 @@
+package com.psp.instapay.coordinator;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A single record of the coordinator log.
+ * Captures a 2PC decision together with everything needed to drive it to completion after a crash:
+ * the banks taking part in the transaction and the IDs of the legs they prepared.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CoordinatorRecord {
+
+    /**
+     * The kind of record.
+     */
+    private final CoordinatorRecordType type;
+
+    /**
+     * The ID of the instapay transaction the record belongs to.
+     */
+    private final long transactionId;
+
+    /**
+     * The ID of the source bank, or 0 for END records.
+     */
+    private final long sourceBankId;
+
+    /**
+     * The ID of the withdrawal leg prepared by the source bank, or 0 for END records.
+     */
+    private final long sourceBankTransactionId;
+
+    /**
+     * The ID of the destination bank, or 0 for END records.
+     */
+    private final long destinationBankId;
+
+    /**
+     * The ID of the deposit leg prepared by the destination bank, or 0 for END records.
+     */
+    private final long destinationBankTransactionId;
+
+    /**
+     * The time the record was written, in milliseconds since the epoch.
+     */
+    private final long timestamp;
+}
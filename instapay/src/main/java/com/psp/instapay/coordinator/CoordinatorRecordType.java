@@ -0,0 +1,48 @@
+package com.psp.instapay.coordinator;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Enum representing the kinds of records written to the coordinator log.
+ * Each type is stored on disk by its code, so the codes must never change or be reused.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum CoordinatorRecordType {
+
+    /**
+     * Both banks prepared their legs. Forced to disk before the commit decision, so that recovery knows
+     * the legs of a transaction interrupted before its decision and rolls them back.
+     */
+    PREPARED((byte) 1),
+
+    /**
+     * The decision to commit. Forced to disk before any bank is asked to commit.
+     */
+    COMMIT((byte) 2),
+
+    /**
+     * The transaction is finished and its outcome is stored in the database. Written lazily.
+     */
+    END((byte) 4);
+
+    /**
+     * The code identifying the record type on disk.
+     */
+    private final byte code;
+
+    /**
+     * Returns the record type stored under the given code.
+     *
+     * @param code The code read from the log.
+     * @return The matching record type, or null if the code is unknown.
+     */
+    public static CoordinatorRecordType fromCode(byte code) {
+        for (CoordinatorRecordType type : values()) {
+            if (type.code == code)
+                return type;
+        }
+        return null;
+    }
+}
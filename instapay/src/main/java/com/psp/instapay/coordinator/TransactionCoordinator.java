@@ -0,0 +1,858 @@
+package com.psp.instapay.coordinator;
+
+import com.psp.instapay.client.BankClient;
+import com.psp.instapay.client.BankClientFactory;
+import com.psp.instapay.exception.AccountNotFoundException;
+import com.psp.instapay.exception.DeadlineExceededException;
+import com.psp.instapay.exception.TransactionException;
+import com.psp.instapay.model.dto.request.InternalTransferRequest;
+import com.psp.instapay.model.dto.request.TransactionRequest;
+import com.psp.instapay.model.dto.response.InternalTransferResponse;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+import com.psp.instapay.model.entity.Account;
+import com.psp.instapay.model.entity.Transaction;
+import com.psp.instapay.model.enums.TransactionStatus;
+import com.psp.instapay.model.enums.TransactionType;
+import com.psp.instapay.model.repository.AccountRepository;
+import com.psp.instapay.model.repository.TransactionRepository;
+import com.psp.instapay.util.AccountBalanceCache;
+import com.psp.instapay.util.Deadline;
+import com.psp.instapay.util.EncryptionUtil;
+import feign.FeignException;
+import feign.RetryableException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coordinator of the two-phase commit between the source and destination banks of a transaction.
+ * The transfer runs as a saga of short steps: the transaction row is reserved as INITIATED, the banks are called
+ * with no database transaction open, and the outcome is recorded in a short database transaction of its own,
+ * together with the balances reported by the banks. Prepared legs of a transfer that fails are compensated by
+ * rolling them back. A database connection is therefore only held for the few milliseconds of each write.
+ * The progress of the protocol is recorded in the CoordinatorLog instead of the transaction row:
+ * the row is written when the transaction is initiated and once more with its final outcome.
+ * The outcome is only recorded if the row is still in the status it was read in, so a transaction driven
+ * concurrently by the TransactionRecoveryDaemon is completed only once.
+ * After a crash, the transactions left in doubt are copied from the log to their rows and
+ * driven to completion by the TransactionRecoveryDaemon.
+ * Transfers between two accounts of the same bank skip the 2PC and are applied by that bank in a single call.
+ * Every transfer must reach its commit decision within an end-to-end deadline, carried to the banks with each
+ * prepare, so a degraded bank cannot hold a transfer before its decision for longer than the deadline.
+ * Once the commit is decided it is final: the commits are sent without the deadline, and a commit that does not
+ * complete is retried by the TransactionRecoveryDaemon instead of being rolled back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionCoordinator {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final BankClientFactory bankClientFactory;
+    private final EncryptionUtil encryptionUtil;
+    private final CoordinatorLog coordinatorLog;
+    private final ExecutorService bankCallExecutor;
+    private final TransactionTemplate transferTransactionTemplate;
+    private final AccountBalanceCache accountBalanceCache;
+
+    /**
+     * The maximum time, in milliseconds, to wait for both banks to answer a single 2PC phase.
+     * Loaded from the application properties.
+     */
+    @Value("${transaction.phase-timeout}")
+    private long phaseTimeout;
+
+    /**
+     * The maximum time, in milliseconds, a transfer may take from the start of its execution until both banks have committed.
+     * Loaded from the application properties.
+     */
+    @Value("${transaction.deadline}")
+    private long transferDeadline;
+
+    /**
+     * Runs the two-phase commit of an initiated transaction against the source and destination banks.
+     * Handles transaction preparation, commitment, and rollback in case of failure.
+     * A transaction between two accounts of the same bank is sent to that bank as a single internal transfer instead.
+     * The transaction runs within the configured deadline: a transaction that cannot reach the commit decision in time,
+     * or that a bank refuses to prepare because its deadline has passed, is rolled back and recorded as TIMEOUT.
+     * A transaction whose commit was decided is committed regardless of the deadline.
+     * Must be called outside a database transaction, with the accounts and banks of the transaction loaded:
+     * each step is recorded in a short database transaction of its own.
+     *
+     * @param transaction The INITIATED transaction to execute.
+     * @return A TransactionResponse containing the status and details of the completed transaction.
+     * @throws DeadlineExceededException If the transaction does not complete within its deadline.
+     * @throws IllegalStateException If called within a database transaction.
+     * @throws RuntimeException If any error occurs during the transaction process.
+     */
+    public TransactionResponse execute(Transaction transaction) {
+        requireNoTransaction("execute");
+
+        return Deadline.callWithin(transferDeadline, () -> executeWithinDeadline(transaction));
+    }
+
+    /**
+     * Runs the two-phase commit of an initiated transaction within the deadline of the current thread.
+     *
+     * @param transaction The INITIATED transaction to execute.
+     * @return A TransactionResponse containing the status and details of the completed transaction.
+     * @throws RuntimeException If any error occurs during the transaction process.
+     */
+    private TransactionResponse executeWithinDeadline(Transaction transaction) {
+        // Step 1: Create bank requests for both source and destination accounts
+        log.info("Creating bank requests for transaction: {}", transaction.getId());
+
+
+        // Encrypt the account numbers
+        String encryptedSourceAccountNumber = encryptionUtil.encrypt(transaction.getFromAccount().getAccountNumber());
+        String encryptedDestinationAccountNumber = encryptionUtil.encrypt(transaction.getToAccount().getAccountNumber());
+
+        TransactionRequest sourceBankRequest = createTransactionRequest(
+                encryptedSourceAccountNumber,
+                TransactionType.WITHDRAWAL,
+                transaction.getAmount());
+
+        TransactionRequest destinationBankRequest = createTransactionRequest(
+                encryptedDestinationAccountNumber,
+                TransactionType.DEPOSIT,
+                transaction.getAmount());
+
+        log.info("Bank requests created successfully for transaction: {}", transaction.getId());
+
+
+        // Step 2: Get the bank clients for both source and destination banks
+        log.info("Getting bank clients for transaction: {}", transaction.getId());
+
+        BankClient sourceBankClient;
+        BankClient destinationBankClient;
+        try {
+            sourceBankClient = getBankClient(transaction.getFromBank().getName());
+            destinationBankClient = getBankClient(transaction.getToBank().getName());
+        } catch (Exception e) {
+            log.error("Failed to get bank clients: {}", e.getMessage());
+
+            recordStatus(transaction, TransactionStatus.FAILED);
+
+            throw new RuntimeException("Failed to get bank clients");
+        }
+
+        log.info("Bank clients obtained successfully for transaction: {}", transaction.getId());
+
+
+        // Step 2.1: A transfer within one bank is applied by the bank in a single local transaction
+        if (transaction.getFromBank().getId().equals(transaction.getToBank().getId()))
+            return executeInternalTransfer(transaction, sourceBankClient,
+                    encryptedSourceAccountNumber, encryptedDestinationAccountNumber);
+
+
+        long transactionId = transaction.getId();
+        long sourceBankId = transaction.getFromBank().getId();
+        long destinationBankId = transaction.getToBank().getId();
+
+        CompletableFuture<TransactionResponse> sourcePrepare = null;
+        CompletableFuture<TransactionResponse> destinationPrepare = null;
+        Long sourceTransactionId;
+        Long destinationTransactionId;
+        try {
+            // Step 3: Request preparation from the source and destination banks concurrently and check their statuses
+            log.info("Requesting preparation from banks for transaction: {}", transactionId);
+
+            sourcePrepare = callBank(() -> requestPrepare(sourceBankClient, sourceBankRequest));
+            destinationPrepare = callBank(() -> requestPrepare(destinationBankClient, destinationBankRequest));
+            awaitPhaseWithinDeadline("preparation", sourcePrepare, destinationPrepare);
+
+            TransactionResponse sourceBankResponse = sourcePrepare.join();
+            TransactionStatus sourceBankStatus = sourceBankResponse.getStatus();
+            sourceTransactionId = sourceBankResponse.getTransactionId();
+
+            TransactionResponse destinationBankResponse = destinationPrepare.join();
+            TransactionStatus destinationBankStatus = destinationBankResponse.getStatus();
+            destinationTransactionId = destinationBankResponse.getTransactionId();
+
+            log.info("Banks responded successfully for transaction preparation: {}", transactionId);
+
+
+            log.info("Preparation statuses: source: {}, destination: {}", sourceBankStatus, destinationBankStatus);
+
+            if (sourceBankStatus.equals(TransactionStatus.TIMEOUT) || destinationBankStatus.equals(TransactionStatus.TIMEOUT)) {
+                log.error("Bank refused preparation past the deadline for transaction: {}", transactionId);
+
+                throw new DeadlineExceededException("Transaction preparation timed out");
+            }
+
+            if (!sourceBankStatus.equals(TransactionStatus.PREPARED) ||
+                    !destinationBankStatus.equals(TransactionStatus.PREPARED)) {
+                log.error("Preparation failed for transaction: {}", transactionId);
+
+                throw new TransactionException("Transaction preparation failed");
+            }
+
+
+            log.info("Transaction preparation completed successfully: {}", transactionId);
+
+            coordinatorLog.logPrepared(transactionId,
+                    sourceBankId, sourceTransactionId, destinationBankId, destinationTransactionId);
+
+
+            // Step 4: Make the commit decision durable, unless the deadline has passed
+            if (Deadline.isExpired()) {
+                log.error("Deadline passed before the commit decision for transaction: {}", transactionId);
+
+                throw new DeadlineExceededException("Transaction timed out before commit");
+            }
+
+            coordinatorLog.logCommit(transactionId,
+                    sourceBankId, sourceTransactionId, destinationBankId, destinationTransactionId);
+        } catch (Exception e) {
+            log.error("Transaction failed: {}", e.getMessage());
+
+            // A bank call cut short once the deadline has passed is a timeout as well
+            boolean timedOut = e instanceof DeadlineExceededException || e instanceof RetryableException && Deadline.isExpired();
+
+            // Without a durable COMMIT the transaction is presumed aborted, so nothing is logged
+            transaction.setSourceBankTransactionId(preparedLegId(sourcePrepare));
+            transaction.setDestinationBankTransactionId(preparedLegId(destinationPrepare));
+            try {
+                awaitPhase("rollback",
+                        rollbackLeg(sourceBankClient, sourcePrepare),
+                        rollbackLeg(destinationBankClient, destinationPrepare));
+            } catch (RuntimeException rollbackFailure) {
+                log.error("Rollback failed, leaving transaction to recovery: {}, {}", transactionId, rollbackFailure.getMessage());
+
+                recordStatus(transaction, TransactionStatus.ROLLING_BACK);
+                coordinatorLog.logEnd(transactionId);
+
+                throw e;
+            }
+
+            recordStatus(transaction, timedOut ? TransactionStatus.TIMEOUT : TransactionStatus.ROLLED_BACK);
+            coordinatorLog.logEnd(transactionId);
+
+            log.info("Transaction rolled back successfully: {}, {}", transactionId, transaction.getStatus());
+
+
+            if (timedOut && !(e instanceof DeadlineExceededException))
+                throw new DeadlineExceededException("Transaction timed out: " + e.getMessage());
+
+            throw e;
+        }
+
+
+        // Step 5: Request commitment from both banks concurrently
+        // The commit is decided, so the commits are not bound by the deadline and a failed commit is retried, never rolled back
+        log.info("Requesting commit from banks for transaction: {}", transactionId);
+
+        transaction.setSourceBankTransactionId(sourceTransactionId);
+        transaction.setDestinationBankTransactionId(destinationTransactionId);
+
+        TransactionResponse sourceCommitResponse;
+        TransactionResponse destinationCommitResponse;
+        try {
+            CompletableFuture<TransactionResponse> sourceCommit = Deadline.callAt(null,
+                    () -> callBank(() -> requestCommit(sourceBankClient, sourceTransactionId)));
+            CompletableFuture<TransactionResponse> destinationCommit = Deadline.callAt(null,
+                    () -> callBank(() -> requestCommit(destinationBankClient, destinationTransactionId)));
+            awaitPhase("commit", sourceCommit, destinationCommit);
+
+            sourceCommitResponse = sourceCommit.join();
+            destinationCommitResponse = destinationCommit.join();
+        } catch (RuntimeException e) {
+            log.error("Commit did not complete, leaving transaction to recovery: {}, {}", transactionId, e.getMessage());
+
+            leaveCommitToRecovery(transaction);
+
+            throw e;
+        }
+
+        log.info("Banks responded successfully for transaction commit: {}", transactionId);
+
+
+        // Step 6: Check the status of both banks' statuses again
+        log.info("Commit statuses: source: {}, destination: {}", sourceCommitResponse.getStatus(), destinationCommitResponse.getStatus());
+
+        if (!sourceCommitResponse.getStatus().equals(TransactionStatus.COMMITTED) ||
+                !destinationCommitResponse.getStatus().equals(TransactionStatus.COMMITTED)) {
+            log.error("Banks refused to commit transaction, manual reconciliation required: {}", transactionId);
+
+            recordStatus(transaction, TransactionStatus.FAILED);
+            coordinatorLog.logEnd(transactionId);
+
+            throw new TransactionException("Transaction commit failed");
+        }
+
+
+        log.info("Transaction committed successfully: {}", transactionId);
+
+
+        // Step 7: Update the account balances with the balances reported by the banks
+        // The commit is decided, so a balance that has to be fetched is not bound by the deadline
+        log.info("Updating account balances for transaction: {}", transactionId);
+
+        Map<String, Double> balances = Deadline.callAt(null, () -> Map.of(
+                transaction.getFromAccount().getAccountNumber(),
+                reportedBalance(transaction.getFromAccount(), sourceCommitResponse.getBalance(), sourceBankClient),
+                transaction.getToAccount().getAccountNumber(),
+                reportedBalance(transaction.getToAccount(), destinationCommitResponse.getBalance(), destinationBankClient)));
+
+
+        // Step 8: Write the outcome of the transaction and the balances to the database in one short transaction
+        log.info("Marking transaction as successful: {}", transactionId);
+
+        try {
+            recordStatus(transaction, TransactionStatus.SUCCESS, balances);
+        } catch (RuntimeException e) {
+            log.error("Failed to record the outcome, leaving transaction to recovery: {}, {}", transactionId, e.getMessage());
+
+            leaveCommitToRecovery(transaction);
+
+            throw e;
+        }
+        coordinatorLog.logEnd(transactionId);
+
+        log.info("Account balances updated successfully for transaction: {}", transactionId);
+
+        log.info("Transaction marked as successful: {}, {}", transactionId, transaction.getStatus());
+
+
+        // Step 9: Return the transaction response
+        return TransactionResponse.builder()
+                .transactionId(transactionId)
+                .status(transaction.getStatus())
+                .message("Transaction completed successfully")
+                .build();
+    }
+
+    /**
+     * Sends a transaction between two accounts of the same bank to that bank as a single internal transfer,
+     * replacing the two prepare and two commit calls of the 2PC with one call.
+     * The bank's local transaction is the only decision, so nothing is written to the coordinator log.
+     * The transaction ID is sent as the reference of the transfer, so the bank applies it at most once
+     * however often it is sent. If the bank's answer is lost, the transaction is left INITIATED and
+     * the TransactionRecoveryDaemon sends it again.
+     *
+     * @param transaction The INITIATED transaction to execute.
+     * @param bankClient The bank client of the bank holding both accounts.
+     * @param encryptedSourceAccountNumber The encrypted source account number.
+     * @param encryptedDestinationAccountNumber The encrypted destination account number.
+     * @return A TransactionResponse containing the status and details of the completed transaction.
+     * @throws RuntimeException If the bank refuses the transfer, or its outcome is unknown.
+     */
+    private TransactionResponse executeInternalTransfer(Transaction transaction, BankClient bankClient,
+                                                        String encryptedSourceAccountNumber,
+                                                        String encryptedDestinationAccountNumber) {
+        long transactionId = transaction.getId();
+
+        log.info("Requesting internal transfer from bank for transaction: {}", transactionId);
+
+        InternalTransferRequest request = InternalTransferRequest.builder()
+                .sourceAccountNumber(encryptedSourceAccountNumber)
+                .destinationAccountNumber(encryptedDestinationAccountNumber)
+                .amount(transaction.getAmount())
+                .reference(transactionId)
+                .build();
+
+        InternalTransferResponse response;
+        try {
+            CompletableFuture<InternalTransferResponse> transfer = callBank(() -> bankClient.transferInternally(request));
+            awaitPhaseWithinDeadline("internal transfer", transfer);
+            response = transfer.join();
+        } catch (FeignException.FeignClientException e) {
+            log.error("Bank rejected internal transfer: {}, {}", transactionId, e.getMessage());
+
+            recordStatus(transaction, TransactionStatus.FAILED);
+
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Internal transfer outcome unknown, leaving transaction to recovery: {}, {}", transactionId, e.getMessage());
+
+            throw e;
+        }
+
+        log.info("Internal transfer status: {}, {}", transactionId, response.getStatus());
+
+        if (response.getStatus().equals(TransactionStatus.TIMEOUT)) {
+            recordStatus(transaction, TransactionStatus.TIMEOUT);
+
+            throw new DeadlineExceededException("Internal transfer timed out: " + response.getMessage());
+        }
+
+        if (!response.getStatus().equals(TransactionStatus.COMMITTED)) {
+            recordStatus(transaction, TransactionStatus.FAILED);
+
+            throw new TransactionException("Internal transfer failed: " + response.getMessage());
+        }
+
+        log.info("Updating account balances for transaction: {}", transactionId);
+
+        // The transfer is applied, so a balance that has to be fetched is not bound by the deadline
+        InternalTransferResponse appliedResponse = response;
+        Map<String, Double> balances = Deadline.callAt(null, () -> Map.of(
+                transaction.getFromAccount().getAccountNumber(),
+                reportedBalance(transaction.getFromAccount(), appliedResponse.getSourceBalance(), bankClient),
+                transaction.getToAccount().getAccountNumber(),
+                reportedBalance(transaction.getToAccount(), appliedResponse.getDestinationBalance(), bankClient)));
+
+        transaction.setSourceBankTransactionId(response.getWithdrawalTransactionId());
+        transaction.setDestinationBankTransactionId(response.getDepositTransactionId());
+        recordStatus(transaction, TransactionStatus.SUCCESS, balances);
+
+        log.info("Transaction marked as successful: {}, {}", transactionId, transaction.getStatus());
+
+        return TransactionResponse.builder()
+                .transactionId(transactionId)
+                .status(transaction.getStatus())
+                .message("Transaction completed successfully")
+                .build();
+    }
+
+    /**
+     * Completes a transaction whose commit decision was taken but not acknowledged by both banks.
+     * Must be called outside a database transaction, with the accounts and banks of the transaction loaded.
+     *
+     * @param transaction The COMMITTED transaction to complete.
+     * @throws RuntimeException If a bank cannot be reached; the transaction is left as it is.
+     */
+    public void resumeCommit(Transaction transaction) {
+        requireNoTransaction("resumeCommit");
+
+        TransactionStatus outcome = redriveCommit(
+                transaction.getFromBank().getName(), transaction.getSourceBankTransactionId(),
+                transaction.getToBank().getName(), transaction.getDestinationBankTransactionId());
+
+        if (outcome.equals(TransactionStatus.COMMITTED)) {
+            Map<String, Double> balances = Map.of(
+                    transaction.getFromAccount().getAccountNumber(),
+                    reportedBalance(transaction.getFromAccount(), null, getBankClient(transaction.getFromBank().getName())),
+                    transaction.getToAccount().getAccountNumber(),
+                    reportedBalance(transaction.getToAccount(), null, getBankClient(transaction.getToBank().getName())));
+
+            recordStatus(transaction, TransactionStatus.SUCCESS, balances);
+        } else {
+            log.error("Banks refused to commit recovered transaction, manual reconciliation required: {}", transaction.getId());
+
+            recordStatus(transaction, TransactionStatus.FAILED);
+        }
+    }
+
+    /**
+     * Sends an internal transfer whose outcome is unknown to its bank again. The bank recognises the transfer
+     * by its reference, so a transfer it already applied is not applied twice.
+     * Must be called outside a database transaction, with the accounts and banks of the transaction loaded.
+     *
+     * @param transaction The INITIATED transaction between two accounts of the same bank.
+     * @throws RuntimeException If the bank cannot be reached; the transaction is left as it is.
+     */
+    public void resumeInternalTransfer(Transaction transaction) {
+        try {
+            execute(transaction);
+        } catch (RuntimeException e) {
+            if (transaction.getStatus() == TransactionStatus.INITIATED)
+                throw e;
+        }
+    }
+
+    /**
+     * Rolls back the prepared legs of a transaction that was not committed.
+     * Must be called outside a database transaction.
+     *
+     * @param transaction The transaction to roll back.
+     * @throws RuntimeException If a bank cannot be reached or refuses the rollback; the transaction is left as it is.
+     */
+    public void resumeRollback(Transaction transaction) {
+        requireNoTransaction("resumeRollback");
+
+        redriveRollback(
+                transaction.getFromBank().getName(), transaction.getSourceBankTransactionId(),
+                transaction.getToBank().getName(), transaction.getDestinationBankTransactionId());
+
+        recordStatus(transaction, TransactionStatus.ROLLED_BACK);
+    }
+
+    /**
+     * Sends the commit of both legs of a transaction again. Banks treat a repeated commit as a no-op.
+     *
+     * @param sourceBank The name of the source bank.
+     * @param sourceBankTransactionId The ID of the withdrawal leg.
+     * @param destinationBank The name of the destination bank.
+     * @param destinationBankTransactionId The ID of the deposit leg.
+     * @return COMMITTED if both banks committed their legs, FAILED if one of them refused.
+     * @throws RuntimeException If a bank cannot be reached.
+     */
+    public TransactionStatus redriveCommit(String sourceBank, Long sourceBankTransactionId,
+                                           String destinationBank, Long destinationBankTransactionId) {
+        BankClient sourceBankClient = getBankClient(sourceBank);
+        BankClient destinationBankClient = getBankClient(destinationBank);
+
+        CompletableFuture<TransactionStatus> sourceCommit = callBank(() -> requestCommit(sourceBankClient, sourceBankTransactionId).getStatus());
+        CompletableFuture<TransactionStatus> destinationCommit = callBank(() -> requestCommit(destinationBankClient, destinationBankTransactionId).getStatus());
+        awaitPhase("commit", sourceCommit, destinationCommit);
+
+        log.info("Re-driven commit statuses: source: {}, destination: {}", sourceCommit.join(), destinationCommit.join());
+
+        return sourceCommit.join().equals(TransactionStatus.COMMITTED) && destinationCommit.join().equals(TransactionStatus.COMMITTED)
+                ? TransactionStatus.COMMITTED
+                : TransactionStatus.FAILED;
+    }
+
+    /**
+     * Sends the rollback of the known legs of a transaction again. Banks treat a repeated rollback as a no-op.
+     *
+     * @param sourceBank The name of the source bank.
+     * @param sourceBankTransactionId The ID of the withdrawal leg, or null if it was never prepared.
+     * @param destinationBank The name of the destination bank.
+     * @param destinationBankTransactionId The ID of the deposit leg, or null if it was never prepared.
+     * @throws RuntimeException If a bank cannot be reached or refuses the rollback.
+     */
+    public void redriveRollback(String sourceBank, Long sourceBankTransactionId,
+                                String destinationBank, Long destinationBankTransactionId) {
+        CompletableFuture<Void> sourceRollback = sourceBankTransactionId == null
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> handleRollback(getBankClient(sourceBank), sourceBankTransactionId), bankCallExecutor);
+        CompletableFuture<Void> destinationRollback = destinationBankTransactionId == null
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> handleRollback(getBankClient(destinationBank), destinationBankTransactionId), bankCallExecutor);
+
+        awaitPhase("rollback", sourceRollback, destinationRollback);
+    }
+
+    /**
+     * Copies the decisions of the transactions left in doubt by the previous run from the coordinator log
+     * to their rows, so that they can be driven to completion, and ends them in the log.
+     * A row that already holds a final outcome is left as it is.
+     */
+    public void recoverInDoubtTransactions() {
+        for (CoordinatorRecord record : coordinatorLog.getInDoubtRecords()) {
+            TransactionStatus status = switch (record.getType()) {
+                case COMMIT -> TransactionStatus.COMMITTED;
+                default -> TransactionStatus.PREPARED;
+            };
+
+            Boolean recovered = transferTransactionTemplate.execute(transactionStatus ->
+                    transactionRepository.findById(record.getTransactionId())
+                            .map(transaction -> {
+                                if (transaction.getStatus() == TransactionStatus.INITIATED) {
+                                    transaction.setSourceBankTransactionId(record.getSourceBankTransactionId());
+                                    transaction.setDestinationBankTransactionId(record.getDestinationBankTransactionId());
+                                    transaction.setStatus(status);
+                                    transactionRepository.save(transaction);
+                                }
+                                return true;
+                            })
+                            .orElse(false));
+
+            if (Boolean.TRUE.equals(recovered)) {
+                coordinatorLog.logEnd(record.getTransactionId());
+
+                log.info("Recovered in-doubt transaction from coordinator log: {}, {}", record.getTransactionId(), status);
+            } else {
+                log.warn("In-doubt transaction has no row and is kept in the coordinator log: {}", record);
+            }
+        }
+    }
+
+    /**
+     * Leaves a transaction whose commit is decided but not completed to the TransactionRecoveryDaemon, which
+     * re-drives its commit. The decision is final, so the transaction is never rolled back: if its row cannot
+     * be written either, its COMMIT record stays in the coordinator log and is recovered on the next startup.
+     *
+     * @param transaction The INITIATED transaction, with the IDs of its prepared legs.
+     */
+    private void leaveCommitToRecovery(Transaction transaction) {
+        recordStatus(transaction, TransactionStatus.COMMITTED);
+        coordinatorLog.logEnd(transaction.getId());
+    }
+
+    /**
+     * Records a new status of a transaction in a short database transaction of its own.
+     *
+     * @param transaction The transaction, in the status it was read in.
+     * @param status The new status of the transaction.
+     * @return true if the status was recorded, false if the transaction was moved on concurrently.
+     */
+    private boolean recordStatus(Transaction transaction, TransactionStatus status) {
+        return recordStatus(transaction, status, Map.of());
+    }
+
+    /**
+     * Records a new status of a transaction, with the IDs of its legs and the balances reported by the banks,
+     * in a short database transaction of its own, and drops the cached live balances of the accounts.
+     * The status is only recorded if the transaction is still in the status it was read in; otherwise another
+     * worker, e.g. the TransactionRecoveryDaemon, has recorded its outcome already and nothing is written.
+     *
+     * @param transaction The transaction, in the status it was read in.
+     * @param status The new status of the transaction.
+     * @param balances The balances to store, by account number.
+     * @return true if the status was recorded, false if the transaction was moved on concurrently.
+     * @throws AccountNotFoundException If one of the accounts is not found; nothing is recorded.
+     */
+    private boolean recordStatus(Transaction transaction, TransactionStatus status, Map<String, Double> balances) {
+        TransactionStatus expectedStatus = transaction.getStatus();
+        boolean recorded = Boolean.TRUE.equals(transferTransactionTemplate.execute(transactionStatus -> {
+            if (transactionRepository.updateStatus(transaction.getId(), expectedStatus, status,
+                    transaction.getSourceBankTransactionId(), transaction.getDestinationBankTransactionId()) == 0)
+                return false;
+
+            balances.forEach((accountNumber, balance) -> {
+                if (accountRepository.updateBalanceByAccountNumber(accountNumber, balance) == 0)
+                    throw new AccountNotFoundException("Account not found");
+            });
+            return true;
+        }));
+
+        transaction.setStatus(status);
+        balances.keySet().forEach(accountBalanceCache::invalidate);
+
+        if (!recorded)
+            log.warn("Transaction moved on concurrently, {} not recorded: {}, expected {}", status, transaction.getId(), expectedStatus);
+
+        return recorded;
+    }
+
+    /**
+     * Fails fast when a step that calls the banks is run within a database transaction, which would hold its
+     * connection and row locks for the whole bank round trip.
+     *
+     * @param operation The name of the step, used in the error message.
+     * @throws IllegalStateException If a database transaction is active.
+     */
+    private static void requireNoTransaction(String operation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive())
+            throw new IllegalStateException(operation + " calls the banks and must not run within a database transaction");
+    }
+
+    /**
+     * Returns the ID of the leg a bank prepared, if its preparation has already answered.
+     *
+     * @param prepare The future of the preparation request sent to the bank, or null if none was sent.
+     * @return The ID of the prepared leg, or null if it is unknown.
+     */
+    private Long preparedLegId(CompletableFuture<TransactionResponse> prepare) {
+        if (prepare == null || !prepare.isDone() || prepare.isCompletedExceptionally())
+            return null;
+
+        return prepare.join().getTransactionId();
+    }
+
+    /**
+     * Returns the balance of an account reported by its bank, fetching it from the bank if none was reported.
+     * Must be called outside a database transaction, as the balance may be fetched from the bank.
+     *
+     * @param account The account.
+     * @param balance The balance reported by the bank, or null if none was reported.
+     * @param bankClient The bank client to use for fetching the balance if none was reported.
+     * @return The balance of the account.
+     */
+    private Double reportedBalance(Account account, Double balance, BankClient bankClient) {
+        if (balance != null)
+            return balance;
+
+        return bankClient.getBalance(encryptionUtil.encrypt(account.getAccountNumber()));
+    }
+
+    /**
+     * Sends a call to a bank on the bank call executor so that the legs of a phase run concurrently.
+     * The call runs within the deadline of the current thread, if any.
+     *
+     * @param call The bank call to perform.
+     * @param <T> The type of the bank's answer.
+     * @return A future completed with the bank's answer.
+     */
+    private <T> CompletableFuture<T> callBank(Supplier<T> call) {
+        Long deadline = Deadline.current();
+        return CompletableFuture.supplyAsync(() -> Deadline.callAt(deadline, call), bankCallExecutor);
+    }
+
+    /**
+     * Waits for all legs of a 2PC phase to complete within the configured phase timeout.
+     *
+     * @param phase The name of the phase, used in logs and error messages.
+     * @param legs The futures of the bank calls belonging to the phase.
+     * @throws TransactionException If the banks do not answer before the timeout or the wait is interrupted.
+     * @throws RuntimeException If one of the bank calls fails; the original exception is rethrown.
+     */
+    private void awaitPhase(String phase, CompletableFuture<?>... legs) {
+        awaitLegs(phase, phaseTimeout, () -> new TransactionException("Transaction " + phase + " timed out"), legs);
+    }
+
+    /**
+     * Waits for all legs of a 2PC phase to complete within the configured phase timeout,
+     * or until the deadline of the current thread if it comes first.
+     *
+     * @param phase The name of the phase, used in logs and error messages.
+     * @param legs The futures of the bank calls belonging to the phase.
+     * @throws DeadlineExceededException If the banks do not answer before the deadline.
+     * @throws TransactionException If the banks do not answer before the phase timeout or the wait is interrupted.
+     * @throws RuntimeException If one of the bank calls fails; the original exception is rethrown.
+     */
+    private void awaitPhaseWithinDeadline(String phase, CompletableFuture<?>... legs) {
+        long remaining = Deadline.remaining();
+        if (remaining >= phaseTimeout) {
+            awaitPhase(phase, legs);
+            return;
+        }
+
+        awaitLegs(phase, Math.max(remaining, 0),
+                () -> new DeadlineExceededException("Transaction " + phase + " did not complete within the deadline"), legs);
+    }
+
+    /**
+     * Waits for all legs of a 2PC phase to complete within the given time.
+     *
+     * @param phase The name of the phase, used in logs and error messages.
+     * @param timeout The maximum time to wait, in milliseconds.
+     * @param onTimeout The supplier of the exception thrown if the banks do not answer in time.
+     * @param legs The futures of the bank calls belonging to the phase.
+     * @throws TransactionException If the wait is interrupted.
+     * @throws RuntimeException If one of the bank calls fails; the original exception is rethrown.
+     */
+    private void awaitLegs(String phase, long timeout, Supplier<RuntimeException> onTimeout, CompletableFuture<?>... legs) {
+        try {
+            CompletableFuture.allOf(legs).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.error("Banks did not respond to {} within {} ms", phase, timeout);
+
+            throw onTimeout.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+
+            throw new TransactionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new TransactionException(e);
+        }
+    }
+
+    /**
+     * Rolls back the leg of a transaction that a bank was asked to prepare.
+     * If the bank has already answered, the rollback is sent right away. If the preparation is still
+     * in flight (e.g. the phase timed out), the rollback is sent as soon as the bank answers, so a late
+     * prepared leg is never left behind.
+     *
+     * @param bankClient The bank client to use for the rollback request.
+     * @param prepare The future of the preparation request sent to the bank, or null if none was sent.
+     * @return A future completed once the rollback of an answered leg is done.
+     */
+    private CompletableFuture<Void> rollbackLeg(BankClient bankClient, CompletableFuture<TransactionResponse> prepare) {
+        if (prepare == null || (prepare.isDone() && prepare.isCompletedExceptionally()))
+            return CompletableFuture.completedFuture(null);
+
+        if (!prepare.isDone()) {
+            prepare.thenAcceptAsync(response -> {
+                if (response.getTransactionId() != null)
+                    handleRollback(bankClient, response.getTransactionId());
+            }, bankCallExecutor).exceptionally(e -> {
+                log.error("Late rollback failed: {}", e.getMessage());
+                return null;
+            });
+
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Long bankTransactionId = prepare.join().getTransactionId();
+        if (bankTransactionId == null)
+            return CompletableFuture.completedFuture(null);
+
+        return CompletableFuture.runAsync(() -> handleRollback(bankClient, bankTransactionId), bankCallExecutor);
+    }
+
+    /**
+     * Handles the rollback of a transaction by requesting the bank to roll back the transaction.
+     *
+     * @param bankClient The bank client to use for the rollback request.
+     * @param bankTransactionId The ID of the transaction to roll back.
+     * @throws TransactionException If the rollback request fails or the bank does not respond with a successful status.
+     */
+    private void handleRollback(BankClient bankClient, Long bankTransactionId) {
+        log.info("Rolling back transaction: {}", bankTransactionId);
+
+        TransactionStatus bankStatus;
+        try {
+            log.info("Requesting rollback from bank for transaction: {}", bankTransactionId);
+
+            bankStatus = requestRollback(bankClient, bankTransactionId);
+
+            log.info("Bank responded successfully for transaction rollback: {}", bankStatus);
+
+
+            if (!bankStatus.equals(TransactionStatus.ROLLED_BACK)) {
+                throw new TransactionException("Transaction rollback failed");
+            }
+        } catch (Exception e) {
+            log.error("Rollback request failed: {}", e.getMessage());
+
+            throw e;
+        }
+    }
+
+    /**
+     * Requests a rollback from the bank for a given transaction ID.
+     *
+     * @param bankClient The bank client to use for the rollback request.
+     * @param transactionId The ID of the transaction to roll back.
+     * @return The status of the rollback request.
+     */
+    private TransactionStatus requestRollback(BankClient bankClient, Long transactionId) {
+        return bankClient.rollbackTransaction(transactionId).getStatus();
+    }
+
+    /**
+     * Requests a commit from the bank for a given transaction ID.
+     *
+     * @param bankClient The bank client to use for the commit request.
+     * @param transactionId The ID of the transaction to commit.
+     * @return The response of the bank containing the status of the commit request and the resulting account balance.
+     */
+    private TransactionResponse requestCommit(BankClient bankClient, Long transactionId) {
+        return bankClient.commitTransaction(transactionId);
+    }
+
+    /**
+     * Requests preparation from the bank for a given transaction request.
+     *
+     * @param bankClient The bank client to use for the preparation request.
+     * @param request The transaction request containing account number, type, and amount.
+     * @return The response from the bank containing the transaction ID and status.
+     */
+    private TransactionResponse requestPrepare(BankClient bankClient, TransactionRequest request) {
+        return bankClient.prepareTransaction(request);
+    }
+
+    /**
+     * Retrieves the bank client for a given bank name.
+     *
+     * @param bankName The name of the bank.
+     * @return The bank client for the specified bank.
+     */
+    private BankClient getBankClient(String bankName) {
+        return bankClientFactory.getBankClient(bankName);
+    }
+
+    /**
+     * Creates a transaction request for the bank.
+     *
+     * @param accountNumber The account number associated with the transaction.
+     * @param type The type of transaction (e.g., withdrawal, deposit).
+     * @param amount The amount involved in the transaction.
+     * @return A TransactionRequest object containing the details of the transaction.
+     */
+    private TransactionRequest createTransactionRequest(String accountNumber, TransactionType type, Double amount) {
+        return TransactionRequest.builder()
+                .accountNumber(accountNumber)
+                .type(type)
+                .amount(amount)
+                .build();
+    }
+}
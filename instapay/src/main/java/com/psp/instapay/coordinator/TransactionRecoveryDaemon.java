@@ -0,0 +1,260 @@
+package com.psp.instapay.coordinator;
+
+import com.psp.instapay.exception.BankNotFoundException;
+import com.psp.instapay.model.entity.Transaction;
+import com.psp.instapay.model.enums.TransactionStatus;
+import com.psp.instapay.model.repository.TransactionRepository;
+import com.psp.instapay.util.BankRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Daemon driving in-doubt transactions to completion.
+ * On startup it resolves the transactions the coordinator log knows about and the transfers abandoned by the
+ * previous run; afterwards it periodically scans for transactions stuck in PREPARED, COMMITTED, or ROLLING_BACK,
+ * e.g. because a bank was unreachable, and re-drives their commit or rollback through the bank clients.
+ * Internal transfers whose outcome is unknown are sent to their bank again, which applies each of them at most once.
+ * Transactions are scanned in batches and recovered concurrently, with a bounded number of calls per bank.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionRecoveryDaemon {
+    private static final List<TransactionStatus> STUCK_STATUSES = List.of(
+            TransactionStatus.PREPARED, TransactionStatus.COMMITTED, TransactionStatus.ROLLING_BACK);
+
+    private final TransactionRepository transactionRepository;
+    private final BankRegistry bankRegistry;
+    private final TransactionCoordinator transactionCoordinator;
+    private final CoordinatorLog coordinatorLog;
+    private final ExecutorService bankCallExecutor;
+
+    /**
+     * The time, in milliseconds, a transaction must have existed before it is recovered.
+     * Loaded from the application properties.
+     */
+    @Value("${recovery.grace-period}")
+    private long gracePeriod;
+
+    /**
+     * The number of transactions loaded per scan query.
+     * Loaded from the application properties.
+     */
+    @Value("${recovery.batch-size}")
+    private int batchSize;
+
+    /**
+     * The number of transactions recovered concurrently against the same bank.
+     * Loaded from the application properties.
+     */
+    @Value("${recovery.per-bank-parallelism}")
+    private int perBankParallelism;
+
+    private final Map<String, Semaphore> bankPermits = new ConcurrentHashMap<>();
+    private final AtomicBoolean scanning = new AtomicBoolean();
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    /**
+     * Recovers everything left unfinished by the previous run once the application is ready.
+     * Transactions initiated before startup and never prepared are presumed aborted,
+     * except internal transfers, which are sent to their bank again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        transactionCoordinator.recoverInDoubtTransactions();
+        resolveOrphanedLogRecords();
+
+        scan("INITIATED", afterId -> transactionRepository.findRecoverable(
+                List.of(TransactionStatus.INITIATED), startedAt, afterId, PageRequest.of(0, batchSize)));
+        recoverStuckTransactions();
+    }
+
+    /**
+     * Periodically re-drives the transactions stuck in a non-terminal status for longer than the grace period.
+     */
+    @Scheduled(initialDelayString = "${recovery.interval}", fixedDelayString = "${recovery.interval}")
+    public void recoverStuckTransactions() {
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(gracePeriod));
+
+        scan(STUCK_STATUSES.toString(), afterId -> transactionRepository.findRecoverable(
+                STUCK_STATUSES, before, afterId, PageRequest.of(0, batchSize)));
+        scan("internal transfers", afterId -> transactionRepository.findRecoverableInternalTransfers(
+                before, afterId, PageRequest.of(0, batchSize)));
+    }
+
+    /**
+     * Scans the transactions to recover in ID order, one batch at a time, and recovers each batch
+     * concurrently. Scans never overlap; a scan requested while another one runs is skipped.
+     *
+     * @param description The description of the scanned transactions, used in logs.
+     * @param nextBatch The query loading the next batch of transactions with an ID greater than the given one.
+     */
+    private void scan(String description, Function<Long, List<Transaction>> nextBatch) {
+        if (!scanning.compareAndSet(false, true)) {
+            log.info("Recovery scan already running, skipping scan for: {}", description);
+            return;
+        }
+
+        try {
+            long lastId = 0;
+            int recovered = 0;
+            int failed = 0;
+            List<Transaction> batch;
+            do {
+                batch = nextBatch.apply(lastId);
+
+                List<CompletableFuture<Boolean>> results = batch.stream()
+                        .map(transaction -> CompletableFuture.supplyAsync(() -> recoverTransaction(
+                                transaction.getId(),
+                                transaction.getFromBank().getName(),
+                                transaction.getToBank().getName()), bankCallExecutor))
+                        .toList();
+
+                for (CompletableFuture<Boolean> result : results) {
+                    if (result.join())
+                        recovered++;
+                    else
+                        failed++;
+                }
+
+                if (!batch.isEmpty())
+                    lastId = batch.getLast().getId();
+            } while (batch.size() == batchSize);
+
+            if (recovered + failed > 0)
+                log.info("Recovery scan for {} finished: {} recovered, {} left for the next scan", description, recovered, failed);
+        } finally {
+            scanning.set(false);
+        }
+    }
+
+    /**
+     * Recovers a single transaction, re-reading its status first so that a transaction completed in the meantime
+     * is left alone. The banks are called with no database transaction open; the coordinator records the outcome
+     * only if the transaction is still in the status read here.
+     *
+     * @param transactionId The ID of the transaction.
+     * @param sourceBank The name of the source bank.
+     * @param destinationBank The name of the destination bank.
+     * @return true if the transaction reached a final status, false if it must be retried later.
+     */
+    private boolean recoverTransaction(Long transactionId, String sourceBank, String destinationBank) {
+        try {
+            return withBankPermits(sourceBank, destinationBank, () -> {
+                Transaction transaction = transactionRepository.findWithAccountsById(transactionId).orElse(null);
+                if (transaction == null)
+                    return true;
+
+                switch (transaction.getStatus()) {
+                    case COMMITTED -> transactionCoordinator.resumeCommit(transaction);
+                    case INITIATED -> {
+                        if (transaction.getFromBank().getId().equals(transaction.getToBank().getId()))
+                            transactionCoordinator.resumeInternalTransfer(transaction);
+                        else
+                            transactionCoordinator.resumeRollback(transaction);
+                    }
+                    case PREPARED, ROLLING_BACK -> transactionCoordinator.resumeRollback(transaction);
+                    default -> {
+                        return true;
+                    }
+                }
+
+                log.info("Recovered transaction: {}, {}", transactionId, transaction.getStatus());
+                return true;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to recover transaction: {}, {}", transactionId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Resolves the in-doubt transactions of the coordinator log that have no row, e.g. because the database
+     * transaction that inserted the row was lost in the crash. The legs are committed or rolled back directly,
+     * following the decision recorded in the log.
+     */
+    private void resolveOrphanedLogRecords() {
+        for (CoordinatorRecord record : coordinatorLog.getInDoubtRecords()) {
+            try {
+                String sourceBank = bankRegistry.findById(record.getSourceBankId())
+                        .orElseThrow(() -> new BankNotFoundException("Bank not found"))
+                        .getName();
+                String destinationBank = bankRegistry.findById(record.getDestinationBankId())
+                        .orElseThrow(() -> new BankNotFoundException("Bank not found"))
+                        .getName();
+
+                withBankPermits(sourceBank, destinationBank, () -> {
+                    if (record.getType() == CoordinatorRecordType.COMMIT)
+                        transactionCoordinator.redriveCommit(
+                                sourceBank, record.getSourceBankTransactionId(),
+                                destinationBank, record.getDestinationBankTransactionId());
+                    else
+                        transactionCoordinator.redriveRollback(
+                                sourceBank, record.getSourceBankTransactionId(),
+                                destinationBank, record.getDestinationBankTransactionId());
+                    return null;
+                });
+
+                coordinatorLog.logEnd(record.getTransactionId());
+
+                log.info("Resolved orphaned coordinator log record: {}", record);
+            } catch (RuntimeException e) {
+                log.warn("Failed to resolve orphaned coordinator log record: {}, {}", record, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs a recovery action while holding a permit of each bank involved, acquired in name order
+     * so that concurrent recoveries cannot deadlock.
+     *
+     * @param sourceBank The name of the source bank.
+     * @param destinationBank The name of the destination bank.
+     * @param action The recovery action.
+     * @param <T> The type of the action's result.
+     * @return The result of the action.
+     */
+    private <T> T withBankPermits(String sourceBank, String destinationBank, Supplier<T> action) {
+        List<Semaphore> permits = Stream.of(sourceBank, destinationBank)
+                .distinct()
+                .sorted()
+                .map(bank -> bankPermits.computeIfAbsent(bank, name -> new Semaphore(perBankParallelism)))
+                .toList();
+
+        int acquired = 0;
+        try {
+            for (Semaphore permit : permits) {
+                permit.acquire();
+                acquired++;
+            }
+
+            return action.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted while waiting for a bank permit", e);
+        } finally {
+            for (int i = 0; i < acquired; i++)
+                permits.get(i).release();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.psp.instapay.exception;
+
+/**
+ * Exception thrown when a call to a bank is rejected without being sent, because the bank is failing, has too many calls in progress,
+ * or has no registered endpoints.
+ */
+public class BankUnavailableException extends RuntimeException {
+
+    /**
+     * Constructs a new BankUnavailableException with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    public BankUnavailableException(String message) {
+        super(message);
+    }
+}
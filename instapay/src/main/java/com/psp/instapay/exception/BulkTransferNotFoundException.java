@@ -0,0 +1,16 @@
+package com.psp.instapay.exception;
+
+/**
+ * Exception thrown when a bulk transfer is not found in the system.
+ */
+public class BulkTransferNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new BulkTransferNotFoundException with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    public BulkTransferNotFoundException(String message) {
+        super(message);
+    }
+}
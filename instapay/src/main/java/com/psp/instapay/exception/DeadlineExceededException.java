@@ -0,0 +1,16 @@
+package com.psp.instapay.exception;
+
+/**
+ * Exception thrown when a transaction does not complete within its deadline, or a bank refuses work whose deadline has passed.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    /**
+     * Constructs a new DeadlineExceededException with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,7 @@ import com.psp.instapay.model.dto.response.ResponseDto;
 import feign.FeignException;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
@@ -139,6 +140,76 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                         .build());
     }
 
+    @ExceptionHandler(BankUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ResponseDto> handleBankUnavailableException(BankUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ResponseDto.builder()
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .message(ex.getMessage())
+                        .build());
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+    public ResponseEntity<ResponseDto> handleDeadlineExceededException(DeadlineExceededException ex) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(ResponseDto.builder()
+                        .status(HttpStatus.GATEWAY_TIMEOUT)
+                        .message(ex.getMessage())
+                        .build());
+    }
+
+    @ExceptionHandler(BulkTransferNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ResponseEntity<ResponseDto> handleBulkTransferNotFoundException(BulkTransferNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ResponseDto.builder()
+                        .status(HttpStatus.NOT_FOUND)
+                        .message(ex.getMessage())
+                        .build());
+    }
+
+    @ExceptionHandler(TransactionNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ResponseEntity<ResponseDto> handleTransactionNotFoundException(TransactionNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ResponseDto.builder()
+                        .status(HttpStatus.NOT_FOUND)
+                        .message(ex.getMessage())
+                        .build());
+    }
+
+    @ExceptionHandler(TransactionRejectedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ResponseDto> handleTransactionRejectedException(TransactionRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ResponseDto.builder()
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .message(ex.getMessage())
+                        .build());
+    }
+
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ResponseDto> handleConcurrencyFailureException(ConcurrencyFailureException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(ResponseDto.builder()
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .message("Too many concurrent transactions on these accounts, please try again later")
+                        .build());
+    }
+
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ResponseDto> handleIdempotencyKeyConflictException(IdempotencyKeyConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ResponseDto.builder()
+                        .status(HttpStatus.CONFLICT)
+                        .message(ex.getMessage())
+                        .build());
+    }
+
     @ExceptionHandler(UserNotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ResponseEntity<ResponseDto> handleUserNotFoundException(UserNotFoundException ex) {
@@ -0,0 +1,16 @@
+package com.psp.instapay.exception;
+
+/**
+ * Exception thrown when an idempotency key is reused for a different request, or its original request is still being processed.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    /**
+     * Constructs a new IdempotencyKeyConflictException with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
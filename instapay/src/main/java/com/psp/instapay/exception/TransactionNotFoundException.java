@@ -0,0 +1,16 @@
+package com.psp.instapay.exception;
+
+/**
+ * Exception thrown when a transaction is not found in the system.
+ */
+public class TransactionNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new TransactionNotFoundException with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    public TransactionNotFoundException(String message) {
+        super(message);
+    }
+}
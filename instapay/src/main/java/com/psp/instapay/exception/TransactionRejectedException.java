@@ -0,0 +1,16 @@
+package com.psp.instapay.exception;
+
+/**
+ * Exception thrown when a transaction cannot be accepted because the system has no capacity left to process it.
+ */
+public class TransactionRejectedException extends RuntimeException {
+
+    /**
+     * Constructs a new TransactionRejectedException with the specified detail message.
+     *
+     * @param message the detail message explaining the reason for the exception
+     */
+    public TransactionRejectedException(String message) {
+        super(message);
+    }
+}
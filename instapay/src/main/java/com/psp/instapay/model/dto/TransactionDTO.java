@@ -18,6 +18,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class TransactionDTO {
 
+    /**
+     * The unique identifier of the transaction.
+     */
+    private Long id;
+
     /**
      * The account number of the sender.
      * Represents the source account for the transaction.
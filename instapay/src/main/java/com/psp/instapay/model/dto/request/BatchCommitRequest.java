@@ -0,0 +1,22 @@
+package com.psp.instapay.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for one item of a batch of transactions to commit.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchCommitRequest {
+
+    /**
+     * The ID of the transaction to commit.
+     * This field is required and cannot be null.
+     */
+    private Long transactionId;
+}
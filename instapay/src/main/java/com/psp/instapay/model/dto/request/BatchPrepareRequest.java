@@ -0,0 +1,28 @@
+package com.psp.instapay.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for one item of a batch of transactions to prepare.
+ * Each item carries its own timeout, so the bank refuses it on its own once its deadline has passed.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchPrepareRequest {
+
+    /**
+     * The details of the transaction to prepare.
+     * This field is required and cannot be null.
+     */
+    private TransactionRequest request;
+
+    /**
+     * The time, in milliseconds, left to prepare the transaction, or null if it has no deadline.
+     */
+    private Long timeout;
+}
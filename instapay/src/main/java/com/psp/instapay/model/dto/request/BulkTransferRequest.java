@@ -0,0 +1,30 @@
+package com.psp.instapay.model.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for bulk transfer request.
+ * Represents the request payload for sending many transfers, such as salaries, from one source account.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkTransferRequest {
+
+    /**
+     * The transfers to send.
+     * All transfers must share the same source account; at most 10,000 transfers are accepted per request.
+     */
+    @NotEmpty(message = "At least one transfer is required")
+    @Size(max = 10000, message = "A bulk transfer cannot contain more than 10000 transfers")
+    private List<@Valid SendMoneyRequest> transfers;
+}
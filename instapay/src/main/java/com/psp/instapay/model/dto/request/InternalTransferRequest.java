@@ -0,0 +1,37 @@
+package com.psp.instapay.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for internal transfer request.
+ * Represents the request payload for moving money between two accounts of the same bank.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InternalTransferRequest {
+
+    /**
+     * The encrypted account number from which the money is transferred.
+     */
+    private String sourceAccountNumber;
+
+    /**
+     * The encrypted account number to which the money is transferred.
+     */
+    private String destinationAccountNumber;
+
+    /**
+     * The amount to transfer.
+     */
+    private Double amount;
+
+    /**
+     * The ID of the transaction in the system, used by the bank to recognise a repeated transfer.
+     */
+    private Long reference;
+}
@@ -0,0 +1,89 @@
+package com.psp.instapay.model.dto.request;
+
+import com.psp.instapay.model.enums.TransactionStatus;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object (DTO) for transaction history request.
+ * Represents one page of the transaction history, newest first, and the filters applied to it.
+ * The next page is requested with the cursor returned with the previous one; every filter is optional.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryRequest {
+
+    /**
+     * The account number of one of the user's accounts, to list the transactions of that account only.
+     * Must be exactly 16 digits long if present.
+     */
+    @Size(min = 16, max = 16, message = "Account number must be 16 digits")
+    private String accountNumber;
+
+    /**
+     * The date of the last transaction of the previous page, or null for the first page.
+     */
+    private LocalDateTime cursorDate;
+
+    /**
+     * The ID of the last transaction of the previous page, or null for the first page.
+     */
+    private Long cursorId;
+
+    /**
+     * The maximum number of transactions in the page.
+     * Must be between 1 and 100; the configured page size is used if it is not set.
+     */
+    @Min(value = 1, message = "Page size must be at least 1")
+    @Max(value = 100, message = "Page size must be at most 100")
+    private Integer pageSize;
+
+    /**
+     * The date and time from which transactions are listed, inclusive.
+     */
+    private LocalDateTime fromDate;
+
+    /**
+     * The date and time until which transactions are listed, exclusive.
+     */
+    private LocalDateTime toDate;
+
+    /**
+     * The account number of the other party of the transactions.
+     * Must be exactly 16 digits long if present.
+     */
+    @Size(min = 16, max = 16, message = "Counterparty account number must be 16 digits")
+    private String counterpartyAccountNumber;
+
+    /**
+     * The name of the bank of either party of the transactions.
+     */
+    private String bankName;
+
+    /**
+     * The status of the transactions.
+     */
+    private TransactionStatus status;
+
+    /**
+     * The minimum amount of the transactions, inclusive.
+     */
+    @DecimalMin(value = "0", message = "Minimum amount cannot be negative")
+    private Double minAmount;
+
+    /**
+     * The maximum amount of the transactions, inclusive.
+     */
+    @DecimalMin(value = "0", message = "Maximum amount cannot be negative")
+    private Double maxAmount;
+}
@@ -0,0 +1,60 @@
+package com.psp.instapay.model.dto.response;
+
+import com.psp.instapay.model.dto.TransactionDTO;
+import com.psp.instapay.model.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) for bulk transfer response.
+ * Represents the progress of a bulk transfer and the status of each of its transfers.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkTransferResponse {
+
+    /**
+     * The unique identifier of the bulk transfer.
+     * Used to track the progress of the bulk transfer.
+     */
+    private Long bulkTransferId;
+
+    /**
+     * The account number from which all transfers are sent.
+     */
+    private String sourceAccountNumber;
+
+    /**
+     * The number of transfers in the bulk transfer.
+     */
+    private Integer totalCount;
+
+    /**
+     * The sum of the amounts of all transfers in the bulk transfer.
+     */
+    private Double totalAmount;
+
+    /**
+     * The number of transfers in each status.
+     */
+    private Map<TransactionStatus, Long> statusCounts;
+
+    /**
+     * The transfers of the bulk transfer with their current status.
+     * Only included when the progress of the bulk transfer is queried.
+     */
+    private List<TransactionDTO> transfers;
+
+    /**
+     * The date and time when the bulk transfer was submitted.
+     */
+    private LocalDateTime createdAt;
+}
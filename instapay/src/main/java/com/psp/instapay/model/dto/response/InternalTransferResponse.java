@@ -0,0 +1,48 @@
+package com.psp.instapay.model.dto.response;
+
+import com.psp.instapay.model.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for internal transfer response.
+ * Represents the outcome of a transfer between two accounts of the same bank.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InternalTransferResponse {
+
+    /**
+     * The ID of the withdrawal transaction recorded by the bank.
+     */
+    private Long withdrawalTransactionId;
+
+    /**
+     * The ID of the deposit transaction recorded by the bank.
+     */
+    private Long depositTransactionId;
+
+    /**
+     * The status of the transfer (e.g., COMMITTED, FAILED).
+     */
+    private TransactionStatus status;
+
+    /**
+     * A message providing additional information about the transfer.
+     */
+    private String message;
+
+    /**
+     * The balance of the source account once the transfer is applied.
+     */
+    private Double sourceBalance;
+
+    /**
+     * The balance of the destination account once the transfer is applied.
+     */
+    private Double destinationBalance;
+}
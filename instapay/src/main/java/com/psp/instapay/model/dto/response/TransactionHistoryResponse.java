@@ -0,0 +1,41 @@
+package com.psp.instapay.model.dto.response;
+
+import com.psp.instapay.model.dto.TransactionDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for transaction history response.
+ * Represents one page of the transaction history, newest first, and the cursor of the next page.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryResponse {
+
+    /**
+     * The transactions of the page, newest first.
+     */
+    private List<TransactionDTO> transactions;
+
+    /**
+     * Whether more transactions match the filters after this page.
+     */
+    private boolean hasMore;
+
+    /**
+     * The cursor date to send for the next page, or null if this is the last page.
+     */
+    private LocalDateTime nextCursorDate;
+
+    /**
+     * The cursor ID to send for the next page, or null if this is the last page.
+     */
+    private Long nextCursorId;
+}
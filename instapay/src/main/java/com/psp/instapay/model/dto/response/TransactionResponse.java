@@ -1,6 +1,7 @@
 package com.psp.instapay.model.dto.response;
 
 import com.psp.instapay.model.enums.TransactionStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -33,4 +34,11 @@ public class TransactionResponse {
      * Typically used for success or error descriptions.
      */
     private String message;
+
+    /**
+     * The balance of the account once a bank commits or rolls back its leg of the transaction.
+     * Only reported by banks; omitted when absent.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double balance;
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Entity class representing an account in the system.
@@ -54,6 +55,15 @@ public class Account {
     @Column(name = "balance", nullable = false)
     private Double balance = 0.0;
 
+    /**
+     * The version of the account, incremented on every update.
+     * Concurrent updates of the same account are detected by it.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * Constructor to create an account with the specified user, bank, and account number.
      *
@@ -31,6 +31,14 @@ public class Bank {
     @Column(nullable = false)
     private String name;
 
+    /**
+     * The base URLs of the bank's API endpoints, separated by commas (e.g., "http://cib-1:8090,http://cib-2:8090").
+     * Calls to the bank are balanced across them. When empty, the default endpoints configured for the bank
+     * under bank-client.banks are used; a bank without endpoints cannot be called.
+     */
+    @Column(length = 1024)
+    private String endpoints;
+
     /**
      * Constructor to create a bank with the specified name.
      *
@@ -0,0 +1,64 @@
+package com.psp.instapay.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity class representing a bulk transfer, such as a payroll run, in the system.
+ * Groups the transactions sent from one source account in a single request.
+ * Maps to the "bulk_transfer" table in the database.
+ */
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "bulk_transfer")
+public class BulkTransfer {
+
+    /**
+     * The unique identifier for the bulk transfer.
+     * Auto-generated by the database.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * The account from which all transfers of the bulk transfer are sent.
+     * Represents a many-to-one relationship with the Account entity.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "source_account_id", nullable = false)
+    private Account sourceAccount;
+
+    /**
+     * The number of transfers in the bulk transfer.
+     */
+    @Column(name = "total_count", nullable = false)
+    private Integer totalCount;
+
+    /**
+     * The sum of the amounts of all transfers in the bulk transfer.
+     */
+    @Column(name = "total_amount", nullable = false)
+    private Double totalAmount;
+
+    /**
+     * The date and time when the bulk transfer was submitted.
+     * Automatically set to the current date and time when the bulk transfer is created.
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Sets the creation date to the current date and time before persisting the entity.
+     */
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
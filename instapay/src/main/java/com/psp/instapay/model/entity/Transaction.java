@@ -3,6 +3,7 @@ package com.psp.instapay.model.entity;
 import com.psp.instapay.model.enums.TransactionStatus;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -16,7 +17,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "transaction")
+@Table(
+        name = "transaction",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_transaction_idempotency_user_key", columnNames = {"idempotency_user_id", "idempotency_key"})
+)
 public class Transaction {
 
     /**
@@ -74,6 +79,51 @@ public class Transaction {
     @Enumerated(EnumType.STRING)
     private TransactionStatus status;
 
+    /**
+     * The ID of the withdrawal leg prepared by the source bank.
+     * Recorded when the transaction completes or is recovered from the coordinator log.
+     */
+    @Column(name = "source_bank_transaction_id")
+    private Long sourceBankTransactionId;
+
+    /**
+     * The ID of the deposit leg prepared by the destination bank.
+     * Recorded when the transaction completes or is recovered from the coordinator log.
+     */
+    @Column(name = "destination_bank_transaction_id")
+    private Long destinationBankTransactionId;
+
+    /**
+     * The idempotency key sent by the client with the transaction, or null if none was sent.
+     * Unique per user, so a retried request cannot create a second transaction.
+     */
+    @Column(name = "idempotency_key", length = 64)
+    private String idempotencyKey;
+
+    /**
+     * The ID of the user who sent the idempotency key, or null if none was sent.
+     * Scopes the key, so users choose their keys independently of each other.
+     */
+    @Column(name = "idempotency_user_id")
+    private Long idempotencyUserId;
+
+    /**
+     * The bulk transfer the transaction belongs to, or null for a single transfer.
+     * Represents a many-to-one relationship with the BulkTransfer entity.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bulk_transfer_id")
+    private BulkTransfer bulkTransfer;
+
+    /**
+     * The version of the transaction, incremented on every update.
+     * Concurrent changes of the status of the transaction are detected by it.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * The date and time when the transaction occurred.
      * Automatically set to the current date and time when the transaction is created.
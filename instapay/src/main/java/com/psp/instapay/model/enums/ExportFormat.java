@@ -0,0 +1,60 @@
+package com.psp.instapay.model.enums;
+
+import com.psp.instapay.exception.TransactionException;
+
+/**
+ * Enum representing the formats in which the transaction history can be exported.
+ * Each format writes one transaction per line, so an export can be written and read as a stream.
+ */
+public enum ExportFormat {
+    /**
+     * Comma-separated values, with a header line naming the columns.
+     */
+    CSV("text/csv", "csv"),
+
+    /**
+     * Newline-delimited JSON, one JSON object per transaction.
+     */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the media type of an export in this format.
+     *
+     * @return the media type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the file extension of an export in this format.
+     *
+     * @return the file extension, without the dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Resolves a format from its name, ignoring case.
+     *
+     * @param name the name of the format, such as csv or ndjson
+     * @return the format
+     * @throws TransactionException if no format has this name
+     */
+    public static ExportFormat fromName(String name) {
+        for (ExportFormat format : values())
+            if (format.name().equalsIgnoreCase(name))
+                return format;
+
+        throw new TransactionException("Unsupported export format: " + name);
+    }
+}
@@ -1,13 +1,15 @@
 package com.psp.instapay.model.repository;
 
+import com.psp.instapay.model.dto.AccountDTO;
 import com.psp.instapay.model.entity.Account;
-import com.psp.instapay.model.entity.Bank;
-import com.psp.instapay.model.entity.User;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,29 +22,52 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
 
     /**
      * Finds an account by the associated user and account number.
+     * The bank of the account is fetched with it.
      *
-     * @param user The user associated with the account.
+     * @param userId The ID of the user associated with the account.
      * @param accountNumber The account number to search for.
      * @return An Optional containing the account if found, or empty otherwise.
      */
-    Optional<Account> findByUserAndAccountNumber(User user, String accountNumber);
+    @Query("SELECT a FROM Account a JOIN FETCH a.bank WHERE a.user.id = :userId AND a.accountNumber = :accountNumber")
+    Optional<Account> findByUserIdAndAccountNumber(Long userId, String accountNumber);
 
     /**
-     * Retrieves all accounts associated with a specific user.
+     * Finds an account of a user by its account number as a flat row joined to its bank, without loading any entity.
      *
-     * @param user The user whose accounts are to be retrieved.
+     * @param userId The ID of the user associated with the account.
+     * @param accountNumber The account number to search for.
+     * @return An Optional containing the account if found, or empty otherwise.
+     */
+    @Query(
+            "SELECT new com.psp.instapay.model.dto.AccountDTO(a.accountNumber, b.name, a.balance) " +
+            "FROM Account a JOIN a.bank b WHERE a.user.id = :userId AND a.accountNumber = :accountNumber"
+    )
+    Optional<AccountDTO> findDTOByUserIdAndAccountNumber(Long userId, String accountNumber);
+
+    /**
+     * Retrieves all accounts of a user as flat rows joined to their banks, without loading any entity.
+     *
+     * @param userId The ID of the user whose accounts are to be retrieved.
      * @return A list of accounts associated with the user.
      */
-    List<Account> findAllByUser(User user);
+    @Query(
+            "SELECT new com.psp.instapay.model.dto.AccountDTO(a.accountNumber, b.name, a.balance) " +
+            "FROM Account a JOIN a.bank b WHERE a.user.id = :userId"
+    )
+    List<AccountDTO> findDTOsByUserId(Long userId);
 
     /**
-     * Retrieves all accounts associated with a specific user and bank.
+     * Retrieves all accounts of a user at a specific bank as flat rows joined to their bank, without loading any entity.
      *
-     * @param user The user whose accounts are to be retrieved.
-     * @param bank The bank associated with the accounts.
+     * @param userId The ID of the user whose accounts are to be retrieved.
+     * @param bankId The ID of the bank associated with the accounts.
      * @return A list of accounts associated with the user and bank.
      */
-    List<Account> findAllByUserAndBank(User user, Bank bank);
+    @Query(
+            "SELECT new com.psp.instapay.model.dto.AccountDTO(a.accountNumber, b.name, a.balance) " +
+            "FROM Account a JOIN a.bank b WHERE a.user.id = :userId AND b.id = :bankId"
+    )
+    List<AccountDTO> findDTOsByUserIdAndBankId(Long userId, Long bankId);
 
     /**
      * Checks if an account exists by its account number.
@@ -55,30 +80,65 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     /**
      * Checks if an account exists for a specific user and account number.
      *
-     * @param user The user associated with the account.
+     * @param userId The ID of the user associated with the account.
      * @param accountNumber The account number to check.
      * @return True if the account exists, false otherwise.
      */
-    boolean existsByUserAndAccountNumber(User user, String accountNumber);
+    boolean existsByUserIdAndAccountNumber(Long userId, String accountNumber);
 
     /**
-     * Finds an account for update by its account number with a pessimistic write lock.
+     * Retrieves all accounts with one of the given account numbers in a single query.
+     * The bank of each account is fetched with it.
      *
-     * @param accountNumber The account number to search for.
-     * @return An Optional containing the account if found, or empty otherwise.
+     * @param accountNumbers The account numbers to search for.
+     * @return A list of the accounts found; account numbers without an account are absent.
+     */
+    @Query("SELECT a FROM Account a JOIN FETCH a.bank WHERE a.accountNumber IN :accountNumbers")
+    List<Account> findAllByAccountNumberIn(Collection<String> accountNumbers);
+
+    /**
+     * Retrieves the IDs of the accounts with one of the given account numbers, without locking them.
+     *
+     * @param accountNumbers The account numbers to search for.
+     * @return The IDs of the accounts found; account numbers without an account are absent.
+     */
+    @Query("SELECT a.id FROM Account a WHERE a.accountNumber IN :accountNumbers")
+    List<Long> findIdsByAccountNumberIn(Collection<String> accountNumbers);
+
+    /**
+     * Retrieves the accounts with the given IDs for update with a pessimistic write lock.
+     * The rows are read, and so locked, in ascending ID order, which is the global order in which
+     * transactions locking several accounts must take their locks to never deadlock.
+     *
+     * @param ids The IDs of the accounts to lock.
+     * @return The accounts found, in ascending ID order.
      */
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    Optional<Account> findForUpdateByAccountNumber(String accountNumber);
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllForUpdateByIdInOrderById(Collection<Long> ids);
+
+    /**
+     * Sets the balance of an account in a single statement and increments its version, without reading it first.
+     * The balance is a copy of the balance held by the bank, so the latest copy wins; the row is only locked
+     * for the duration of the statement.
+     *
+     * @param accountNumber The account number of the account to update.
+     * @param balance The new balance of the account.
+     * @return The number of accounts updated, 0 if no account has the given account number.
+     */
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = :balance, a.version = a.version + 1 WHERE a.accountNumber = :accountNumber")
+    int updateBalanceByAccountNumber(String accountNumber, Double balance);
 
     /**
      * Finds an account for update by the associated user and account number with a pessimistic write lock.
      *
-     * @param user The user associated with the account.
+     * @param userId The ID of the user associated with the account.
      * @param accountNumber The account number to search for.
      * @return An Optional containing the account if found, or empty otherwise.
      */
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    Optional<Account> findForUpdateByUserAndAccountNumber(User user, String accountNumber);
+    Optional<Account> findForUpdateByUserIdAndAccountNumber(Long userId, String accountNumber);
 
     /**
      * Deletes an account by its account number with a pessimistic write lock.
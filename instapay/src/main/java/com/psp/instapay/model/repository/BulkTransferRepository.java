@@ -0,0 +1,29 @@
+package com.psp.instapay.model.repository;
+
+import com.psp.instapay.model.entity.BulkTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for managing BulkTransfer entities.
+ * Extends JpaRepository to provide CRUD operations and custom queries.
+ */
+@Repository
+public interface BulkTransferRepository extends JpaRepository<BulkTransfer, Long> {
+
+    /**
+     * Finds a bulk transfer by its ID, provided that the specified user owns its source account.
+     * The source account is fetched with the bulk transfer.
+     *
+     * @param id The ID of the bulk transfer.
+     * @param userId The ID of the user who must own the source account.
+     * @return An Optional containing the bulk transfer if found, or empty otherwise.
+     */
+    @Query(
+            "SELECT b FROM BulkTransfer b JOIN FETCH b.sourceAccount a WHERE b.id = :id AND a.user.id = :userId"
+    )
+    Optional<BulkTransfer> findByIdAndSourceAccountUserId(Long id, Long userId);
+}
@@ -1,13 +1,22 @@
 package com.psp.instapay.model.repository;
 
-import com.psp.instapay.model.entity.Account;
+import com.psp.instapay.model.dto.TransactionDTO;
 import com.psp.instapay.model.entity.Transaction;
-import jakarta.persistence.LockModeType;
+import com.psp.instapay.model.enums.TransactionStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Transaction entities.
@@ -17,13 +26,200 @@ import java.util.List;
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     /**
-     * Retrieves all transactions where the specified account is either the sender or the receiver.
-     * Applies a pessimistic read lock to prevent concurrent modifications.
+     * Retrieves the IDs of one page of the transactions involving an account of the given user, newest first,
+     * without locks. The sent and the received transactions are read by the two branches of a UNION, each joining
+     * the user's accounts to the transaction index of its side, (from_account_id, transaction_date, id) or
+     * (to_account_id, transaction_date, id), so that each branch is a range scan in index order that stops after
+     * the page. The UNION removes the transfers between two accounts of the user, read by both branches.
+     * The counterparty is the other side of each branch: the receiver of a sent transaction, the sender of a received one.
+     * The page starts after the given cursor, compared on the (transaction date, ID) pair so that transactions
+     * sharing a date are neither skipped nor repeated. Every other filter is ignored when null.
      *
-     * @param fromAccount The account from which the transaction originates.
-     * @param toAccount The account to which the transaction is directed.
-     * @return A list of transactions involving the specified accounts.
+     * @param userId The ID of the user who must own the sender or the receiver account.
+     * @param accountId The ID of an account of the user that must be the sender or the receiver, or null.
+     * @param cursorDate The date of the last transaction of the previous page, or null for the first page.
+     * @param cursorId The ID of the last transaction of the previous page, or null for the first page.
+     * @param fromDate The date from which transactions are listed, inclusive, or null.
+     * @param toDate The date until which transactions are listed, exclusive, or null.
+     * @param counterparty The account number of the other party of the user's account, or null.
+     * @param bankId The ID of the bank of either party, or null.
+     * @param status The name of the status of the transactions, or null.
+     * @param minAmount The minimum amount, inclusive, or null.
+     * @param maxAmount The maximum amount, inclusive, or null.
+     * @param limit The maximum number of IDs to return.
+     * @return The IDs of the transactions of the page, newest first.
      */
-    @Lock(LockModeType.PESSIMISTIC_READ)
-    List<Transaction> findAllByFromAccountOrToAccount(Account fromAccount, Account toAccount);
+    @Query(
+            value = "SELECT h.id FROM (" +
+                    "(SELECT t.id, t.transaction_date FROM transaction t JOIN account a ON a.id = t.from_account_id " +
+                    "WHERE a.user_id = :userId AND (:accountId IS NULL OR a.id = :accountId) " +
+                    "AND (:cursorDate IS NULL OR t.transaction_date < :cursorDate " +
+                    "OR (t.transaction_date = :cursorDate AND t.id < :cursorId)) " +
+                    "AND (:fromDate IS NULL OR t.transaction_date >= :fromDate) " +
+                    "AND (:toDate IS NULL OR t.transaction_date < :toDate) " +
+                    "AND (:counterparty IS NULL OR t.to_account_id IN (SELECT c.id FROM account c WHERE c.account_number = :counterparty)) " +
+                    "AND (:bankId IS NULL OR t.from_bank_id = :bankId OR t.to_bank_id = :bankId) " +
+                    "AND (:status IS NULL OR t.status = :status) " +
+                    "AND (:minAmount IS NULL OR t.amount >= :minAmount) " +
+                    "AND (:maxAmount IS NULL OR t.amount <= :maxAmount) " +
+                    "ORDER BY t.transaction_date DESC, t.id DESC LIMIT :limit) " +
+                    "UNION " +
+                    "(SELECT t.id, t.transaction_date FROM transaction t JOIN account a ON a.id = t.to_account_id " +
+                    "WHERE a.user_id = :userId AND (:accountId IS NULL OR a.id = :accountId) " +
+                    "AND (:cursorDate IS NULL OR t.transaction_date < :cursorDate " +
+                    "OR (t.transaction_date = :cursorDate AND t.id < :cursorId)) " +
+                    "AND (:fromDate IS NULL OR t.transaction_date >= :fromDate) " +
+                    "AND (:toDate IS NULL OR t.transaction_date < :toDate) " +
+                    "AND (:counterparty IS NULL OR t.from_account_id IN (SELECT c.id FROM account c WHERE c.account_number = :counterparty)) " +
+                    "AND (:bankId IS NULL OR t.from_bank_id = :bankId OR t.to_bank_id = :bankId) " +
+                    "AND (:status IS NULL OR t.status = :status) " +
+                    "AND (:minAmount IS NULL OR t.amount >= :minAmount) " +
+                    "AND (:maxAmount IS NULL OR t.amount <= :maxAmount) " +
+                    "ORDER BY t.transaction_date DESC, t.id DESC LIMIT :limit)" +
+                    ") h ORDER BY h.transaction_date DESC, h.id DESC LIMIT :limit",
+            nativeQuery = true
+    )
+    List<Long> findHistoryIds(Long userId, Long accountId, LocalDateTime cursorDate, Long cursorId,
+                              LocalDateTime fromDate, LocalDateTime toDate, String counterparty, Long bankId,
+                              String status, Double minAmount, Double maxAmount, int limit);
+
+    /**
+     * Retrieves the transactions with the given IDs as flat rows, joined to their accounts and banks in a single
+     * query, without loading any entity.
+     *
+     * @param ids The IDs of the transactions.
+     * @return The transactions found, in no particular order.
+     */
+    @Query(
+            "SELECT new com.psp.instapay.model.dto.TransactionDTO(t.id, fa.accountNumber, ta.accountNumber, " +
+            "fb.name, tb.name, t.amount, t.status, t.transactionDate) " +
+            "FROM Transaction t JOIN t.fromAccount fa JOIN t.toAccount ta JOIN t.fromBank fb JOIN t.toBank tb " +
+            "WHERE t.id IN :ids"
+    )
+    List<TransactionDTO> findDTOsByIdIn(Collection<Long> ids);
+
+    /**
+     * Streams every transaction involving an account of the given user, newest first, as flat rows mapped by the
+     * query itself, so that no entity is loaded or kept in the persistence context while the stream is read.
+     * The rows are read through a forward-only cursor: the MySQL driver streams a result set fetched with the
+     * minimum fetch size row by row instead of loading it whole, so memory use does not grow with the history.
+     * The stream must be read and closed within a read-only transaction.
+     *
+     * @param userId The ID of the user who must own the sender or the receiver account.
+     * @return A stream of the transactions of the user, newest first.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(
+            "SELECT new com.psp.instapay.model.dto.TransactionDTO(t.id, fa.accountNumber, ta.accountNumber, " +
+            "fb.name, tb.name, t.amount, t.status, t.transactionDate) " +
+            "FROM Transaction t JOIN t.fromAccount fa JOIN t.toAccount ta JOIN t.fromBank fb JOIN t.toBank tb " +
+            "WHERE fa.user.id = :userId OR ta.user.id = :userId " +
+            "ORDER BY t.transactionDate DESC, t.id DESC"
+    )
+    Stream<TransactionDTO> streamHistory(Long userId);
+
+    /**
+     * Finds a transaction by its ID, provided that the specified user owns either the sender or the receiver account.
+     *
+     * @param id The ID of the transaction.
+     * @param userId The ID of the user who must own one of the accounts involved in the transaction.
+     * @return An Optional containing the transaction if found, or empty otherwise.
+     */
+    @Query(
+            "SELECT t FROM Transaction t WHERE t.id = :id AND (t.fromAccount.user.id = :userId OR t.toAccount.user.id = :userId)"
+    )
+    Optional<Transaction> findByIdAndAccountUserId(Long id, Long userId);
+
+    /**
+     * Retrieves a batch of transactions in one of the given statuses, created before the given time,
+     * with an ID greater than the given one, ordered by ID. The banks of each transaction are fetched with it.
+     *
+     * @param statuses The statuses to look for.
+     * @param before The time before which the transactions must have been created.
+     * @param afterId The ID after which to start, 0 for the first batch.
+     * @param pageable The size of the batch.
+     * @return A list of matching transactions.
+     */
+    @Query(
+            "SELECT t FROM Transaction t JOIN FETCH t.fromBank JOIN FETCH t.toBank " +
+            "WHERE t.status IN :statuses AND t.transactionDate < :before AND t.id > :afterId ORDER BY t.id"
+    )
+    List<Transaction> findRecoverable(Collection<TransactionStatus> statuses, LocalDateTime before, Long afterId, Pageable pageable);
+
+    /**
+     * Retrieves a batch of INITIATED transfers between two accounts of the same bank, created before the given time,
+     * with an ID greater than the given one, ordered by ID. The banks of each transaction are fetched with it.
+     *
+     * @param before The time before which the transactions must have been created.
+     * @param afterId The ID after which to start, 0 for the first batch.
+     * @param pageable The size of the batch.
+     * @return A list of matching transactions.
+     */
+    @Query(
+            "SELECT t FROM Transaction t JOIN FETCH t.fromBank JOIN FETCH t.toBank " +
+            "WHERE t.status = com.psp.instapay.model.enums.TransactionStatus.INITIATED AND t.fromBank = t.toBank " +
+            "AND t.transactionDate < :before AND t.id > :afterId ORDER BY t.id"
+    )
+    List<Transaction> findRecoverableInternalTransfers(LocalDateTime before, Long afterId, Pageable pageable);
+
+    /**
+     * Retrieves all transactions of a bulk transfer, ordered by ID, as flat rows joined to their accounts and banks
+     * in a single query, without loading any entity.
+     *
+     * @param bulkTransferId The ID of the bulk transfer.
+     * @return A list of the transactions of the bulk transfer.
+     */
+    @Query(
+            "SELECT new com.psp.instapay.model.dto.TransactionDTO(t.id, fa.accountNumber, ta.accountNumber, " +
+            "fb.name, tb.name, t.amount, t.status, t.transactionDate) " +
+            "FROM Transaction t JOIN t.fromAccount fa JOIN t.toAccount ta JOIN t.fromBank fb JOIN t.toBank tb " +
+            "WHERE t.bulkTransfer.id = :bulkTransferId ORDER BY t.id"
+    )
+    List<TransactionDTO> findDTOsByBulkTransferId(Long bulkTransferId);
+
+    /**
+     * Retrieves the transaction a user sent with the given idempotency key, with its accounts.
+     *
+     * @param idempotencyUserId The ID of the user who sent the key.
+     * @param idempotencyKey The idempotency key.
+     * @return An Optional containing the transaction if found, or empty if not found.
+     */
+    @Query(
+            "SELECT t FROM Transaction t JOIN FETCH t.fromAccount JOIN FETCH t.toAccount " +
+            "WHERE t.idempotencyUserId = :idempotencyUserId AND t.idempotencyKey = :idempotencyKey"
+    )
+    Optional<Transaction> findByIdempotencyUserIdAndIdempotencyKey(Long idempotencyUserId, String idempotencyKey);
+
+    /**
+     * Retrieves a transaction by its ID with its accounts and banks, so that it can be driven to completion
+     * after the database transaction it was read in has ended.
+     *
+     * @param id The ID of the transaction.
+     * @return An Optional containing the transaction if found, or empty if not found.
+     */
+    @Query(
+            "SELECT t FROM Transaction t JOIN FETCH t.fromAccount JOIN FETCH t.toAccount " +
+            "JOIN FETCH t.fromBank JOIN FETCH t.toBank WHERE t.id = :id"
+    )
+    Optional<Transaction> findWithAccountsById(Long id);
+
+    /**
+     * Moves a transaction to a new status and records the IDs of its legs, provided it is still in the expected
+     * status, in a single statement that increments its version.
+     *
+     * @param id The ID of the transaction.
+     * @param expectedStatus The status the transaction must be in.
+     * @param status The new status of the transaction.
+     * @param sourceBankTransactionId The ID of the withdrawal leg, or null if it is unknown.
+     * @param destinationBankTransactionId The ID of the deposit leg, or null if it is unknown.
+     * @return 1 if the transaction was moved, 0 if it is not in the expected status.
+     */
+    @Modifying
+    @Query(
+            "UPDATE Transaction t SET t.status = :status, t.sourceBankTransactionId = :sourceBankTransactionId, " +
+            "t.destinationBankTransactionId = :destinationBankTransactionId, t.version = t.version + 1 " +
+            "WHERE t.id = :id AND t.status = :expectedStatus"
+    )
+    int updateStatus(Long id, TransactionStatus expectedStatus, TransactionStatus status,
+                     Long sourceBankTransactionId, Long destinationBankTransactionId);
 }
\ No newline at end of file
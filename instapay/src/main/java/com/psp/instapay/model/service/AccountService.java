@@ -1,9 +1,10 @@
 package com.psp.instapay.model.service;
 
 import com.psp.instapay.model.dto.AccountDTO;
-import com.psp.instapay.model.dto.TransactionDTO;
 import com.psp.instapay.model.dto.request.AccountDetailsRequest;
 import com.psp.instapay.model.dto.request.GetAccountsRequest;
+import com.psp.instapay.model.dto.request.TransactionHistoryRequest;
+import com.psp.instapay.model.dto.response.TransactionHistoryResponse;
 
 import java.util.List;
 
@@ -45,12 +46,12 @@ public interface AccountService {
     List<AccountDTO> addAccounts(GetAccountsRequest addAccountRequest);
 
     /**
-     * Retrieves the transaction history for a specific account.
+     * Retrieves one page of the transaction history of a specific account, newest first.
      *
-     * @param accountNumber The request containing the account number.
-     * @return A list of transactions associated with the account as TransactionDTOs.
+     * @param request The account number, cursor, page size and filters of the page.
+     * @return A TransactionHistoryResponse containing the transactions of the page and the cursor of the next one.
      */
-    List<TransactionDTO> getAccountTransactionHistory(AccountDetailsRequest accountNumber);
+    TransactionHistoryResponse getAccountTransactionHistory(TransactionHistoryRequest request);
 
     /**
      * Deletes an account by its account number.
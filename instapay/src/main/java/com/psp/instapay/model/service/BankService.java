@@ -0,0 +1,17 @@
+package com.psp.instapay.model.service;
+
+import java.util.List;
+
+/**
+ * Service interface for managing the banks known to the application.
+ * Provides a method for reloading the banks after the bank table changed.
+ */
+public interface BankService {
+
+    /**
+     * Reloads the banks and the clients of their APIs from the bank table.
+     *
+     * @return The names of the registered banks, in alphabetical order.
+     */
+    List<String> refreshBanks();
+}
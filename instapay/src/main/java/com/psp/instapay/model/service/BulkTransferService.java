@@ -0,0 +1,27 @@
+package com.psp.instapay.model.service;
+
+import com.psp.instapay.model.dto.request.BulkTransferRequest;
+import com.psp.instapay.model.dto.response.BulkTransferResponse;
+
+/**
+ * Service interface for managing bulk transfers.
+ * Provides methods for submitting many transfers from one source account and tracking their progress.
+ */
+public interface BulkTransferService {
+
+    /**
+     * Validates and accepts a bulk transfer, whose transfers are then processed in the background.
+     *
+     * @param request The request containing the transfers to send.
+     * @return A BulkTransferResponse containing the ID of the accepted bulk transfer.
+     */
+    BulkTransferResponse submitBulkTransfer(BulkTransferRequest request);
+
+    /**
+     * Retrieves the progress of a bulk transfer and the status of each of its transfers.
+     *
+     * @param bulkTransferId The ID of the bulk transfer.
+     * @return A BulkTransferResponse containing the progress of the bulk transfer.
+     */
+    BulkTransferResponse getBulkTransfer(Long bulkTransferId);
+}
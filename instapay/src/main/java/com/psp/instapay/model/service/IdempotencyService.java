@@ -0,0 +1,21 @@
+package com.psp.instapay.model.service;
+
+import com.psp.instapay.model.dto.request.SendMoneyRequest;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+
+/**
+ * Service interface for sending money at most once per idempotency key.
+ * Provides a method for retrying a transfer safely, e.g. after a client-side timeout.
+ */
+public interface IdempotencyService {
+
+    /**
+     * Sends money from one account to another, unless a transfer was already sent with the same idempotency key,
+     * in which case the outcome of that transfer is returned instead.
+     *
+     * @param request The request containing details of the transaction, such as sender, receiver, and amount.
+     * @param idempotencyKey The idempotency key chosen by the client, or null to send the transfer unconditionally.
+     * @return A TransactionResponse containing details of the completed transaction.
+     */
+    TransactionResponse sendMoney(SendMoneyRequest request, String idempotencyKey);
+}
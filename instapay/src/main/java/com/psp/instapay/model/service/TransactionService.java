@@ -1,9 +1,14 @@
 package com.psp.instapay.model.service;
 
-import com.psp.instapay.model.dto.TransactionDTO;
 import com.psp.instapay.model.dto.request.SendMoneyRequest;
+import com.psp.instapay.model.dto.request.TransactionHistoryRequest;
+import com.psp.instapay.model.dto.response.TransactionHistoryResponse;
 import com.psp.instapay.model.dto.response.TransactionResponse;
+import com.psp.instapay.model.enums.ExportFormat;
+import com.psp.instapay.util.AccountSequencer;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -16,14 +21,48 @@ public interface TransactionService {
      * Sends money from one account to another.
      *
      * @param request The request containing details of the transaction, such as sender, receiver, and amount.
+     * @param idempotencyKey The idempotency key stored on the transaction, or null if none was sent.
      * @return A TransactionResponse containing details of the completed transaction.
      */
-    TransactionResponse sendMoney(SendMoneyRequest request);
+    TransactionResponse sendMoney(SendMoneyRequest request, String idempotencyKey);
 
     /**
-     * Retrieves the transaction history for all accounts.
+     * Accepts a money transfer and processes it in the background.
      *
-     * @return A list of transactions as TransactionDTOs.
+     * @param request The request containing details of the transaction, such as sender, receiver, and amount.
+     * @return A TransactionResponse containing the ID of the accepted transaction.
+     */
+    TransactionResponse sendMoneyAsync(SendMoneyRequest request);
+
+    /**
+     * Retrieves the current status of a transaction.
+     *
+     * @param transactionId The ID of the transaction.
+     * @return A TransactionResponse containing the ID and the current status of the transaction.
+     */
+    TransactionResponse getTransactionStatus(Long transactionId);
+
+    /**
+     * Retrieves one page of the transaction history of the user's accounts, newest first.
+     *
+     * @param request The cursor, page size and filters of the page, or null for the first page without filters.
+     * @return A TransactionHistoryResponse containing the transactions of the page and the cursor of the next one.
+     */
+    TransactionHistoryResponse getTransactionHistory(TransactionHistoryRequest request);
+
+    /**
+     * Writes the whole transaction history of the user's accounts to a stream, newest first, one transaction per line.
+     *
+     * @param format The format of the export.
+     * @param out The stream the export is written to; it is flushed but not closed.
+     * @throws IOException If the export cannot be written to the stream.
+     */
+    void exportTransactionHistory(ExportFormat format, OutputStream out) throws IOException;
+
+    /**
+     * Retrieves the queue of transfers of every account with transfers in progress.
+     *
+     * @return The queue of each busy account, longest first.
      */
-    List<TransactionDTO> getTransactionHistory();
-}
\ No newline at end of file
+    List<AccountSequencer.QueueSnapshot> getAccountQueues();
+}
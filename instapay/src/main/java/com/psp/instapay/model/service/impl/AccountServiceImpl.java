@@ -3,28 +3,26 @@ package com.psp.instapay.model.service.impl;
 import com.psp.instapay.exception.AccountNotFoundException;
 import com.psp.instapay.exception.BankNotFoundException;
 import com.psp.instapay.exception.CardNotFoundException;
-import com.psp.instapay.exception.UserNotFoundException;
-import com.psp.instapay.mapper.TransactionMapper;
 import com.psp.instapay.model.dto.AccountDTO;
-import com.psp.instapay.model.dto.TransactionDTO;
 import com.psp.instapay.model.dto.request.AccountDetailsRequest;
 import com.psp.instapay.model.dto.request.GetAccountsRequest;
+import com.psp.instapay.model.dto.request.TransactionHistoryRequest;
 import com.psp.instapay.model.dto.response.GetAccountsResponse;
+import com.psp.instapay.model.dto.response.TransactionHistoryResponse;
 import com.psp.instapay.model.entity.Account;
 import com.psp.instapay.model.entity.Bank;
-import com.psp.instapay.model.entity.User;
 import com.psp.instapay.model.repository.AccountRepository;
-import com.psp.instapay.model.repository.BankRepository;
-import com.psp.instapay.model.repository.TransactionRepository;
 import com.psp.instapay.model.repository.UserRepository;
 import com.psp.instapay.model.service.AccountService;
+import com.psp.instapay.model.service.TransactionService;
 import com.psp.instapay.client.BankClientFactory;
 import com.psp.instapay.mapper.AccountMapper;
+import com.psp.instapay.security.AuthenticatedUser;
+import com.psp.instapay.util.AccountBalanceCache;
+import com.psp.instapay.util.BankRegistry;
 import com.psp.instapay.util.EncryptionUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -35,6 +33,7 @@ import java.util.Map;
 /**
  * Implementation of the AccountService interface.
  * Provides methods for managing accounts, including retrieval, addition, deletion, and transaction history.
+ * Retrieved accounts carry their live balance from the AccountBalanceCache rather than the last copied one.
  */
 @Service
 @RequiredArgsConstructor
@@ -42,12 +41,12 @@ import java.util.Map;
 public class AccountServiceImpl implements AccountService {
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
-    private final BankRepository bankRepository;
-    private final TransactionRepository transactionRepository;
+    private final BankRegistry bankRegistry;
     private final AccountMapper accountMapper;
-    private final TransactionMapper transactionMapper;
+    private final TransactionService transactionService;
     private final BankClientFactory bankClientFactory;
     private final EncryptionUtil encryptionUtil;
+    private final AccountBalanceCache accountBalanceCache;
 
     /**
      * Retrieves account details by account number for the authenticated user.
@@ -58,13 +57,14 @@ public class AccountServiceImpl implements AccountService {
      */
     @Override
     public AccountDTO getAccountByAccountNumber(AccountDetailsRequest accountDetailsRequest) {
-        User user = getUser();
+        AuthenticatedUser user = AuthenticatedUser.current();
 
         String accountNumber = accountDetailsRequest.getAccountNumber();
 
-        return accountRepository.findByUserAndAccountNumber(user, accountNumber)
-                .map(accountMapper::toAccountDTO)
+        AccountDTO account = accountRepository.findDTOByUserIdAndAccountNumber(user.id(), accountNumber)
                 .orElseThrow(() -> new AccountNotFoundException("Account not found"));
+
+        return withLiveBalances(List.of(account)).getFirst();
     }
 
     /**
@@ -74,12 +74,9 @@ public class AccountServiceImpl implements AccountService {
      */
     @Override
     public List<AccountDTO> getAllAccounts() {
-        User user = getUser();
+        AuthenticatedUser user = AuthenticatedUser.current();
 
-        return accountRepository.findAllByUser(user)
-                .stream()
-                .map(accountMapper::toAccountDTO)
-                .toList();
+        return withLiveBalances(accountRepository.findDTOsByUserId(user.id()));
     }
 
     /**
@@ -91,15 +88,12 @@ public class AccountServiceImpl implements AccountService {
      */
     @Override
     public List<AccountDTO> getAllAccountsByBankName(String bankName) {
-        User user = getUser();
+        AuthenticatedUser user = AuthenticatedUser.current();
 
-        Bank bank = bankRepository.findByName(bankName.toUpperCase())
+        Bank bank = bankRegistry.findByName(bankName.toUpperCase())
                 .orElseThrow(() -> new BankNotFoundException("Bank not found"));
 
-        return accountRepository.findAllByUserAndBank(user, bank)
-                .stream()
-                .map(accountMapper::toAccountDTO)
-                .toList();
+        return withLiveBalances(accountRepository.findDTOsByUserIdAndBankId(user.id(), bank.getId()));
     }
 
     /**
@@ -112,10 +106,10 @@ public class AccountServiceImpl implements AccountService {
      */
     @Override
     public List<AccountDTO> addAccounts(GetAccountsRequest getAccountsRequest) {
-        User user = getUser();
+        AuthenticatedUser user = AuthenticatedUser.current();
 
         String bankName = getAccountsRequest.getBankName().toUpperCase();
-        Bank bank = bankRepository.findByName(bankName)
+        Bank bank = bankRegistry.findByName(bankName)
                 .orElseThrow(() -> new BankNotFoundException("Bank not found"));
 
         // Create a new request with an encrypted card number, PIN, and phone number
@@ -123,7 +117,7 @@ public class AccountServiceImpl implements AccountService {
                 .bankName(getAccountsRequest.getBankName())
                 .cardNumber(encryptionUtil.encrypt(getAccountsRequest.getCardNumber()))
                 .pin(encryptionUtil.encrypt(getAccountsRequest.getPin()))
-                .phoneNumber(encryptionUtil.encryptPhoneNumber(user.getPhoneNumber()))
+                .phoneNumber(encryptionUtil.encryptPhoneNumber(user.phoneNumber()))
                 .build();
 
         GetAccountsResponse accountsResponse = bankClientFactory.getBankClient(bankName)
@@ -133,7 +127,7 @@ public class AccountServiceImpl implements AccountService {
 
         List<AccountDTO> accountDTOs = new ArrayList<>();
         for (String accountNumber : accounts.keySet()) {
-            if (accountRepository.existsByUserAndAccountNumber(user, accountNumber)) {
+            if (accountRepository.existsByUserIdAndAccountNumber(user.id(), accountNumber)) {
                 continue;
             }
 
@@ -144,7 +138,7 @@ public class AccountServiceImpl implements AccountService {
             Account newAccount = new Account();
             newAccount.setAccountNumber(accountNumber);
             newAccount.setBalance(accounts.get(accountNumber));
-            newAccount.setUser(user);
+            newAccount.setUser(userRepository.getReferenceById(user.id()));
             newAccount.setBank(bank);
             accountRepository.save(newAccount);
 
@@ -156,25 +150,18 @@ public class AccountServiceImpl implements AccountService {
     }
 
     /**
-     * Retrieves the transaction history for a specific account of the authenticated user.
+     * Retrieves one page of the transaction history for a specific account of the authenticated user, newest first.
      *
-     * @param accountDetailsRequest The request containing the account number.
-     * @return A list of transactions associated with the account as TransactionDTOs.
-     * @throws AccountNotFoundException If the account is not found.
+     * @param request The account number, cursor, page size and filters of the page.
+     * @return A TransactionHistoryResponse containing the transactions of the page and the cursor of the next one.
+     * @throws AccountNotFoundException If no account number is given, or the account is not found.
      */
     @Override
-    @Transactional
-    public List<TransactionDTO> getAccountTransactionHistory(AccountDetailsRequest accountDetailsRequest) {
-        User user = getUser();
-        String accountNumber = accountDetailsRequest.getAccountNumber();
-
-        Account account = accountRepository.findByUserAndAccountNumber(user, accountNumber)
-                .orElseThrow(() -> new AccountNotFoundException("Account not found"));
+    public TransactionHistoryResponse getAccountTransactionHistory(TransactionHistoryRequest request) {
+        if (request.getAccountNumber() == null)
+            throw new AccountNotFoundException("Account number is required");
 
-        return transactionRepository.findAllByFromAccountOrToAccount(account, account)
-                .stream()
-                .map(transactionMapper::toTransactionDTO)
-                .toList();
+        return transactionService.getTransactionHistory(request);
     }
 
     /**
@@ -186,9 +173,9 @@ public class AccountServiceImpl implements AccountService {
     @Override
     @Transactional
     public void deleteAccount(String accountNumber) {
-        User user = getUser();
+        AuthenticatedUser user = AuthenticatedUser.current();
 
-        if (accountRepository.existsByUserAndAccountNumber(user, accountNumber)) {
+        if (accountRepository.existsByUserIdAndAccountNumber(user.id(), accountNumber)) {
             accountRepository.deleteByAccountNumber(accountNumber);
         } else {
             throw new AccountNotFoundException("Account not found");
@@ -196,14 +183,15 @@ public class AccountServiceImpl implements AccountService {
     }
 
     /**
-     * Retrieves the currently authenticated user.
+     * Replaces the balances last copied to accounts with their live balances, which are loaded concurrently.
      *
-     * @return The authenticated user as a User entity.
-     * @throws UserNotFoundException If the user is not found.
+     * @param accounts The accounts, read as AccountDTOs.
+     * @return The same accounts carrying their live balances, in the same order.
      */
-    private User getUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        return userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
+    private List<AccountDTO> withLiveBalances(List<AccountDTO> accounts) {
+        Map<String, Double> balances = accountBalanceCache.getBalances(accounts);
+
+        accounts.forEach(account -> account.setBalance(balances.get(account.getAccountNumber())));
+        return accounts;
     }
 }
\ No newline at end of file
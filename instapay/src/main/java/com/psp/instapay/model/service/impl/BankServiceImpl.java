@@ -0,0 +1,34 @@
+package com.psp.instapay.model.service.impl;
+
+import com.psp.instapay.model.service.BankService;
+import com.psp.instapay.util.BankRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Implementation of the BankService interface.
+ * Refreshes the bank registry, which rebuilds the bank clients of the banks whose endpoints changed,
+ * so that a bank added to the table or given new endpoints can be used right away.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BankServiceImpl implements BankService {
+    private final BankRegistry bankRegistry;
+
+    /**
+     * Reloads the banks and the clients of their APIs from the bank table.
+     *
+     * @return The names of the registered banks, in alphabetical order.
+     */
+    @Override
+    public List<String> refreshBanks() {
+        List<String> banks = bankRegistry.refresh();
+
+        log.info("Banks refreshed: {}", banks);
+        return banks;
+    }
+}
@@ -0,0 +1,302 @@
+package com.psp.instapay.model.service.impl;
+
+import com.psp.instapay.coordinator.TransactionCoordinator;
+import com.psp.instapay.exception.AccountNotFoundException;
+import com.psp.instapay.exception.BulkTransferNotFoundException;
+import com.psp.instapay.exception.InsufficientBalanceException;
+import com.psp.instapay.exception.TransactionException;
+import com.psp.instapay.exception.TransactionNotFoundException;
+import com.psp.instapay.exception.UserNotFoundException;
+import com.psp.instapay.model.dto.TransactionDTO;
+import com.psp.instapay.model.dto.request.BulkTransferRequest;
+import com.psp.instapay.model.dto.request.SendMoneyRequest;
+import com.psp.instapay.model.dto.response.BulkTransferResponse;
+import com.psp.instapay.model.entity.Account;
+import com.psp.instapay.model.entity.BulkTransfer;
+import com.psp.instapay.model.entity.Transaction;
+import com.psp.instapay.model.enums.TransactionStatus;
+import com.psp.instapay.model.repository.AccountRepository;
+import com.psp.instapay.model.repository.BulkTransferRepository;
+import com.psp.instapay.model.repository.TransactionRepository;
+import com.psp.instapay.model.service.BulkTransferService;
+import com.psp.instapay.security.AuthenticatedUser;
+import com.psp.instapay.util.TransactionRetry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the BulkTransferService interface.
+ * A bulk transfer is validated as a whole with set-based queries and persisted with all its transfers in one
+ * database transaction. The transfers are then pipelined through the 2PC: one dispatcher per destination bank
+ * feeds its transfers to the executor, keeping at most a configured number of them in flight per bank.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkTransferServiceImpl implements BulkTransferService {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final BulkTransferRepository bulkTransferRepository;
+    private final TransactionCoordinator transactionCoordinator;
+    private final ExecutorService bulkTransferExecutor;
+    private final TransactionTemplate transferTransactionTemplate;
+    private final TransactionRetry transactionRetry;
+
+    /**
+     * The maximum number of bulk transfer items processed concurrently against the same destination bank.
+     * Loaded from the application properties.
+     */
+    @Value("${transaction.bulk.per-bank-concurrency}")
+    private int perBankConcurrency;
+
+    private final Map<String, Semaphore> bankPermits = new ConcurrentHashMap<>();
+
+    /**
+     * Validates and accepts a bulk transfer, then starts processing its transfers in the background.
+     *
+     * @param request The request containing the transfers to send.
+     * @return A BulkTransferResponse containing the ID of the accepted bulk transfer, with all transfers INITIATED.
+     * @throws UserNotFoundException If the authenticated user is not found.
+     * @throws AccountNotFoundException If the source account or any destination account is not found.
+     * @throws InsufficientBalanceException If the source account cannot cover the sum of all transfers.
+     * @throws TransactionException If the transfers do not share one source account or one of them targets it.
+     * @throws ConcurrencyFailureException If the source account is too contended for the bulk transfer to be initiated.
+     */
+    @Override
+    public BulkTransferResponse submitBulkTransfer(BulkTransferRequest request) {
+        AuthenticatedUser user = AuthenticatedUser.current();
+
+        log.info("Initiating bulk transfer of {} transfers for user: {}", request.getTransfers().size(), user.username());
+
+        List<Transaction> transactions = transactionRetry.execute("initiateBulkTransfer", () ->
+                transferTransactionTemplate.execute(status -> initiateBulkTransfer(user, request)));
+        BulkTransfer bulkTransfer = transactions.getFirst().getBulkTransfer();
+
+        log.info("Bulk transfer initiated successfully: {}", bulkTransfer.getId());
+
+        Map<String, List<Long>> transactionIdsByBank = transactions.stream()
+                .collect(Collectors.groupingBy(
+                        transaction -> transaction.getToBank().getName(),
+                        LinkedHashMap::new,
+                        Collectors.mapping(Transaction::getId, Collectors.toList())));
+        transactionIdsByBank.forEach((bank, transactionIds) -> {
+            try {
+                bulkTransferExecutor.execute(() -> dispatch(bulkTransfer.getId(), bank, transactionIds));
+            } catch (RejectedExecutionException e) {
+                log.error("Bulk transfer dispatcher rejected, failing its transfers: {}, {}", bulkTransfer.getId(), bank);
+
+                failUndispatched(bulkTransfer.getId(), transactionIds);
+            }
+        });
+
+        return BulkTransferResponse.builder()
+                .bulkTransferId(bulkTransfer.getId())
+                .sourceAccountNumber(bulkTransfer.getSourceAccount().getAccountNumber())
+                .totalCount(bulkTransfer.getTotalCount())
+                .totalAmount(bulkTransfer.getTotalAmount())
+                .statusCounts(Map.of(TransactionStatus.INITIATED, (long) transactions.size()))
+                .createdAt(bulkTransfer.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Retrieves the progress of a bulk transfer of the authenticated user and the status of each of its transfers.
+     *
+     * @param bulkTransferId The ID of the bulk transfer.
+     * @return A BulkTransferResponse containing the number of transfers in each status and the transfers themselves.
+     * @throws UserNotFoundException If the authenticated user is not found.
+     * @throws BulkTransferNotFoundException If the user has no bulk transfer with the given ID.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BulkTransferResponse getBulkTransfer(Long bulkTransferId) {
+        AuthenticatedUser user = AuthenticatedUser.current();
+
+        BulkTransfer bulkTransfer = bulkTransferRepository.findByIdAndSourceAccountUserId(bulkTransferId, user.id())
+                .orElseThrow(() -> new BulkTransferNotFoundException("Bulk transfer not found"));
+
+        List<TransactionDTO> transfers = transactionRepository.findDTOsByBulkTransferId(bulkTransferId);
+
+        Map<TransactionStatus, Long> statusCounts = transfers.stream()
+                .collect(Collectors.groupingBy(
+                        TransactionDTO::getStatus,
+                        () -> new EnumMap<>(TransactionStatus.class),
+                        Collectors.counting()));
+
+        return BulkTransferResponse.builder()
+                .bulkTransferId(bulkTransfer.getId())
+                .sourceAccountNumber(bulkTransfer.getSourceAccount().getAccountNumber())
+                .totalCount(bulkTransfer.getTotalCount())
+                .totalAmount(bulkTransfer.getTotalAmount())
+                .statusCounts(statusCounts)
+                .transfers(transfers)
+                .createdAt(bulkTransfer.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Validates a bulk transfer and persists it with all its transfers as INITIATED.
+     * The source account is locked once, and all destination accounts are loaded with a single query.
+     *
+     * @param user The authenticated user.
+     * @param request The request containing the transfers to send.
+     * @return The persisted transactions, in request order.
+     */
+    private List<Transaction> initiateBulkTransfer(AuthenticatedUser user, BulkTransferRequest request) {
+        List<SendMoneyRequest> transfers = request.getTransfers();
+
+        String sourceAccountNumber = transfers.getFirst().getSourceAccountNumber();
+        if (transfers.stream().anyMatch(transfer -> !sourceAccountNumber.equals(transfer.getSourceAccountNumber())))
+            throw new TransactionException("All transfers of a bulk transfer must share the same source account");
+
+        Account sourceAccount = accountRepository.findForUpdateByUserIdAndAccountNumber(user.id(), sourceAccountNumber)
+                .orElseThrow(() -> new AccountNotFoundException("Source account not found"));
+
+        Set<String> destinationAccountNumbers = transfers.stream()
+                .map(SendMoneyRequest::getDestinationAccountNumber)
+                .collect(Collectors.toSet());
+        if (destinationAccountNumbers.contains(sourceAccountNumber))
+            throw new TransactionException("Source and destination accounts cannot be the same");
+
+        Map<String, Account> destinationAccounts = accountRepository.findAllByAccountNumberIn(destinationAccountNumbers).stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+
+        List<String> missingAccountNumbers = destinationAccountNumbers.stream()
+                .filter(accountNumber -> !destinationAccounts.containsKey(accountNumber))
+                .sorted()
+                .toList();
+        if (!missingAccountNumbers.isEmpty())
+            throw new AccountNotFoundException("Destination accounts not found: " + missingAccountNumbers);
+
+        double totalAmount = transfers.stream().mapToDouble(SendMoneyRequest::getAmount).sum();
+        if (sourceAccount.getBalance() < totalAmount)
+            throw new InsufficientBalanceException("Insufficient funds in source account for the bulk transfer");
+
+        BulkTransfer bulkTransfer = bulkTransferRepository.save(BulkTransfer.builder()
+                .sourceAccount(sourceAccount)
+                .totalCount(transfers.size())
+                .totalAmount(totalAmount)
+                .build());
+
+        List<Transaction> transactions = transfers.stream()
+                .map(transfer -> {
+                    Account destinationAccount = destinationAccounts.get(transfer.getDestinationAccountNumber());
+                    return Transaction.builder()
+                            .fromAccount(sourceAccount)
+                            .toAccount(destinationAccount)
+                            .fromBank(sourceAccount.getBank())
+                            .toBank(destinationAccount.getBank())
+                            .amount(transfer.getAmount())
+                            .status(TransactionStatus.INITIATED)
+                            .bulkTransfer(bulkTransfer)
+                            .transactionDate(LocalDateTime.now())
+                            .build();
+                })
+                .toList();
+
+        return transactionRepository.saveAll(transactions);
+    }
+
+    /**
+     * Feeds the transfers of a bulk transfer going to one destination bank to the executor,
+     * waiting for a free permit of that bank before starting each transfer.
+     * If the dispatch is interrupted or the executor rejects a transfer, the transfers not yet started are failed.
+     *
+     * @param bulkTransferId The ID of the bulk transfer.
+     * @param bank The name of the destination bank.
+     * @param transactionIds The IDs of the transfers going to the bank, in request order.
+     */
+    private void dispatch(Long bulkTransferId, String bank, List<Long> transactionIds) {
+        Semaphore permits = bankPermits.computeIfAbsent(bank, name -> new Semaphore(perBankConcurrency));
+
+        for (int index = 0; index < transactionIds.size(); index++) {
+            Long transactionId = transactionIds.get(index);
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                log.error("Bulk transfer dispatch interrupted, failing remaining transfers: {}, {}", bulkTransferId, bank);
+
+                failUndispatched(bulkTransferId, transactionIds.subList(index, transactionIds.size()));
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                bulkTransferExecutor.execute(() -> {
+                    try {
+                        processTransfer(transactionId);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+
+                log.error("Bulk transfer dispatch rejected, failing remaining transfers: {}, {}", bulkTransferId, bank);
+
+                failUndispatched(bulkTransferId, transactionIds.subList(index, transactionIds.size()));
+                return;
+            }
+        }
+
+        log.info("All transfers of bulk transfer dispatched to bank: {}, {}", bulkTransferId, bank);
+    }
+
+    /**
+     * Marks the transfers of a bulk transfer that were never started as FAILED, in one short database transaction.
+     * Nothing was sent to the banks for them, so they need no rollback; a transfer that is no longer INITIATED
+     * is left as it is. If they cannot be written, they stay INITIATED and are presumed aborted on the next startup.
+     *
+     * @param bulkTransferId The ID of the bulk transfer.
+     * @param transactionIds The IDs of the transfers that were not started.
+     */
+    private void failUndispatched(Long bulkTransferId, List<Long> transactionIds) {
+        try {
+            transferTransactionTemplate.executeWithoutResult(status -> transactionIds.forEach(transactionId ->
+                    transactionRepository.updateStatus(transactionId, TransactionStatus.INITIATED, TransactionStatus.FAILED, null, null)));
+        } catch (RuntimeException e) {
+            log.error("Failed to fail undispatched transfers of bulk transfer: {}, {}", bulkTransferId, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the 2PC of a single transfer of a bulk transfer.
+     * Failures are recorded on the transaction itself, so they are logged here rather than rethrown.
+     *
+     * @param transactionId The ID of the INITIATED transaction to process.
+     */
+    private void processTransfer(Long transactionId) {
+        Transaction transaction;
+        try {
+            transaction = transactionRepository.findWithAccountsById(transactionId)
+                    .orElseThrow(() -> new TransactionNotFoundException("Transaction not found"));
+        } catch (RuntimeException e) {
+            log.error("Bulk transfer item could not be processed: {}, {}", transactionId, e.getMessage());
+            return;
+        }
+
+        try {
+            transactionCoordinator.execute(transaction);
+        } catch (RuntimeException e) {
+            log.error("Bulk transfer item failed: {}, {}", transactionId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.psp.instapay.model.service.impl;
+
+import com.psp.instapay.exception.DeadlineExceededException;
+import com.psp.instapay.exception.IdempotencyKeyConflictException;
+import com.psp.instapay.exception.TransactionException;
+import com.psp.instapay.model.dto.request.SendMoneyRequest;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+import com.psp.instapay.model.entity.Transaction;
+import com.psp.instapay.model.repository.TransactionRepository;
+import com.psp.instapay.model.service.IdempotencyService;
+import com.psp.instapay.model.service.TransactionService;
+import com.psp.instapay.security.AuthenticatedUser;
+import com.psp.instapay.util.IdempotencyCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.UnexpectedRollbackException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Implementation of the IdempotencyService interface.
+ * Keys are scoped to the authenticated user, so two users choosing the same key never see each other's transfers.
+ * A key is first looked up in the IdempotencyCache: a retry of an attempt still in flight waits for it,
+ * and a retry of a completed attempt gets its outcome. A key missing from the cache is looked up in the
+ * transaction table, whose unique (user, key) constraint guards against attempts on other instances, and the
+ * outcome of the stored transaction is returned without contacting the banks.
+ * Nothing here runs inside a database transaction, so waiting for another attempt holds no locks.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final TransactionService transactionService;
+    private final TransactionRepository transactionRepository;
+    private final IdempotencyCache idempotencyCache;
+
+    /**
+     * The maximum time, in milliseconds, a retry waits for the attempt in flight for the same key.
+     * Loaded from the application properties.
+     */
+    @Value("${idempotency.wait-timeout}")
+    private long waitTimeout;
+
+    /**
+     * Sends money from one account to another at most once per idempotency key.
+     *
+     * @param request The request containing details of the transaction, such as sender, receiver, and amount.
+     * @param idempotencyKey The idempotency key chosen by the client, or null to send the transfer unconditionally.
+     * @return A TransactionResponse containing details of the completed transaction.
+     * @throws TransactionException If the key is malformed, or the transaction sent with the key failed.
+     * @throws IdempotencyKeyConflictException If the key was used for a different request, or its transaction is still being processed.
+     */
+    @Override
+    public TransactionResponse sendMoney(SendMoneyRequest request, String idempotencyKey) {
+        if (idempotencyKey == null)
+            return transactionService.sendMoney(request, null);
+
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH)
+            throw new TransactionException("Idempotency key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+
+        AuthenticatedUser user = AuthenticatedUser.current();
+
+        IdempotencyCache.Lookup lookup = idempotencyCache.getOrCreate(user.username(), idempotencyKey, request);
+        IdempotencyCache.Entry entry = lookup.entry();
+        if (!entry.request().equals(request))
+            throw new IdempotencyKeyConflictException("Idempotency key already used for a different request");
+
+        if (!lookup.created()) {
+            log.info("Waiting for the transaction already sent with idempotency key: {}", idempotencyKey);
+
+            return await(entry);
+        }
+
+        try {
+            TransactionResponse response = replayOrSend(request, idempotencyKey, user.id());
+            entry.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            // The outcome of a failed attempt is stored on its transaction, if one was created, so the next retry reads it from there
+            idempotencyCache.remove(user.username(), idempotencyKey, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the outcome of the transaction the user stored with the idempotency key, or sends the transfer if there is none.
+     *
+     * @param request The request containing details of the transaction.
+     * @param idempotencyKey The idempotency key.
+     * @param userId The ID of the authenticated user.
+     * @return A TransactionResponse containing details of the completed transaction.
+     */
+    private TransactionResponse replayOrSend(SendMoneyRequest request, String idempotencyKey, Long userId) {
+        Transaction stored = transactionRepository.findByIdempotencyUserIdAndIdempotencyKey(userId, idempotencyKey).orElse(null);
+        if (stored != null)
+            return replay(stored, request);
+
+        try {
+            return transactionService.sendMoney(request, idempotencyKey);
+        } catch (DataIntegrityViolationException | UnexpectedRollbackException e) {
+            // A concurrent attempt on another instance stored the key first
+            return transactionRepository.findByIdempotencyUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .map(transaction -> replay(transaction, request))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Returns the outcome of a transaction stored with an idempotency key, without contacting the banks.
+     *
+     * @param transaction The stored transaction, with its accounts.
+     * @param request The request of the retry.
+     * @return A TransactionResponse containing details of the completed transaction.
+     * @throws IdempotencyKeyConflictException If the transaction does not match the retry, or is still being processed.
+     * @throws TransactionException If the transaction failed.
+     * @throws DeadlineExceededException If the transaction timed out.
+     */
+    private TransactionResponse replay(Transaction transaction, SendMoneyRequest request) {
+        if (!transaction.getFromAccount().getAccountNumber().equals(request.getSourceAccountNumber()) ||
+                !transaction.getToAccount().getAccountNumber().equals(request.getDestinationAccountNumber()) ||
+                !transaction.getAmount().equals(request.getAmount()))
+            throw new IdempotencyKeyConflictException("Idempotency key already used for a different request");
+
+        log.info("Replaying transaction sent with idempotency key: {}, {}", transaction.getId(), transaction.getStatus());
+
+        return switch (transaction.getStatus()) {
+            case SUCCESS -> TransactionResponse.builder()
+                    .transactionId(transaction.getId())
+                    .status(transaction.getStatus())
+                    .message("Transaction completed successfully")
+                    .build();
+            case FAILED, ROLLED_BACK -> throw new TransactionException("Transaction failed: " + transaction.getId());
+            case TIMEOUT -> throw new DeadlineExceededException("Transaction timed out: " + transaction.getId());
+            default -> throw new IdempotencyKeyConflictException("Transaction is still being processed: " + transaction.getId());
+        };
+    }
+
+    /**
+     * Waits for the attempt in flight for an idempotency key and returns its outcome.
+     *
+     * @param entry The cache entry of the attempt.
+     * @return The TransactionResponse of the attempt.
+     * @throws IdempotencyKeyConflictException If the attempt does not complete within the wait timeout.
+     * @throws RuntimeException If the attempt failed; its exception is rethrown.
+     */
+    private TransactionResponse await(IdempotencyCache.Entry entry) {
+        try {
+            return entry.result().get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyConflictException("Transaction is still being processed, please try again later");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+
+            throw new TransactionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new TransactionException(e);
+        }
+    }
+}
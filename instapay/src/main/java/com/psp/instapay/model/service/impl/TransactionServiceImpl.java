@@ -1,36 +1,53 @@
 package com.psp.instapay.model.service.impl;
 
-import com.psp.instapay.client.BankClient;
-import com.psp.instapay.client.BankClientFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.psp.instapay.coordinator.TransactionCoordinator;
 import com.psp.instapay.exception.AccountNotFoundException;
+import com.psp.instapay.exception.BankNotFoundException;
 import com.psp.instapay.exception.InsufficientBalanceException;
 import com.psp.instapay.exception.TransactionException;
+import com.psp.instapay.exception.TransactionNotFoundException;
+import com.psp.instapay.exception.TransactionRejectedException;
 import com.psp.instapay.exception.UserNotFoundException;
-import com.psp.instapay.mapper.TransactionMapper;
-import com.psp.instapay.util.EncryptionUtil;
 import com.psp.instapay.model.dto.TransactionDTO;
-import com.psp.instapay.model.dto.request.TransactionRequest;
 import com.psp.instapay.model.dto.request.SendMoneyRequest;
+import com.psp.instapay.model.dto.request.TransactionHistoryRequest;
+import com.psp.instapay.model.dto.response.TransactionHistoryResponse;
 import com.psp.instapay.model.dto.response.TransactionResponse;
 import com.psp.instapay.model.entity.Account;
 import com.psp.instapay.model.entity.Transaction;
-import com.psp.instapay.model.entity.User;
+import com.psp.instapay.model.enums.ExportFormat;
 import com.psp.instapay.model.enums.TransactionStatus;
-import com.psp.instapay.model.enums.TransactionType;
 import com.psp.instapay.model.repository.AccountRepository;
 import com.psp.instapay.model.repository.TransactionRepository;
-import com.psp.instapay.model.repository.UserRepository;
 import com.psp.instapay.model.service.TransactionService;
+import com.psp.instapay.security.AuthenticatedUser;
+import com.psp.instapay.util.AccountSequencer;
+import com.psp.instapay.util.BankRegistry;
+import com.psp.instapay.util.TransactionRetry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the TransactionService interface.
@@ -42,340 +59,376 @@ import java.util.List;
 public class TransactionServiceImpl implements TransactionService {
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
-    private final UserRepository userRepository;
-    private final BankClientFactory bankClientFactory;
-    private final EncryptionUtil encryptionUtil;
-    private final TransactionMapper transactionMapper;
+    private final TransactionCoordinator transactionCoordinator;
+    private final ThreadPoolTaskExecutor transferExecutor;
+    private final TransactionTemplate transferTransactionTemplate;
+    private final TransactionRetry transactionRetry;
+    private final AccountSequencer accountSequencer;
+    private final BankRegistry bankRegistry;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The number of transactions in a page of the transaction history when the request does not set one.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.history.page-size}")
+    private int historyPageSize;
 
     /**
      * Sends money from one account to another.
      * Handles transaction preparation, commitment, and rollback in case of failure.
+     * The transfer waits in memory for its turn on both accounts before touching the database, so transfers
+     * on a busy account run one after the other in arrival order instead of contending for its row lock.
+     * The transaction is validated and persisted as INITIATED in its own short database transaction, run again
+     * if it loses a conflict. The 2PC then runs with no database transaction open, recording its outcome in
+     * a short one of its own, so no connection or row lock is held while the banks are called.
      *
      * @param request The request containing details of the transaction, such as source and destination accounts and the amount.
+     * @param idempotencyKey The idempotency key stored on the transaction, or null if none was sent.
      * @return A TransactionResponse containing the status and details of the completed transaction.
+     * @throws TransactionRejectedException If one of the accounts has too many transfers queued.
      * @throws RuntimeException If any error occurs during the transaction process.
      */
     @Override
-    @Transactional(isolation = Isolation.SERIALIZABLE, noRollbackFor = Exception.class)
-    public TransactionResponse sendMoney(SendMoneyRequest request) {
+    public TransactionResponse sendMoney(SendMoneyRequest request, String idempotencyKey) {
+        return accountSequencer.call(accountNumbersOf(request), () -> send(request, idempotencyKey));
+    }
+
+    /**
+     * Sends money from one account to another, once it is the transfer's turn on both accounts.
+     *
+     * @param request The request containing details of the transaction, such as source and destination accounts and the amount.
+     * @param idempotencyKey The idempotency key stored on the transaction, or null if none was sent.
+     * @return A TransactionResponse containing the status and details of the completed transaction.
+     */
+    private TransactionResponse send(SendMoneyRequest request, String idempotencyKey) {
         // Step 1: Validate the request and initiate the transaction
         log.info("Initiating transaction for request: {}", request);
 
-        Transaction transaction;
+        Long transactionId;
         try {
-            transaction = initiateTransaction(request);
-            transactionRepository.save(transaction);
+            transactionId = initiate(request, idempotencyKey).getId();
         } catch (RuntimeException e) {
             log.error("Transaction initiation failed: {}", e.getMessage());
 
             throw e;
         }
 
-        log.info("Transaction initiated successfully: {}", transaction.getId());
-
-
-        // Step 2: Create bank requests for both source and destination accounts
-        log.info("Creating bank requests for transaction: {}", transaction.getId());
+        log.info("Transaction initiated successfully: {}", transactionId);
 
+        Transaction transaction = transactionRepository.findWithAccountsById(transactionId)
+                .orElseThrow(() -> new TransactionNotFoundException("Transaction not found"));
 
-        // Encrypt the account numbers
-        String encryptedSourceAccountNumber = encryptionUtil.encrypt(request.getSourceAccountNumber());
-        String encryptedDestinationAccountNumber = encryptionUtil.encrypt(request.getDestinationAccountNumber());
-
-        TransactionRequest sourceBankRequest = createTransactionRequest(
-                encryptedSourceAccountNumber,
-                TransactionType.WITHDRAWAL,
-                request.getAmount());
-
-        TransactionRequest destinationBankRequest = createTransactionRequest(
-                encryptedDestinationAccountNumber,
-                TransactionType.DEPOSIT,
-                request.getAmount());
+        return transactionCoordinator.execute(transaction);
+    }
 
-        log.info("Bank requests created successfully for transaction: {}", transaction.getId());
+    /**
+     * Accepts a money transfer for asynchronous processing.
+     * The transaction is validated and persisted as INITIATED in its own short database transaction,
+     * so the account locks are released right away, and the 2PC runs on the bounded transfer executor.
+     * The transfer is only handed to the executor once it is its turn on both accounts, so transfers queued
+     * on a busy account do not hold the executor's workers.
+     *
+     * @param request The request containing details of the transaction, such as source and destination accounts and the amount.
+     * @return A TransactionResponse containing the ID of the accepted transaction and its INITIATED status.
+     * @throws TransactionRejectedException If the transfer executor has no capacity left for the transaction,
+     *         or one of the accounts has too many transfers queued.
+     */
+    @Override
+    public TransactionResponse sendMoneyAsync(SendMoneyRequest request) {
+        log.info("Initiating asynchronous transaction for request: {}", request);
 
+        Long transactionId = initiate(request, null).getId();
 
-        // Step 3: Start the transaction process
-        // Step 1: Get the bank clients for both source and destination banks
-        log.info("Getting bank clients for transaction: {}", transaction.getId());
+        log.info("Transaction initiated successfully: {}", transactionId);
 
-        BankClient sourceBankClient;
-        BankClient destinationBankClient;
+        CompletableFuture<Void> processed;
         try {
-            sourceBankClient = getBankClient(transaction.getFromBank().getName());
-            destinationBankClient = getBankClient(transaction.getToBank().getName());
-        } catch (Exception e) {
-            log.error("Failed to get bank clients: {}", e.getMessage());
-
-            transaction.setStatus(TransactionStatus.FAILED);
-            transactionRepository.save(transaction);
+            processed = accountSequencer.submit(accountNumbersOf(request), () -> processTransaction(transactionId), transferExecutor);
+        } catch (TransactionRejectedException e) {
+            failRejected(transactionId);
 
-            throw new RuntimeException("Failed to get bank clients");
+            throw e;
         }
 
-        log.info("Bank clients obtained successfully for transaction: {}", transaction.getId());
-
-
-        Long sourceTransactionId = null;
-        Long destinationTransactionId = null;
-        try {
-            // Step 2: Request preparation from the source and destination banks and check their statuses
-            log.info("Requesting preparation from banks for transaction: {}, {}", transaction.getId(), transaction.getStatus());
-
-            TransactionResponse sourceBankResponse = requestPrepare(sourceBankClient, sourceBankRequest);
-            TransactionStatus sourceBankStatus = sourceBankResponse.getStatus();
-            sourceTransactionId = sourceBankResponse.getTransactionId();
-
-            TransactionResponse destinationBankResponse = requestPrepare(destinationBankClient, destinationBankRequest);
-            TransactionStatus destinationBankStatus = destinationBankResponse.getStatus();
-            destinationTransactionId = destinationBankResponse.getTransactionId();
-
-            log.info("Banks responded successfully for transaction preparation: {}, {}", transaction.getId(), transaction.getStatus());
-
-
-            log.info("Preparation statuses: source: {}, destination: {}", sourceBankStatus, destinationBankStatus);
-
-            if (!sourceBankStatus.equals(TransactionStatus.PREPARED) ||
-                    !destinationBankStatus.equals(TransactionStatus.PREPARED)) {
-                log.error("Preparation failed for transaction: {}, {}", transaction.getId(), transaction.getStatus());
-
-                throw new TransactionException("Transaction preparation failed");
-            }
-
-
-            log.info("Transaction preparation completed successfully: {}, {}", transaction.getId(), transaction.getStatus());
-
-            transaction.setStatus(TransactionStatus.PREPARED);
-            transactionRepository.save(transaction);
-
-            log.info("Transaction marked as prepared: {}, {}", transaction.getId(), transaction.getStatus());
-
-
-            // Step 4: Request commitment from both banks
-            log.info("Requesting commit from banks for transaction: {}, {}", transaction.getId(), transaction.getStatus());
-
-            sourceBankStatus = requestCommit(sourceBankClient, sourceTransactionId);
-            destinationBankStatus = requestCommit(destinationBankClient, destinationTransactionId);
-
-            log.info("Banks responded successfully for transaction commit: {}, {}", transaction.getId(), transaction.getStatus());
-
-
-            // Step 5: Check the status of both banks' statuses again
-            log.info("Commit statuses: source: {}, destination: {}", sourceBankStatus, destinationBankStatus);
-            if (!sourceBankStatus.equals(TransactionStatus.COMMITTED) ||
-                    !destinationBankStatus.equals(TransactionStatus.COMMITTED)) {
-                log.error("Commit failed for transaction: {}, {}", transaction.getId(), transaction.getStatus());
-
-                throw new TransactionException("Transaction commit failed");
-            }
-
-
-            log.info("Transaction committed successfully: {}, {}", transaction.getId(), transaction.getStatus());
-
-            transaction.setStatus(TransactionStatus.COMMITTED);
-            transactionRepository.save(transaction);
-
-            log.info("Transaction marked as committed: {}, {}", transaction.getId(), transaction.getStatus());
-
-
-            // Step 6: Update the account balances
-            log.info("Updating account balances for transaction: {}, {}", transaction.getId(), transaction.getStatus());
-
-            updateAccountBalance(transaction.getFromAccount().getAccountNumber(), sourceBankClient);
-            updateAccountBalance(transaction.getToAccount().getAccountNumber(), destinationBankClient);
-
-            log.info("Account balances updated successfully for transaction: {}, {}", transaction.getId(), transaction.getStatus());
+        // A transfer whose turn came right away was handed to the executor already, and may have been rejected by it
+        if (processed.isCompletedExceptionally()) {
+            failRejected(transactionId);
 
+            throw new TransactionRejectedException("Too many transactions in progress, please try again later");
+        }
 
-            // Step 7: Update the transaction in the database
-            log.info("Marking transaction as successful: {}, {}", transaction.getId(), transaction.getStatus());
-
-            transaction.setStatus(TransactionStatus.SUCCESS);
-            transactionRepository.save(transaction);
-
-            log.info("Transaction marked as successful: {}, {}", transaction.getId(), transaction.getStatus());
-
-
-            // Step 9: Return the transaction response
-            return TransactionResponse.builder()
-                    .transactionId(transaction.getId())
-                    .status(transaction.getStatus())
-                    .message("Transaction completed successfully")
-                    .build();
-        } catch (Exception e) {
-            log.error("Transaction failed: {}", e.getMessage());
-
-            if (sourceTransactionId != null)
-                handleRollback(sourceBankClient, sourceTransactionId);
-
-            if (destinationTransactionId != null)
-                handleRollback(destinationBankClient, destinationTransactionId);
-
-            transaction.setStatus(TransactionStatus.ROLLED_BACK);
-            transactionRepository.save(transaction);
-
-            log.info("Transaction rolled back successfully: {}, {}", transaction.getId(), transaction.getStatus());
-
+        processed.exceptionally(e -> {
+            failRejected(transactionId);
+            return null;
+        });
 
-            throw e;
-        }
+        return TransactionResponse.builder()
+                .transactionId(transactionId)
+                .status(TransactionStatus.INITIATED)
+                .message("Transaction accepted for processing")
+                .build();
     }
 
     /**
-     * Retrieves the transaction history for the authenticated user.
+     * Retrieves the current status of a transaction involving one of the authenticated user's accounts.
      *
-     * @return A list of transactions as TransactionDTOs.
+     * @param transactionId The ID of the transaction.
+     * @return A TransactionResponse containing the ID and the current status of the transaction.
      * @throws UserNotFoundException If the authenticated user is not found.
+     * @throws TransactionNotFoundException If no transaction with the given ID involves the user's accounts.
      */
     @Override
     @Transactional
-    public List<TransactionDTO> getTransactionHistory() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-
-        List<Transaction> transactions = new ArrayList<>();
-        for (Account account : user.getAccounts()) {
-            List<Transaction> accountTransactions = transactionRepository.findAllByFromAccountOrToAccount(account, account);
-            transactions.addAll(accountTransactions);
-        }
+    public TransactionResponse getTransactionStatus(Long transactionId) {
+        AuthenticatedUser user = AuthenticatedUser.current();
 
-        if (transactions.isEmpty()) {
-            log.info("No transactions found for user: {}", username);
-            return List.of();
-        }
+        Transaction transaction = transactionRepository.findByIdAndAccountUserId(transactionId, user.id())
+                .orElseThrow(() -> new TransactionNotFoundException("Transaction not found"));
 
-        log.info("Transaction history retrieved successfully for user: {}", username);
+        return TransactionResponse.builder()
+                .transactionId(transaction.getId())
+                .status(transaction.getStatus())
+                .message("Transaction status retrieved successfully")
+                .build();
+    }
 
-        return transactions.stream()
-                .map(transactionMapper::toTransactionDTO)
-                .toList();
+    /**
+     * Marks an asynchronously accepted transaction as FAILED when it cannot be processed.
+     * Only a transaction still INITIATED is moved, so a transfer that already ran to an outcome before its
+     * failure was reported keeps that outcome.
+     *
+     * @param transactionId The ID of the rejected INITIATED transaction.
+     */
+    private void failRejected(Long transactionId) {
+        log.error("Transfer executor rejected transaction: {}", transactionId);
+
+        int failed = transferTransactionTemplate.execute(status -> transactionRepository.updateStatus(
+                transactionId, TransactionStatus.INITIATED, TransactionStatus.FAILED, null, null));
+        if (failed == 0)
+            log.warn("Rejected transaction {} was no longer INITIATED, leaving its status unchanged", transactionId);
     }
 
     /**
-     * Updates the account balance for a given account number.
+     * Returns the account numbers a transfer touches, which it must have its turn on before it runs.
      *
-     * @param accountNumber The account number to update.
-     * @param bankClient The bank client to use for fetching the new balance.
-     * @throws AccountNotFoundException If the account is not found.
+     * @param request The request containing the source and destination accounts.
+     * @return The source and destination account numbers.
      */
-    private void updateAccountBalance(String accountNumber, BankClient bankClient) {
-        Account account = accountRepository.findForUpdateByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountNotFoundException("Account not found"));
-
-        String encryptedAccountNumber = encryptionUtil.encrypt(accountNumber);
-        Double newBalance = bankClient.getBalance(encryptedAccountNumber);
-        account.setBalance(newBalance);
-        accountRepository.save(account);
+    private static List<String> accountNumbersOf(SendMoneyRequest request) {
+        return List.of(request.getSourceAccountNumber(), request.getDestinationAccountNumber());
     }
 
     /**
-     * Handles the rollback of a transaction by requesting the bank to roll back the transaction.
+     * Retrieves the queue of transfers of every account with transfers in progress.
      *
-     * @param bankClient The bank client to use for the rollback request.
-     * @param bankTransactionId The ID of the transaction to roll back.
-     * @throws TransactionException If the rollback request fails or the bank does not respond with a successful status.
+     * @return The queue of each busy account, longest first.
      */
-    private void handleRollback(BankClient bankClient, Long bankTransactionId) {
-        log.info("Rolling back transaction: {}", bankTransactionId);
+    @Override
+    public List<AccountSequencer.QueueSnapshot> getAccountQueues() {
+        return accountSequencer.snapshot();
+    }
 
-        TransactionStatus bankStatus;
+    /**
+     * Runs the 2PC of an asynchronously accepted transaction on the transfer executor.
+     * Failures are recorded on the transaction itself, so they are logged here rather than rethrown.
+     *
+     * @param transactionId The ID of the INITIATED transaction to process.
+     */
+    private void processTransaction(Long transactionId) {
+        Transaction transaction;
         try {
-            log.info("Requesting rollback from bank for transaction: {}", bankTransactionId);
-
-            bankStatus = requestRollback(bankClient, bankTransactionId);
-
-            log.info("Bank responded successfully for transaction rollback: {}", bankStatus);
-
-
-            if (!bankStatus.equals(TransactionStatus.ROLLED_BACK)) {
-                throw new TransactionException("Transaction rollback failed");
-            }
-        } catch (Exception e) {
-            log.error("Rollback request failed: {}", e.getMessage());
+            transaction = transactionRepository.findWithAccountsById(transactionId)
+                    .orElseThrow(() -> new TransactionNotFoundException("Transaction not found"));
+        } catch (RuntimeException e) {
+            log.error("Asynchronous transaction could not be processed: {}, {}", transactionId, e.getMessage());
+            return;
+        }
 
-            throw e;
+        try {
+            transactionCoordinator.execute(transaction);
+        } catch (RuntimeException e) {
+            log.error("Asynchronous transaction failed: {}, {}", transactionId, e.getMessage());
         }
     }
 
     /**
-     * Requests a rollback from the bank for a given transaction ID.
+     * Retrieves one page of the transaction history of the authenticated user, newest first.
+     * The IDs of the page are read by a single index-driven query, without locks, starting after the cursor of
+     * the request, then the transactions are read by ID as flat rows joined to their accounts and banks;
+     * one ID more than the page size is read to tell whether another page follows.
      *
-     * @param bankClient The bank client to use for the rollback request.
-     * @param transactionId The ID of the transaction to roll back.
-     * @return The status of the rollback request.
+     * @param request The cursor, page size and filters of the page, or null for the first page without filters.
+     * @return A TransactionHistoryResponse containing the transactions of the page and the cursor of the next one.
+     * @throws UserNotFoundException If the authenticated user is not found.
+     * @throws AccountNotFoundException If the request names an account the user does not own.
+     * @throws BankNotFoundException If the request filters on a bank that does not exist.
+     * @throws TransactionException If the cursor has a date without an ID, or an ID without a date.
      */
-    private TransactionStatus requestRollback(BankClient bankClient, Long transactionId) {
-        return bankClient.rollbackTransaction(transactionId).getStatus();
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionHistoryResponse getTransactionHistory(TransactionHistoryRequest request) {
+        if (request == null)
+            request = new TransactionHistoryRequest();
+
+        if ((request.getCursorDate() == null) != (request.getCursorId() == null))
+            throw new TransactionException("The cursor needs both a date and an ID");
+
+        AuthenticatedUser user = AuthenticatedUser.current();
+
+        Long accountId = null;
+        if (request.getAccountNumber() != null)
+            accountId = accountRepository.findByUserIdAndAccountNumber(user.id(), request.getAccountNumber())
+                    .orElseThrow(() -> new AccountNotFoundException("Account not found"))
+                    .getId();
+
+        Long bankId = null;
+        if (request.getBankName() != null)
+            bankId = bankRegistry.findByName(request.getBankName().toUpperCase())
+                    .orElseThrow(() -> new BankNotFoundException("Bank not found"))
+                    .getId();
+
+        int pageSize = request.getPageSize() != null ? request.getPageSize() : historyPageSize;
+        List<Long> ids = transactionRepository.findHistoryIds(
+                user.id(), accountId, request.getCursorDate(), request.getCursorId(),
+                request.getFromDate(), request.getToDate(), request.getCounterpartyAccountNumber(),
+                bankId, request.getStatus() != null ? request.getStatus().name() : null,
+                request.getMinAmount(), request.getMaxAmount(), pageSize + 1);
+
+        boolean hasMore = ids.size() > pageSize;
+        List<Long> pageIds = hasMore ? ids.subList(0, pageSize) : ids;
+        Map<Long, TransactionDTO> transactionsById = pageIds.isEmpty() ? Map.of()
+                : transactionRepository.findDTOsByIdIn(pageIds).stream()
+                        .collect(Collectors.toMap(TransactionDTO::getId, Function.identity()));
+        List<TransactionDTO> page = pageIds.stream()
+                .map(transactionsById::get)
+                .toList();
+        TransactionDTO last = hasMore ? page.getLast() : null;
+
+        log.info("Transaction history page of {} transactions retrieved for user: {}", page.size(), user.username());
+
+        return TransactionHistoryResponse.builder()
+                .transactions(page)
+                .hasMore(hasMore)
+                .nextCursorDate(last != null ? last.getTransactionDate() : null)
+                .nextCursorId(last != null ? last.getId() : null)
+                .build();
     }
 
     /**
-     * Requests a commit from the bank for a given transaction ID.
+     * Writes the whole transaction history of the authenticated user to a stream, newest first, in the given format.
+     * The transactions are read as flat rows through a forward-only cursor and each is written as soon as it is read,
+     * so memory use stays the same whatever the size of the history.
      *
-     * @param bankClient The bank client to use for the commit request.
-     * @param transactionId The ID of the transaction to commit.
-     * @return The status of the commit request.
+     * @param format The format of the export.
+     * @param out The stream the export is written to; it is flushed but not closed.
+     * @throws IOException If the export cannot be written to the stream.
+     * @throws UserNotFoundException If the authenticated user is not found.
      */
-    private TransactionStatus requestCommit(BankClient bankClient, Long transactionId) {
-        return bankClient.commitTransaction(transactionId).getStatus();
+    @Override
+    @Transactional(readOnly = true)
+    public void exportTransactionHistory(ExportFormat format, OutputStream out) throws IOException {
+        AuthenticatedUser user = AuthenticatedUser.current();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV)
+            writer.write("id,fromAccountNumber,toAccountNumber,fromBankName,toBankName,amount,status,transactionDate\n");
+
+        long count = 0;
+        try (Stream<TransactionDTO> transactions = transactionRepository.streamHistory(user.id())) {
+            Iterator<TransactionDTO> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                TransactionDTO transaction = iterator.next();
+                writer.write(format == ExportFormat.CSV ? toCsvLine(transaction) : objectMapper.writeValueAsString(transaction));
+                writer.write('\n');
+                count++;
+            }
+        }
+        writer.flush();
+
+        log.info("Transaction history of {} transactions exported as {} for user: {}", count, format, user.username());
     }
 
     /**
-     * Requests preparation from the bank for a given transaction request.
+     * Formats a transaction as a CSV line, without the line break.
      *
-     * @param bankClient The bank client to use for the preparation request.
-     * @param request The transaction request containing account number, type, and amount.
-     * @return The response from the bank containing the transaction ID and status.
+     * @param transaction The transaction to format.
+     * @return The CSV line of the transaction.
      */
-    private TransactionResponse requestPrepare(BankClient bankClient, TransactionRequest request) {
-        return bankClient.prepareTransaction(request);
+    private String toCsvLine(TransactionDTO transaction) {
+        return String.join(",",
+                String.valueOf(transaction.getId()),
+                toCsvField(transaction.getFromAccountNumber()),
+                toCsvField(transaction.getToAccountNumber()),
+                toCsvField(transaction.getFromBankName()),
+                toCsvField(transaction.getToBankName()),
+                String.valueOf(transaction.getAmount()),
+                String.valueOf(transaction.getStatus()),
+                String.valueOf(transaction.getTransactionDate()));
     }
 
     /**
-     * Retrieves the bank client for a given bank name.
+     * Quotes a CSV field if it contains a separator, a quote or a line break.
      *
-     * @param bankName The name of the bank.
-     * @return The bank client for the specified bank.
+     * @param value The value of the field, or null.
+     * @return The field, empty if the value is null.
      */
-    private BankClient getBankClient(String bankName) {
-        return bankClientFactory.getBankClient(bankName);
+    private String toCsvField(String value) {
+        if (value == null)
+            return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+            return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
     /**
-     * Creates a transaction request for the bank.
+     * Initiates and persists a transaction in its own database transaction, run again if it loses a conflict.
+     * The IDs of the accounts are resolved by a plain read, which takes no lock at READ COMMITTED, so that
+     * the accounts can then be locked in the order of their IDs.
      *
-     * @param accountNumber The account number associated with the transaction.
-     * @param type The type of transaction (e.g., withdrawal, deposit).
-     * @param amount The amount involved in the transaction.
-     * @return A TransactionRequest object containing the details of the transaction.
+     * @param request The request containing details of the transaction, such as source and destination accounts and the amount.
+     * @param idempotencyKey The idempotency key stored on the transaction, or null if none was sent.
+     * @return The persisted INITIATED transaction.
+     * @throws ConcurrencyFailureException If the accounts are too contended for the transaction to be initiated.
      */
-    private TransactionRequest createTransactionRequest(String accountNumber, TransactionType type, Double amount) {
-        return TransactionRequest.builder()
-                .accountNumber(accountNumber)
-                .type(type)
-                .amount(amount)
-                .build();
+    private Transaction initiate(SendMoneyRequest request, String idempotencyKey) {
+        return transactionRetry.execute("initiateTransaction", () -> transferTransactionTemplate.execute(status -> {
+            List<Long> accountIds = accountRepository.findIdsByAccountNumberIn(accountNumbersOf(request));
+
+            Transaction transaction = initiateTransaction(request, accountIds);
+            transaction.setIdempotencyKey(idempotencyKey);
+            if (idempotencyKey != null)
+                transaction.setIdempotencyUserId(transaction.getFromAccount().getUser().getId());
+            return transactionRepository.save(transaction);
+        }));
     }
 
     /**
      * Initiates a transaction by validating the request and retrieving the source and destination accounts.
+     * Both accounts are locked by a single query in the order of their IDs, so concurrent transfers between the
+     * same accounts in opposite directions queue on the same first lock instead of deadlocking.
      *
      * @param request The request containing details of the transaction, such as source and destination accounts and the amount.
+     * @param accountIds The IDs of the source and destination accounts.
      * @return A Transaction object representing the initiated transaction.
      * @throws UserNotFoundException If the authenticated user is not found.
      * @throws AccountNotFoundException If either the source or destination account is not found.
      * @throws InsufficientBalanceException If the source account does not have enough balance for the transaction.
      * @throws TransactionException If the source and destination accounts are the same.
      */
-    private Transaction initiateTransaction(SendMoneyRequest request) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UserNotFoundException("User not found"));
-
-        Account sourceAccount = accountRepository.findForUpdateByUserAndAccountNumber(user, request.getSourceAccountNumber())
-                .orElseThrow(() -> new AccountNotFoundException("Source account not found"));
-        Account destinationAccount = accountRepository.findForUpdateByAccountNumber(request.getDestinationAccountNumber())
-                .orElseThrow(() -> new AccountNotFoundException("Destination account not found"));
+    private Transaction initiateTransaction(SendMoneyRequest request, List<Long> accountIds) {
+        AuthenticatedUser user = AuthenticatedUser.current();
+
+        Map<String, Account> accounts = accountRepository.findAllForUpdateByIdInOrderById(accountIds).stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+
+        Account sourceAccount = accounts.get(request.getSourceAccountNumber());
+        if (sourceAccount == null || !sourceAccount.getUser().getId().equals(user.id()))
+            throw new AccountNotFoundException("Source account not found");
+
+        Account destinationAccount = accounts.get(request.getDestinationAccountNumber());
+        if (destinationAccount == null)
+            throw new AccountNotFoundException("Destination account not found");
 
         if (sourceAccount.getId().equals(destinationAccount.getId()))
             throw new TransactionException("Source and destination accounts cannot be the same");
@@ -8,6 +8,7 @@ import com.psp.instapay.model.dto.UserDTO;
 import com.psp.instapay.exception.InvalidRoleException;
 import com.psp.instapay.exception.UserNotFoundException;
 import com.psp.instapay.mapper.UserMapper;
+import com.psp.instapay.security.AuthenticatedUserCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -25,6 +26,7 @@ import java.util.List;
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final AuthenticatedUserCache authenticatedUserCache;
 
     /**
      * Retrieves a user by their unique ID.
@@ -83,6 +85,7 @@ public class UserServiceImpl implements UserService {
 
     /**
      * Updates the role of a user identified by their username.
+     * The cached principal of the user is dropped, so that the new role applies from its next request.
      *
      * @param username The username of the user whose role is to be updated.
      * @param role The new role to assign to the user (e.g., USER or ADMIN).
@@ -100,6 +103,7 @@ public class UserServiceImpl implements UserService {
 
         user.setRole(Role.valueOf(role.toUpperCase()));
         userRepository.save(user);
+        authenticatedUserCache.invalidate(username);
 
         return userMapper.toUserDTO(user);
     }
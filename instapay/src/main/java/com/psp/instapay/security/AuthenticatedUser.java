@@ -0,0 +1,65 @@
+package com.psp.instapay.security;
+
+import com.psp.instapay.exception.UserNotFoundException;
+import com.psp.instapay.model.entity.User;
+import com.psp.instapay.model.enums.Role;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable principal of a request authenticated by a JWT token.
+ * It carries the few attributes of the user that requests need, so that services can read them from the
+ * SecurityContext instead of loading the User entity again; it holds no password and no association.
+ *
+ * @param id the ID of the user
+ * @param username the username of the user
+ * @param phoneNumber the phone number of the user
+ * @param role the role of the user
+ */
+public record AuthenticatedUser(Long id, String username, String phoneNumber, Role role) implements UserDetails {
+
+    /**
+     * Creates the principal of a user.
+     *
+     * @param user the user
+     * @return the principal of the user
+     */
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPhoneNumber(), user.getRole());
+    }
+
+    /**
+     * Returns the principal of the current request.
+     *
+     * @return the authenticated user of the current request
+     * @throws UserNotFoundException if the current request is not authenticated by a JWT token
+     */
+    public static AuthenticatedUser current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user)
+            return user;
+
+        throw new UserNotFoundException("User not found");
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority(role.name()));
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+}
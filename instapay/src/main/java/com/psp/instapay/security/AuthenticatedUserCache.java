@@ -0,0 +1,117 @@
+package com.psp.instapay.security;
+
+import com.psp.instapay.model.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of the principals of authenticated users, keyed by username.
+ * A principal is loaded from the user table the first time a token of its user is seen, then reused by every
+ * request of that user until it expires, so that authenticating a request does not query the database.
+ * A principal is evicted when the role of its user changes; a load in flight at that time is not stored.
+ * The cache is bounded in size, evicting the least recently used principals first.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuthenticatedUserCache {
+    private final UserRepository userRepository;
+
+    /**
+     * The time, in milliseconds, a principal is reused before it is loaded again.
+     * This value is injected from the application properties.
+     */
+    @Value("${principal-cache.ttl}")
+    private long ttl;
+
+    /**
+     * The maximum number of principals kept in the cache.
+     * This value is injected from the application properties.
+     */
+    @Value("${principal-cache.max-size}")
+    private int maxSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version;
+
+    /**
+     * Returns the principal of a user, loading it from the user table if it is missing or expired.
+     *
+     * @param username the username of the user
+     * @return the principal of the user
+     * @throws UsernameNotFoundException if no user has this username
+     */
+    public AuthenticatedUser get(String username) {
+        long now = System.currentTimeMillis();
+        long expectedVersion;
+
+        lock.lock();
+        try {
+            Entry entry = entries.get(username);
+            if (entry != null && now - entry.loadedAt() < ttl)
+                return entry.user();
+            expectedVersion = version;
+        } finally {
+            lock.unlock();
+        }
+
+        AuthenticatedUser user = userRepository.findByUsername(username)
+                .map(AuthenticatedUser::from)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+
+        lock.lock();
+        try {
+            if (version == expectedVersion) {
+                entries.put(username, new Entry(user, now));
+                evict();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return user;
+    }
+
+    /**
+     * Drops the principal of a user, e.g. once its role changes, so that its next request loads it again.
+     *
+     * @param username the username of the user
+     */
+    public void invalidate(String username) {
+        lock.lock();
+        try {
+            entries.remove(username);
+            version++;
+        } finally {
+            lock.unlock();
+        }
+        log.info("Cached principal invalidated for user: {}", username);
+    }
+
+    /**
+     * Evicts the least recently used principals beyond the maximum size. Must be called with the lock held.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A cached principal.
+     *
+     * @param user the principal
+     * @param loadedAt the time the principal was loaded, in milliseconds since the epoch
+     */
+    private record Entry(AuthenticatedUser user, long loadedAt) {
+    }
+}
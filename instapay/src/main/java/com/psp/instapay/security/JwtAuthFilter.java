@@ -1,6 +1,5 @@
 package com.psp.instapay.security;
 
-import com.psp.instapay.model.service.UserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,7 +8,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -18,13 +16,13 @@ import java.io.IOException;
 
 /**
  * JWT Authentication Filter that intercepts HTTP requests to validate JWT tokens.
- * Ensures that authenticated users are properly set in the SecurityContext.
+ * Ensures that authenticated users are properly set in the SecurityContext, as cached AuthenticatedUser principals.
  */
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
-    private final UserService userService;
+    private final AuthenticatedUserCache authenticatedUserCache;
 
     /**
      * Filters incoming HTTP requests to validate JWT tokens and set authentication in the SecurityContext.
@@ -57,12 +55,12 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         // Validate the token and set the authentication in the SecurityContext if valid.
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userService.loadUserByUsername(username);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            AuthenticatedUser user = authenticatedUserCache.get(username);
+            if (jwtService.isTokenValid(jwt, user)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        user,
                         null,
-                        userDetails.getAuthorities()
+                        user.getAuthorities()
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -0,0 +1,266 @@
+package com.psp.instapay.util;
+
+import com.psp.instapay.client.BankClientFactory;
+import com.psp.instapay.model.dto.AccountDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of the live account balances held by the banks, keyed by account number.
+ * A balance is served from the cache until it expires; a read in the last part of its lifetime triggers a
+ * background refresh, so frequently read balances are renewed before they expire. Concurrent readers of a
+ * missing balance share a single request to the bank. If the bank cannot answer in time, the balance last
+ * copied to the account is returned instead.
+ * The cache is bounded in size, evicting the least recently read balances first. Every store and invalidation
+ * is numbered from a single sequence; a load only stores its balance if nothing newer happened to the account
+ * since it started, which for an account whose invalidation was already evicted means no invalidation at all.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AccountBalanceCache {
+    private final BankClientFactory bankClientFactory;
+    private final EncryptionUtil encryptionUtil;
+    private final ExecutorService bankCallExecutor;
+
+    /**
+     * The time, in milliseconds, a balance is served from the cache.
+     * Loaded from the application properties.
+     */
+    @Value("${balance-cache.ttl}")
+    private long ttl;
+
+    /**
+     * The age, in milliseconds, after which reading a balance triggers its background refresh.
+     * Loaded from the application properties.
+     */
+    @Value("${balance-cache.refresh-ahead}")
+    private long refreshAhead;
+
+    /**
+     * The maximum number of balances kept in the cache.
+     * Loaded from the application properties.
+     */
+    @Value("${balance-cache.max-size}")
+    private int maxSize;
+
+    /**
+     * The maximum time, in milliseconds, a reader waits for balances missing from the cache.
+     * Loaded from the application properties.
+     */
+    @Value("${balance-cache.load-timeout}")
+    private long loadTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Double>> loads = new ConcurrentHashMap<>();
+    private long version;
+    private long lastInvalidation;
+
+    /**
+     * Returns the live balance of an account.
+     *
+     * @param account the account
+     * @return the balance held by the bank, or the balance last copied to the account if the bank cannot answer in time
+     */
+    public Double getBalance(AccountDTO account) {
+        return getBalances(List.of(account)).get(account.getAccountNumber());
+    }
+
+    /**
+     * Returns the live balances of several accounts, loading the missing ones concurrently.
+     *
+     * @param accounts the accounts
+     * @return the balance of each account by account number; the balance last copied to an account
+     * is used if its bank cannot answer in time
+     */
+    public Map<String, Double> getBalances(Collection<AccountDTO> accounts) {
+        long now = System.currentTimeMillis();
+
+        Map<String, Double> balances = new HashMap<>();
+        Map<AccountDTO, CompletableFuture<Double>> pending = new HashMap<>();
+        for (AccountDTO account : accounts) {
+            String accountNumber = account.getAccountNumber();
+            Entry entry = getEntry(accountNumber);
+            if (entry != null && entry.balance() != null && now - entry.loadedAt() < ttl) {
+                balances.put(accountNumber, entry.balance());
+
+                if (now - entry.loadedAt() >= refreshAhead)
+                    load(account);
+                continue;
+            }
+
+            pending.put(account, load(account));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(loadTimeout);
+        pending.forEach((account, load) ->
+                balances.put(account.getAccountNumber(), await(account, load, deadline)));
+
+        return balances;
+    }
+
+    /**
+     * Drops the cached balance of an account, e.g. once a transaction involving it commits,
+     * so the next read fetches it from the bank. A load already in flight is not stored.
+     *
+     * @param accountNumber the account number
+     */
+    public void invalidate(String accountNumber) {
+        lock.lock();
+        try {
+            lastInvalidation = ++version;
+            entries.put(accountNumber, new Entry(null, 0, lastInvalidation));
+            evict();
+        } finally {
+            lock.unlock();
+        }
+        loads.remove(accountNumber);
+    }
+
+    /**
+     * Starts loading the balance of an account from its bank, unless a load is already in flight.
+     *
+     * @param account the account
+     * @return the future of the load, shared by all readers of the balance
+     */
+    private CompletableFuture<Double> load(AccountDTO account) {
+        String accountNumber = account.getAccountNumber();
+
+        CompletableFuture<Double> created = new CompletableFuture<>();
+        CompletableFuture<Double> existing = loads.putIfAbsent(accountNumber, created);
+        if (existing != null)
+            return existing;
+
+        long startVersion = currentVersion();
+        String bankName = account.getBankName();
+        try {
+            bankCallExecutor.execute(() -> {
+                try {
+                    Double balance = bankClientFactory.getBankClient(bankName)
+                            .getBalance(encryptionUtil.encrypt(accountNumber));
+                    store(accountNumber, balance, startVersion);
+                    loads.remove(accountNumber, created);
+                    created.complete(balance);
+                } catch (RuntimeException e) {
+                    loads.remove(accountNumber, created);
+                    created.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loads.remove(accountNumber, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Waits for the load of a balance until the deadline.
+     *
+     * @param account the account
+     * @param load the future of the load
+     * @param deadline the deadline, in nanoseconds as returned by System.nanoTime()
+     * @return the loaded balance, or the balance last copied to the account if the load failed or timed out
+     */
+    private Double await(AccountDTO account, CompletableFuture<Double> load, long deadline) {
+        try {
+            return load.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("Failed to load balance, using the last known one: {}, {}", account.getAccountNumber(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return account.getBalance();
+    }
+
+    /**
+     * Stores a loaded balance, unless the balance was invalidated or replaced since the load started.
+     * An entry missing from the cache may have been an invalidation since evicted, so the balance of a missing
+     * entry is not stored if any account was invalidated since the load started.
+     *
+     * @param accountNumber the account number
+     * @param balance the loaded balance
+     * @param startVersion the last version numbered when the load started
+     */
+    private void store(String accountNumber, Double balance, long startVersion) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(accountNumber);
+            if (entry != null ? entry.version() > startVersion : lastInvalidation > startVersion)
+                return;
+
+            entries.put(accountNumber, new Entry(balance, System.currentTimeMillis(), ++version));
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the entry of an account, marking it as recently read.
+     *
+     * @param accountNumber the account number
+     * @return the entry, or null if there is none
+     */
+    private Entry getEntry(String accountNumber) {
+        lock.lock();
+        try {
+            return entries.get(accountNumber);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the last version numbered by a store or an invalidation of any account.
+     *
+     * @return the last version, or 0 if there was none
+     */
+    private long currentVersion() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the least recently read entries while the cache is over its maximum size.
+     * Must be called while holding the lock.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A cached balance.
+     *
+     * @param balance the balance, or null if it was invalidated
+     * @param loadedAt the time, in milliseconds, the balance was loaded
+     * @param version the version of the entry, numbered from the sequence shared by every store and invalidation
+     */
+    private record Entry(Double balance, long loadedAt, long version) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.psp.instapay.util;
+
+import com.psp.instapay.exception.TransactionRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * In-process sequencer running the transfers that touch the same account one at a time, in arrival order.
+ * Each account with transfers in progress has a queue of turns; a transfer gets its turn once it is first in the
+ * queues of all its accounts, so transfers between unrelated accounts run fully in parallel. A transfer joins the
+ * queues of all its accounts at once, so two transfers are queued in the same order on every account they share
+ * and can never wait on each other.
+ * Queued transfers wait in memory, without a thread, a database connection or a row lock: an asynchronous transfer
+ * is only handed to its executor when its turn comes. A transfer arriving at an account that already has too many
+ * transfers queued is rejected.
+ * The number of queued transfers, the time they wait and the rejections are published as metrics; the queue of
+ * each busy account is available through {@link #snapshot()}.
+ */
+@Component
+@Slf4j
+public class AccountSequencer {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, AccountQueue> queues = new HashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Timer waitTimer;
+    private final Counter rejections;
+
+    /**
+     * The maximum number of transfers queued on an account, including the one running.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.sequencer.max-queue-depth}")
+    private int maxQueueDepth;
+
+    /**
+     * The maximum time, in milliseconds, a synchronous transfer waits for its turn.
+     * This value is injected from the application properties.
+     */
+    @Value("${transaction.sequencer.max-wait}")
+    private long maxWait;
+
+    /**
+     * Creates the sequencer and registers its metrics.
+     *
+     * @param meterRegistry the registry the metrics are published to
+     */
+    public AccountSequencer(MeterRegistry meterRegistry) {
+        this.waitTimer = Timer.builder("account.sequencer.wait")
+                .description("Time transfers wait for their turn on their accounts")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejections = Counter.builder("account.sequencer.rejected")
+                .description("Transfers rejected because one of their accounts had too many transfers queued")
+                .register(meterRegistry);
+        Gauge.builder("account.sequencer.queued", queued, AtomicInteger::get)
+                .description("Transfers queued on their accounts, including the running ones")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a transfer on the calling thread once it is its turn on all its accounts.
+     *
+     * @param accountNumbers the account numbers the transfer touches
+     * @param transfer the transfer to run
+     * @param <T> the type of the transfer's result
+     * @return the result of the transfer
+     * @throws TransactionRejectedException if an account has too many transfers queued, or the turn does not come in time
+     */
+    public <T> T call(Collection<String> accountNumbers, Supplier<T> transfer) {
+        Turn turn = enqueue(accountNumbers);
+        try {
+            turn.ready().get(maxWait, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            leave(turn);
+            throw new TransactionRejectedException("Too many transactions in progress on these accounts, please try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            leave(turn);
+            throw new TransactionRejectedException("Interrupted while waiting for the accounts of the transaction");
+        } catch (ExecutionException e) {
+            leave(turn);
+            throw new IllegalStateException(e.getCause());
+        }
+
+        try {
+            return transfer.get();
+        } finally {
+            leave(turn);
+        }
+    }
+
+    /**
+     * Hands a transfer to an executor once it is its turn on all its accounts, and returns without waiting.
+     *
+     * @param accountNumbers the account numbers the transfer touches
+     * @param transfer the transfer to run
+     * @param executor the executor the transfer runs on
+     * @return a future completed once the transfer has run, or completed exceptionally if the executor rejected it
+     * @throws TransactionRejectedException if an account has too many transfers queued
+     */
+    public CompletableFuture<Void> submit(Collection<String> accountNumbers, Runnable transfer, Executor executor) {
+        Turn turn = enqueue(accountNumbers);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        turn.ready().thenRun(() -> {
+            try {
+                executor.execute(() -> {
+                    try {
+                        transfer.run();
+                        done.complete(null);
+                    } catch (RuntimeException e) {
+                        done.completeExceptionally(e);
+                    } finally {
+                        leave(turn);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                leave(turn);
+                done.completeExceptionally(e);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Returns the queue of every account with transfers in progress, longest first.
+     *
+     * @return a snapshot of the busy accounts
+     */
+    public List<QueueSnapshot> snapshot() {
+        long now = System.nanoTime();
+        List<QueueSnapshot> snapshots = new ArrayList<>();
+
+        lock.lock();
+        try {
+            queues.forEach((accountNumber, queue) -> snapshots.add(new QueueSnapshot(
+                    accountNumber,
+                    queue.turns.size(),
+                    TimeUnit.NANOSECONDS.toMillis(now - queue.turns.peekFirst().enqueuedAt()),
+                    TimeUnit.NANOSECONDS.toMillis(queue.lastWait),
+                    queue.served)));
+        } finally {
+            lock.unlock();
+        }
+
+        snapshots.sort(Comparator.comparingInt(QueueSnapshot::depth).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Queues a transfer on all its accounts at once.
+     *
+     * @param accountNumbers the account numbers the transfer touches
+     * @return the turn of the transfer, whose future is completed when it is first in every queue
+     * @throws TransactionRejectedException if an account has too many transfers queued
+     */
+    private Turn enqueue(Collection<String> accountNumbers) {
+        List<String> distinct = accountNumbers.stream().distinct().toList();
+        Turn turn = new Turn(distinct, System.nanoTime(), new CompletableFuture<>(), new AtomicInteger(distinct.size()));
+        boolean ready = false;
+
+        lock.lock();
+        try {
+            for (String accountNumber : distinct) {
+                AccountQueue queue = queues.get(accountNumber);
+                if (queue != null && queue.turns.size() >= maxQueueDepth) {
+                    rejections.increment();
+                    log.warn("Transaction rejected, {} transactions already queued on account {}", queue.turns.size(), accountNumber);
+
+                    throw new TransactionRejectedException("Too many transactions in progress on these accounts, please try again later");
+                }
+            }
+
+            for (String accountNumber : distinct) {
+                AccountQueue queue = queues.computeIfAbsent(accountNumber, k -> new AccountQueue());
+                queue.turns.addLast(turn);
+                // Blockers only change under the lock, so exactly one thread sees them reach zero and starts the transfer
+                if (queue.turns.size() == 1 && turn.blockers().decrementAndGet() == 0)
+                    ready = true;
+            }
+            queued.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+
+        if (ready)
+            start(turn);
+
+        return turn;
+    }
+
+    /**
+     * Removes a transfer from the queues of its accounts, and starts the transfers whose turn it was holding back.
+     *
+     * @param turn the turn of the transfer, running or still waiting
+     */
+    private void leave(Turn turn) {
+        List<Turn> ready = new ArrayList<>();
+
+        lock.lock();
+        try {
+            for (String accountNumber : turn.accountNumbers()) {
+                AccountQueue queue = queues.get(accountNumber);
+                if (queue == null)
+                    continue;
+
+                boolean wasFirst = queue.turns.peekFirst() == turn;
+                if (!queue.turns.remove(turn))
+                    continue;
+
+                if (queue.turns.isEmpty()) {
+                    queues.remove(accountNumber);
+                } else if (wasFirst) {
+                    Turn next = queue.turns.peekFirst();
+                    if (next.blockers().decrementAndGet() == 0)
+                        ready.add(next);
+                }
+            }
+            queued.decrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+
+        ready.forEach(this::start);
+    }
+
+    /**
+     * Records the wait of a transfer whose turn has come, and lets it run.
+     *
+     * @param turn the turn of the transfer
+     */
+    private void start(Turn turn) {
+        long waited = System.nanoTime() - turn.enqueuedAt();
+        waitTimer.record(waited, TimeUnit.NANOSECONDS);
+
+        lock.lock();
+        try {
+            for (String accountNumber : turn.accountNumbers()) {
+                AccountQueue queue = queues.get(accountNumber);
+                if (queue != null) {
+                    queue.lastWait = waited;
+                    queue.served++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        turn.ready().complete(null);
+    }
+
+    /**
+     * The queue of the transfers in progress on an account, guarded by the lock of the sequencer.
+     */
+    private static class AccountQueue {
+        private final ArrayDeque<Turn> turns = new ArrayDeque<>();
+        private long lastWait;
+        private long served;
+    }
+
+    /**
+     * The place of a transfer in the queues of its accounts.
+     *
+     * @param accountNumbers the account numbers the transfer touches
+     * @param enqueuedAt the time the transfer was queued, from System.nanoTime()
+     * @param ready the future completed when it is the transfer's turn
+     * @param blockers the number of queues in which the transfer is not first yet
+     */
+    private record Turn(List<String> accountNumbers, long enqueuedAt, CompletableFuture<Void> ready, AtomicInteger blockers) {
+    }
+
+    /**
+     * The queue of an account with transfers in progress.
+     *
+     * @param accountNumber the account number
+     * @param depth the number of transfers queued on the account, including the running one
+     * @param oldestWaitMillis the time, in milliseconds, since the transfer now running or first in line was queued
+     * @param lastWaitMillis the time, in milliseconds, the last transfer to get its turn waited for it
+     * @param served the number of transfers that got their turn since the account became busy
+     */
+    public record QueueSnapshot(String accountNumber, int depth, long oldestWaitMillis, long lastWaitMillis, long served) {
+    }
+}
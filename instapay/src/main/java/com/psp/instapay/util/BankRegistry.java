@@ -0,0 +1,149 @@
+package com.psp.instapay.util;
+
+import com.psp.instapay.model.entity.Bank;
+import com.psp.instapay.model.repository.BankRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory registry of the banks, by name and by ID, so that resolving a bank on a request path does not
+ * query the database.
+ * The bank table is loaded once the application is ready and on every refresh into new immutable maps, which
+ * replace the previous ones at once: a lookup is a lock-free read of the current maps. The table is reloaded
+ * periodically, on an admin refresh, and by a lookup of an unknown bank at most once per second. This is the
+ * only place the bank table is loaded from: every refresh publishes a Refreshed event with the loaded banks,
+ * from which the BankClientFactory rebuilds the clients of the banks whose endpoints changed.
+ * The registered banks are detached entities shared between threads, and must not be modified.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BankRegistry {
+
+    /**
+     * The minimum time, in milliseconds, between two refreshes triggered by a lookup of an unknown bank.
+     */
+    private static final long MIN_ON_DEMAND_REFRESH_INTERVAL = 1000;
+
+    private final BankRepository bankRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Banks banks = new Banks(Map.of(), Map.of());
+    private volatile long lastRefreshAt;
+
+    /**
+     * Finds a bank by its name.
+     *
+     * @param name the name of the bank, in upper case as stored in the bank table
+     * @return the bank, or empty if no bank has this name
+     */
+    public Optional<Bank> findByName(String name) {
+        Bank bank = banks.byName().get(name);
+        if (bank == null && refreshOnMiss())
+            bank = banks.byName().get(name);
+
+        return Optional.ofNullable(bank);
+    }
+
+    /**
+     * Finds a bank by its ID.
+     *
+     * @param id the ID of the bank
+     * @return the bank, or empty if no bank has this ID
+     */
+    public Optional<Bank> findById(Long id) {
+        Bank bank = banks.byId().get(id);
+        if (bank == null && refreshOnMiss())
+            bank = banks.byId().get(id);
+
+        return Optional.ofNullable(bank);
+    }
+
+    /**
+     * Loads the banks once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    /**
+     * Reloads the banks from the bank table periodically, so a bank can be added, or given new endpoints,
+     * without a redeploy.
+     */
+    @Scheduled(initialDelayString = "${bank-client.registry.reload-interval}",
+            fixedDelayString = "${bank-client.registry.reload-interval}")
+    public void refreshPeriodically() {
+        refresh();
+    }
+
+    /**
+     * Reloads the banks from the bank table, replaces the registered ones at once and publishes them.
+     * The event is published under the refresh lock, so its listeners see the refreshes in order.
+     *
+     * @return the names of the registered banks, in alphabetical order
+     */
+    public List<String> refresh() {
+        refreshLock.lock();
+        try {
+            List<Bank> loaded = bankRepository.findAll();
+            Map<String, Bank> byName = new HashMap<>();
+            Map<Long, Bank> byId = new HashMap<>();
+            for (Bank bank : loaded) {
+                byName.put(bank.getName(), bank);
+                byId.put(bank.getId(), bank);
+            }
+
+            banks = new Banks(Map.copyOf(byName), Map.copyOf(byId));
+            lastRefreshAt = System.currentTimeMillis();
+            log.info("Registered {} banks", byName.size());
+            eventPublisher.publishEvent(new Refreshed(List.copyOf(loaded)));
+
+            return byName.keySet().stream().sorted().toList();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Refreshes the banks after a lookup of an unknown bank, unless they were refreshed less than a second ago.
+     *
+     * @return true if the banks were refreshed, false otherwise
+     */
+    private boolean refreshOnMiss() {
+        if (System.currentTimeMillis() - lastRefreshAt < MIN_ON_DEMAND_REFRESH_INTERVAL)
+            return false;
+
+        refresh();
+        return true;
+    }
+
+    /**
+     * Published after every refresh of the registry.
+     *
+     * @param banks the banks loaded from the bank table
+     */
+    public record Refreshed(List<Bank> banks) {
+    }
+
+    /**
+     * The registered banks, by name and by ID.
+     *
+     * @param byName the banks by name
+     * @param byId the banks by ID
+     */
+    private record Banks(Map<String, Bank> byName, Map<Long, Bank> byId) {
+    }
+}
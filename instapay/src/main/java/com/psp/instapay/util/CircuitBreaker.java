@@ -0,0 +1,149 @@
+package com.psp.instapay.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Circuit breaker guarding calls to a remote service.
+ * While CLOSED, calls are permitted and consecutive failures are counted; reaching the threshold OPENs the
+ * breaker, which then rejects every call without contacting the service. Once it has been open for the
+ * configured duration it turns HALF_OPEN and lets a limited number of probe calls through: a successful
+ * probe closes the breaker again, a failed one reopens it.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final int halfOpenProbes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private int probesInFlight;
+
+    /**
+     * Creates a closed circuit breaker.
+     *
+     * @param name the name of the guarded service, used in logs
+     * @param failureThreshold the number of consecutive failures that opens the breaker
+     * @param openDurationMillis how long, in milliseconds, the breaker stays open before probing the service
+     * @param halfOpenProbes the maximum number of probe calls in flight while the breaker is half-open
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openDurationMillis, int halfOpenProbes) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * Asks permission for a call. A permitted call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()}, or {@link #onIgnored()}.
+     *
+     * @return true if the call may proceed, false if it must be rejected
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.CLOSED)
+                return true;
+
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openDurationMillis)
+                    return false;
+
+                transitionTo(State.HALF_OPEN);
+            }
+
+            if (probesInFlight >= halfOpenProbes)
+                return false;
+
+            probesInFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a successful call, closing the breaker if the call was a probe.
+     */
+    public void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN)
+                transitionTo(State.CLOSED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a failed call, opening the breaker if the failure threshold is reached or the call was a probe.
+     */
+    public void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN || (state == State.CLOSED && ++consecutiveFailures >= failureThreshold))
+                transitionTo(State.OPEN);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a permitted call that was not sent, releasing its probe slot if the breaker is half-open.
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probesInFlight > 0)
+                probesInFlight--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current state of the breaker.
+     *
+     * @return the state of the breaker
+     */
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the breaker to a new state. Must be called while holding the lock.
+     *
+     * @param newState the new state
+     */
+    private void transitionTo(State newState) {
+        log.warn("Circuit breaker {} transitioning from {} to {}", name, state, newState);
+
+        state = newState;
+        consecutiveFailures = 0;
+        probesInFlight = 0;
+        if (newState == State.OPEN)
+            openedAt = System.currentTimeMillis();
+    }
+}
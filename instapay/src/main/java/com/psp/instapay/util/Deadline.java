@@ -0,0 +1,107 @@
+package com.psp.instapay.util;
+
+import java.util.function.Supplier;
+
+/**
+ * The deadline of the work running on the current thread, as an absolute time in epoch milliseconds.
+ * A transfer sets its end-to-end deadline once; every bank call made on its behalf, on whichever thread,
+ * must be run within the same deadline so that it only gets the remaining budget. The remaining budget is
+ * sent to the banks in the {@link #HEADER} header, so they can refuse work that arrives too late.
+ */
+public final class Deadline {
+
+    /**
+     * The header carrying the remaining budget of a bank call, in milliseconds.
+     */
+    public static final String HEADER = "X-Request-Timeout";
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    /**
+     * Returns the deadline of the current thread.
+     *
+     * @return the deadline in epoch milliseconds, or null if the current work has none
+     */
+    public static Long current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the time left before the deadline of the current thread.
+     *
+     * @return the remaining time in milliseconds, negative once the deadline has passed,
+     *         or Long.MAX_VALUE if the current work has no deadline
+     */
+    public static long remaining() {
+        Long deadline = CURRENT.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the time left before the given deadline, as sent to a bank for one item of a batch.
+     *
+     * @param deadline the deadline in epoch milliseconds, or null if the work has none
+     * @return the remaining time in milliseconds, negative once the deadline has passed, or null if the work has no deadline
+     */
+    public static Long remaining(Long deadline) {
+        return deadline == null ? null : deadline - System.currentTimeMillis();
+    }
+
+    /**
+     * Checks whether the deadline of the current thread has passed.
+     *
+     * @return true if the current work has a deadline and it has passed
+     */
+    public static boolean isExpired() {
+        return remaining() <= 0;
+    }
+
+    /**
+     * Runs a call with a deadline the given time from now, or with the deadline of the current thread
+     * if it is earlier, so a nested call can never extend the budget of its caller.
+     *
+     * @param timeoutMillis the time, in milliseconds, the call may take
+     * @param call the call to run
+     * @param <T> the type of the call's result
+     * @return the result of the call
+     */
+    public static <T> T callWithin(long timeoutMillis, Supplier<T> call) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Long current = CURRENT.get();
+        return callAt(current != null && current < deadline ? current : deadline, call);
+    }
+
+    /**
+     * Runs a call with the given deadline, restoring the previous deadline of the thread afterwards.
+     * Used to carry a deadline to the thread running a call on behalf of another.
+     *
+     * @param deadline the deadline in epoch milliseconds, or null to run the call without one
+     * @param call the call to run
+     * @param <T> the type of the call's result
+     * @return the result of the call
+     */
+    public static <T> T callAt(Long deadline, Supplier<T> call) {
+        Long previous = CURRENT.get();
+        set(deadline);
+        try {
+            return call.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * Sets or clears the deadline of the current thread.
+     *
+     * @param deadline the deadline in epoch milliseconds, or null to clear it
+     */
+    private static void set(Long deadline) {
+        if (deadline == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(deadline);
+    }
+}
@@ -0,0 +1,133 @@
+package com.psp.instapay.util;
+
+import com.psp.instapay.model.dto.request.SendMoneyRequest;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory cache of the transfers sent with an idempotency key, in front of the unique key of the
+ * transaction table. Keys are chosen by each user independently, so entries are kept per user and key.
+ * Each entry holds the attempt started for a key, so a retry can share its outcome instead of starting a second one. The cache is bounded in size, and completed entries expire after a
+ * configured time; entries still in flight are never evicted.
+ */
+@Component
+public class IdempotencyCache {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * The maximum number of entries kept in the cache.
+     * Loaded from the application properties.
+     */
+    @Value("${idempotency.cache.max-size}")
+    private int maxSize;
+
+    /**
+     * The time, in milliseconds, a completed entry is kept in the cache.
+     * Loaded from the application properties.
+     */
+    @Value("${idempotency.cache.ttl}")
+    private long ttl;
+
+    /**
+     * Returns the entry of a user's key, creating one owned by the caller if the key has no live entry.
+     *
+     * @param username the name of the user sending the transfer
+     * @param idempotencyKey the idempotency key
+     * @param request the transfer request
+     * @return the entry of the key, and whether it was created by this call
+     */
+    public Lookup getOrCreate(String username, String idempotencyKey, SendMoneyRequest request) {
+        Key key = new Key(username, idempotencyKey);
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            evict(now);
+
+            Entry entry = entries.get(key);
+            if (entry != null)
+                return new Lookup(entry, false);
+
+            entry = new Entry(request, new CompletableFuture<>(), now);
+            entries.put(key, entry);
+            return new Lookup(entry, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry of a user's key, if it is still the given one, so that the next attempt for the key starts afresh.
+     *
+     * @param username the name of the user who sent the transfer
+     * @param idempotencyKey the idempotency key
+     * @param entry the entry to remove
+     */
+    public void remove(String username, String idempotencyKey, Entry entry) {
+        lock.lock();
+        try {
+            entries.remove(new Key(username, idempotencyKey), entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the expired entries, then the oldest completed entries while the cache is over its maximum size.
+     * Entries are kept in creation order, so both passes stop at the first entry that must be kept.
+     * Must be called while holding the lock.
+     *
+     * @param now the current time, in milliseconds
+     */
+    private void evict(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.createdAt() + ttl > now)
+                break;
+
+            if (entry.result().isDone())
+                iterator.remove();
+        }
+
+        iterator = entries.values().iterator();
+        while (entries.size() >= maxSize && iterator.hasNext()) {
+            if (iterator.next().result().isDone())
+                iterator.remove();
+        }
+    }
+
+    /**
+     * The attempt started for an idempotency key.
+     *
+     * @param request the transfer request
+     * @param result the future completed with the outcome of the attempt
+     * @param createdAt the time, in milliseconds, the attempt started
+     */
+    public record Entry(SendMoneyRequest request, CompletableFuture<TransactionResponse> result, long createdAt) {
+    }
+
+    /**
+     * An idempotency key, scoped to the user who chose it.
+     *
+     * @param username the name of the user
+     * @param idempotencyKey the idempotency key
+     */
+    private record Key(String username, String idempotencyKey) {
+    }
+
+    /**
+     * The result of looking up an idempotency key.
+     *
+     * @param entry the entry of the key
+     * @param created whether the entry was created by the lookup, making the caller responsible for completing it
+     */
+    public record Lookup(Entry entry, boolean created) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.psp.instapay.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks a percentile of the recent latency of the calls to a bank.
+ * The latencies are recorded in a Micrometer timer tagged with the bank's name, which publishes the percentile
+ * over a sliding window of about a minute. Reading the percentile is cheap: it is recomputed at most once per second.
+ */
+public class LatencyPercentile {
+
+    /**
+     * How long, in milliseconds, a computed percentile is reused before it is computed again.
+     */
+    private static final long RECOMPUTE_INTERVAL = 1000;
+
+    private final Timer timer;
+    private final double percentile;
+    private final long minSamples;
+
+    private volatile long value = -1;
+    private volatile long computedAt;
+
+    /**
+     * Creates a latency percentile tracker, registering its timer.
+     *
+     * @param name the name of the timer
+     * @param description the description of the timer
+     * @param bankName the name of the bank, used to tag the timer
+     * @param percentile the tracked percentile, between 0 and 1
+     * @param minSamples the number of calls to record before the percentile is reported
+     * @param meterRegistry the registry the timer is published to
+     */
+    public LatencyPercentile(String name, String description, String bankName, double percentile, long minSamples,
+                             MeterRegistry meterRegistry) {
+        this.timer = Timer.builder(name)
+                .description(description)
+                .tag("bank", bankName)
+                .publishPercentiles(percentile)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .register(meterRegistry);
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * Records the latency of a call.
+     *
+     * @param startedAt the time the call started, from System.nanoTime()
+     */
+    public void recordSince(long startedAt) {
+        timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the tracked percentile of the recent latency.
+     *
+     * @return the percentile in milliseconds, or -1 until enough calls are recorded or while no call was recorded recently
+     */
+    public long millis() {
+        long now = System.currentTimeMillis();
+        if (now - computedAt < RECOMPUTE_INTERVAL)
+            return value;
+
+        computedAt = now;
+
+        long computed = -1;
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        if (snapshot.count() >= minSamples) {
+            for (ValueAtPercentile valueAtPercentile : snapshot.percentileValues()) {
+                long millis = (long) valueAtPercentile.value(TimeUnit.MILLISECONDS);
+                if (valueAtPercentile.percentile() == percentile && millis > 0)
+                    computed = millis;
+            }
+        }
+
+        value = computed;
+        return computed;
+    }
+}
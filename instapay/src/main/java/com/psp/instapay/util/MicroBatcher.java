@@ -0,0 +1,228 @@
+package com.psp.instapay.util;
+
+import com.psp.instapay.exception.DeadlineExceededException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls into batches.
+ * The first call of a batch opens a short window; every call submitted before the window closes, or until
+ * the batch is full, is sent together through the batch function. A batch holding a single call is sent
+ * through the single-call function instead, so an idle system pays no batching overhead beyond the window.
+ * The deadline of each call is carried to the thread sending its batch. A call whose deadline has passed by
+ * the time its batch is sent fails right away; the others are sent with their own deadlines, so the receiver
+ * can refuse each late call on its own, and the batch as a whole is given until the latest of them.
+ *
+ * @param <I> the type of a call's input
+ * @param <O> the type of a call's output
+ */
+public class MicroBatcher<I, O> {
+    private final Function<I, O> singleCall;
+    private final BiFunction<List<I>, List<Long>, List<O>> batchCall;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<PendingCall<I, O>> pending = new ArrayList<>();
+    private long generation;
+
+    /**
+     * Creates a micro-batcher.
+     *
+     * @param singleCall the function sending a single call
+     * @param batchCall the function sending a batch of calls, given the input and the deadline, in epoch milliseconds
+     *                  or null, of each call, and returning one output per input in the same order
+     * @param windowMillis how long, in milliseconds, the first call of a batch waits for others to join it
+     * @param maxBatchSize the maximum number of calls in a batch; a full batch is sent right away
+     * @param scheduler the scheduler closing the windows
+     * @param executor the executor sending the batches
+     */
+    public MicroBatcher(Function<I, O> singleCall, BiFunction<List<I>, List<Long>, List<O>> batchCall,
+                        long windowMillis, int maxBatchSize,
+                        ScheduledExecutorService scheduler, Executor executor) {
+        this.singleCall = singleCall;
+        this.batchCall = batchCall;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a call and waits for its output.
+     *
+     * @param input the input of the call
+     * @return the output of the call
+     * @throws DeadlineExceededException if the deadline of the call passed before its batch was sent
+     * @throws RuntimeException if the call, or the batch it was sent in, fails
+     */
+    public O submit(I input) {
+        PendingCall<I, O> call = new PendingCall<>(input, Deadline.current(), new CompletableFuture<>());
+
+        List<PendingCall<I, O>> fullBatch = null;
+        lock.lock();
+        try {
+            pending.add(call);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = takePending();
+            } else if (pending.size() == 1) {
+                long windowGeneration = generation;
+                scheduler.schedule(() -> closeWindow(windowGeneration), windowMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (fullBatch != null)
+            send(fullBatch);
+
+        try {
+            return call.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the pending calls once the window of their batch closes, unless the batch was already sent because it filled up.
+     *
+     * @param windowGeneration the generation of the batch the window was opened for
+     */
+    private void closeWindow(long windowGeneration) {
+        List<PendingCall<I, O>> batch;
+        lock.lock();
+        try {
+            if (windowGeneration != generation || pending.isEmpty())
+                return;
+
+            batch = takePending();
+        } finally {
+            lock.unlock();
+        }
+
+        send(batch);
+    }
+
+    /**
+     * Takes the pending calls, starting a new batch. Must be called while holding the lock.
+     *
+     * @return the pending calls
+     */
+    private List<PendingCall<I, O>> takePending() {
+        List<PendingCall<I, O>> batch = pending;
+        pending = new ArrayList<>();
+        generation++;
+        return batch;
+    }
+
+    /**
+     * Sends a batch on the executor and completes the calls it contains.
+     *
+     * @param batch the calls to send
+     */
+    private void send(List<PendingCall<I, O>> batch) {
+        try {
+            executor.execute(() -> sendNow(batch));
+        } catch (RejectedExecutionException e) {
+            for (PendingCall<I, O> call : batch)
+                call.result().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Sends a batch on the current thread and completes the calls it contains.
+     * Calls whose deadline has already passed are failed instead of being sent.
+     *
+     * @param batch the calls to send
+     */
+    private void sendNow(List<PendingCall<I, O>> batch) {
+        batch = dropExpired(batch);
+        if (batch.isEmpty())
+            return;
+
+        Long deadline = latestDeadline(batch);
+        try {
+            if (batch.size() == 1) {
+                PendingCall<I, O> call = batch.getFirst();
+                call.result().complete(Deadline.callAt(deadline, () -> singleCall.apply(call.input())));
+                return;
+            }
+
+            List<I> inputs = batch.stream().map(PendingCall::input).toList();
+            List<Long> deadlines = batch.stream().map(PendingCall::deadline).toList();
+            List<O> outputs = Deadline.callAt(deadline, () -> batchCall.apply(inputs, deadlines));
+            if (outputs == null || outputs.size() != batch.size())
+                throw new IllegalStateException("Batch returned " + (outputs == null ? 0 : outputs.size()) +
+                        " results for " + batch.size() + " calls");
+
+            for (int i = 0; i < batch.size(); i++)
+                batch.get(i).result().complete(outputs.get(i));
+        } catch (RuntimeException e) {
+            for (PendingCall<I, O> call : batch)
+                call.result().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Fails the calls of a batch whose deadline has passed.
+     *
+     * @param batch the calls of the batch
+     * @return the calls still within their deadline, in batch order
+     */
+    private List<PendingCall<I, O>> dropExpired(List<PendingCall<I, O>> batch) {
+        long now = System.currentTimeMillis();
+        List<PendingCall<I, O>> live = new ArrayList<>(batch.size());
+        for (PendingCall<I, O> call : batch) {
+            if (call.deadline() != null && call.deadline() <= now)
+                call.result().completeExceptionally(new DeadlineExceededException("Deadline passed before the call was sent"));
+            else
+                live.add(call);
+        }
+        return live;
+    }
+
+    /**
+     * Returns the latest deadline of the calls of a batch.
+     *
+     * @param batch the calls of the batch
+     * @return the latest deadline in epoch milliseconds, or null if one of the calls has no deadline
+     */
+    private Long latestDeadline(List<PendingCall<I, O>> batch) {
+        Long latest = null;
+        for (PendingCall<I, O> call : batch) {
+            if (call.deadline() == null)
+                return null;
+
+            if (latest == null || call.deadline() > latest)
+                latest = call.deadline();
+        }
+        return latest;
+    }
+
+    /**
+     * A call waiting to be sent.
+     *
+     * @param input the input of the call
+     * @param deadline the deadline of the call in epoch milliseconds, or null if it has none
+     * @param result the future completed with the output of the call
+     * @param <I> the type of the call's input
+     * @param <O> the type of the call's output
+     */
+    private record PendingCall<I, O>(I input, Long deadline, CompletableFuture<O> result) {
+    }
+}
@@ -0,0 +1,50 @@
+-- Schema of the instapay database as created by Hibernate from the entities before the migrations were introduced.
+-- Databases created before the migrations existed are baselined at this version instead of running it.
+
+CREATE TABLE bank (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE user (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    username VARCHAR(20) NOT NULL,
+    phone_number VARCHAR(11) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role ENUM ('USER', 'ADMIN') NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username),
+    CONSTRAINT uk_user_phone_number UNIQUE (phone_number)
+) ENGINE = InnoDB;
+
+CREATE TABLE account (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id BIGINT NOT NULL,
+    bank_id BIGINT NOT NULL,
+    account_number VARCHAR(16) NOT NULL,
+    balance FLOAT(53) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_account_account_number UNIQUE (account_number),
+    CONSTRAINT fk_account_user FOREIGN KEY (user_id) REFERENCES user (id),
+    CONSTRAINT fk_account_bank FOREIGN KEY (bank_id) REFERENCES bank (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE transaction (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    from_account_id BIGINT NOT NULL,
+    to_account_id BIGINT NOT NULL,
+    from_bank_id BIGINT NOT NULL,
+    to_bank_id BIGINT NOT NULL,
+    amount FLOAT(53) NOT NULL,
+    status ENUM ('INITIATED', 'PREPARED', 'ABORTED', 'COMMITTED', 'ROLLED_BACK', 'ROLLING_BACK', 'FAILED', 'TIMEOUT', 'SUCCESS') NOT NULL,
+    transaction_date DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_transaction_from_account FOREIGN KEY (from_account_id) REFERENCES account (id),
+    CONSTRAINT fk_transaction_to_account FOREIGN KEY (to_account_id) REFERENCES account (id),
+    CONSTRAINT fk_transaction_from_bank FOREIGN KEY (from_bank_id) REFERENCES bank (id),
+    CONSTRAINT fk_transaction_to_bank FOREIGN KEY (to_bank_id) REFERENCES bank (id)
+) ENGINE = InnoDB;
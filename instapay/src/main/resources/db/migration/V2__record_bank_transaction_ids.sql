@@ -0,0 +1,4 @@
+-- IDs of the source and destination bank legs of a transfer, so that an unfinished transfer is re-driven on the same legs.
+ALTER TABLE transaction
+    ADD COLUMN source_bank_transaction_id BIGINT AFTER status,
+    ADD COLUMN destination_bank_transaction_id BIGINT AFTER source_bank_transaction_id;
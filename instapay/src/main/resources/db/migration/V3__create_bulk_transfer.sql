@@ -0,0 +1,14 @@
+-- A bulk transfer groups the transactions sent from one source account in a single request.
+CREATE TABLE bulk_transfer (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    source_account_id BIGINT NOT NULL,
+    total_count INTEGER NOT NULL,
+    total_amount FLOAT(53) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_bulk_transfer_source_account FOREIGN KEY (source_account_id) REFERENCES account (id)
+) ENGINE = InnoDB;
+
+ALTER TABLE transaction
+    ADD COLUMN bulk_transfer_id BIGINT AFTER destination_bank_transaction_id,
+    ADD CONSTRAINT fk_transaction_bulk_transfer FOREIGN KEY (bulk_transfer_id) REFERENCES bulk_transfer (id);
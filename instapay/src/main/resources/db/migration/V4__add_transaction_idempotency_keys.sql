@@ -0,0 +1,4 @@
+-- Idempotency-Key of the send request that created a transaction, so that a retried request returns the same transaction.
+ALTER TABLE transaction
+    ADD COLUMN idempotency_key VARCHAR(64) AFTER destination_bank_transaction_id,
+    ADD CONSTRAINT uk_transaction_idempotency_key UNIQUE (idempotency_key);
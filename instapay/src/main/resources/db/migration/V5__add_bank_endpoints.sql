@@ -0,0 +1,2 @@
+-- Comma-separated base URLs of the instances of a bank; a bank without endpoints uses the configured defaults.
+ALTER TABLE bank ADD COLUMN endpoints VARCHAR(1024) AFTER name;
@@ -0,0 +1,3 @@
+-- Optimistic lock versions of the rows updated concurrently by transfers.
+ALTER TABLE account ADD COLUMN version BIGINT DEFAULT 0 NOT NULL AFTER balance;
+ALTER TABLE transaction ADD COLUMN version BIGINT DEFAULT 0 NOT NULL AFTER bulk_transfer_id;
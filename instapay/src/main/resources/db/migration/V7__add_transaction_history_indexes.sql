@@ -0,0 +1,8 @@
+-- Access paths of the transaction history: the transactions of one account, newest first, per side of the transfer.
+-- Each index also serves the foreign key of its account column, and its (date, ID) suffix matches the history cursor,
+-- so a page is read as a bounded range scan in index order without a sort of the account's whole history.
+CREATE INDEX idx_transaction_from_account_date ON transaction (from_account_id, transaction_date, id);
+CREATE INDEX idx_transaction_to_account_date ON transaction (to_account_id, transaction_date, id);
+
+-- Scans of the recovery daemon for unfinished transactions older than the grace period.
+CREATE INDEX idx_transaction_status_date ON transaction (status, transaction_date);
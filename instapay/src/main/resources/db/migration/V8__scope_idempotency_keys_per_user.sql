@@ -0,0 +1,12 @@
+-- Idempotency keys are chosen by each user independently, so a key is unique per user rather than globally.
+-- The user is recorded next to the key; existing keys are attributed to the owner of their source account.
+ALTER TABLE transaction ADD COLUMN idempotency_user_id BIGINT AFTER idempotency_key;
+
+UPDATE transaction t JOIN account a ON a.id = t.from_account_id
+SET t.idempotency_user_id = a.user_id
+WHERE t.idempotency_key IS NOT NULL;
+
+ALTER TABLE transaction
+    DROP INDEX uk_transaction_idempotency_key,
+    ADD CONSTRAINT uk_transaction_idempotency_user_key UNIQUE (idempotency_user_id, idempotency_key),
+    ADD CONSTRAINT fk_transaction_idempotency_user FOREIGN KEY (idempotency_user_id) REFERENCES user (id);
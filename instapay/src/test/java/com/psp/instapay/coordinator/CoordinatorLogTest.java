@@ -0,0 +1,179 @@
+package com.psp.instapay.coordinator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests of the CoordinatorLog: replay of the segments after a restart, including torn and truncated
+ * records, segment rolls, and the deletion of segments whose transactions have all ended.
+ */
+class CoordinatorLogTest {
+    private static final int RECORD_SIZE = 64;
+
+    @TempDir
+    Path directory;
+
+    private final List<CoordinatorLog> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeLogs() {
+        opened.forEach(CoordinatorLog::close);
+    }
+
+    @Test
+    void replayReturnsTheLatestRecordOfEveryUnfinishedTransaction() throws IOException {
+        CoordinatorLog log = open(16 * RECORD_SIZE);
+        log.logPrepared(1, 10, 100, 20, 200);
+        log.logCommit(1, 10, 100, 20, 200);
+        log.logEnd(1);
+        log.logPrepared(2, 10, 101, 20, 201);
+        log.logCommit(2, 10, 101, 20, 201);
+        log.logPrepared(3, 10, 102, 20, 202);
+        log.close();
+        opened.remove(log);
+
+        List<CoordinatorRecord> inDoubt = open(16 * RECORD_SIZE).getInDoubtRecords();
+
+        assertEquals(2, inDoubt.size());
+        assertRecord(inDoubt.get(0), CoordinatorRecordType.COMMIT, 2, 101, 201);
+        assertRecord(inDoubt.get(1), CoordinatorRecordType.PREPARED, 3, 102, 202);
+    }
+
+    @Test
+    void replayStopsAtACorruptRecord() throws IOException {
+        CoordinatorLog log = open(16 * RECORD_SIZE);
+        log.logCommit(1, 10, 100, 20, 200);
+        log.logCommit(2, 10, 101, 20, 201);
+        log.close();
+        opened.remove(log);
+
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0x7f}), RECORD_SIZE + 12);
+        }
+
+        List<CoordinatorRecord> inDoubt = open(16 * RECORD_SIZE).getInDoubtRecords();
+
+        assertEquals(1, inDoubt.size());
+        assertRecord(inDoubt.getFirst(), CoordinatorRecordType.COMMIT, 1, 100, 200);
+    }
+
+    @Test
+    void replayIgnoresATruncatedTail() throws IOException {
+        CoordinatorLog log = open(16 * RECORD_SIZE);
+        log.logCommit(1, 10, 100, 20, 200);
+        log.logCommit(2, 10, 101, 20, 201);
+        log.close();
+        opened.remove(log);
+
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.truncate(RECORD_SIZE + RECORD_SIZE / 2);
+        }
+
+        List<CoordinatorRecord> inDoubt = open(16 * RECORD_SIZE).getInDoubtRecords();
+
+        assertEquals(1, inDoubt.size());
+        assertRecord(inDoubt.getFirst(), CoordinatorRecordType.COMMIT, 1, 100, 200);
+    }
+
+    @Test
+    void fullSegmentIsDeletedOnceItsTransactionsEnd() throws IOException {
+        CoordinatorLog log = open(2 * RECORD_SIZE);
+        log.logPrepared(1, 10, 100, 20, 200);
+        log.logCommit(1, 10, 100, 20, 200);
+        log.logPrepared(2, 10, 101, 20, 201);
+
+        assertEquals(2, segments().size());
+
+        log.logEnd(1);
+
+        List<Path> remaining = segments();
+        assertEquals(1, remaining.size());
+        assertTrue(remaining.getFirst().getFileName().toString().endsWith("00000000000000000001.log"));
+
+        log.close();
+        opened.remove(log);
+
+        List<CoordinatorRecord> inDoubt = open(2 * RECORD_SIZE).getInDoubtRecords();
+
+        assertEquals(1, inDoubt.size());
+        assertRecord(inDoubt.getFirst(), CoordinatorRecordType.PREPARED, 2, 101, 201);
+    }
+
+    @Test
+    void segmentsWithoutUnfinishedTransactionsAreDeletedOnOpen() throws IOException {
+        CoordinatorLog log = open(16 * RECORD_SIZE);
+        log.logCommit(1, 10, 100, 20, 200);
+        log.logEnd(1);
+        log.close();
+        opened.remove(log);
+
+        CoordinatorLog reopened = open(16 * RECORD_SIZE);
+
+        assertTrue(reopened.getInDoubtRecords().isEmpty());
+        List<Path> remaining = segments();
+        assertEquals(1, remaining.size());
+        assertTrue(remaining.getFirst().getFileName().toString().endsWith("00000000000000000001.log"));
+    }
+
+    @Test
+    void endingAnInDoubtTransactionRemovesIt() throws IOException {
+        CoordinatorLog log = open(16 * RECORD_SIZE);
+        log.logCommit(1, 10, 100, 20, 200);
+        log.close();
+        opened.remove(log);
+
+        CoordinatorLog reopened = open(16 * RECORD_SIZE);
+        assertEquals(1, reopened.getInDoubtRecords().size());
+
+        reopened.logEnd(1);
+
+        assertTrue(reopened.getInDoubtRecords().isEmpty());
+    }
+
+    private CoordinatorLog open(int segmentSize) throws IOException {
+        CoordinatorLog log = new CoordinatorLog();
+        ReflectionTestUtils.setField(log, "directory", directory.toString());
+        ReflectionTestUtils.setField(log, "segmentSize", segmentSize);
+        log.open();
+        opened.add(log);
+        return log;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.getFirst();
+    }
+
+    private static void assertRecord(CoordinatorRecord record, CoordinatorRecordType type, long transactionId,
+                                     long sourceBankTransactionId, long destinationBankTransactionId) {
+        assertEquals(type, record.getType());
+        assertEquals(transactionId, record.getTransactionId());
+        assertEquals(10, record.getSourceBankId());
+        assertEquals(sourceBankTransactionId, record.getSourceBankTransactionId());
+        assertEquals(20, record.getDestinationBankId());
+        assertEquals(destinationBankTransactionId, record.getDestinationBankTransactionId());
+    }
+}
@@ -0,0 +1,178 @@
+package com.psp.instapay.coordinator;
+
+import com.psp.instapay.client.BankClient;
+import com.psp.instapay.client.BankClientFactory;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+import com.psp.instapay.model.entity.Account;
+import com.psp.instapay.model.entity.Bank;
+import com.psp.instapay.model.entity.Transaction;
+import com.psp.instapay.model.enums.TransactionStatus;
+import com.psp.instapay.model.repository.AccountRepository;
+import com.psp.instapay.model.repository.TransactionRepository;
+import com.psp.instapay.util.AccountBalanceCache;
+import com.psp.instapay.util.EncryptionUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests of the TransactionCoordinator: a decided commit is never rolled back, and the decision of each
+ * in-doubt transaction of the coordinator log is copied to its INITIATED row, a transaction without a COMMIT
+ * decision staying PREPARED so that it is rolled back, as presumed aborted.
+ */
+class TransactionCoordinatorTest {
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final BankClientFactory bankClientFactory = mock(BankClientFactory.class);
+    private final CoordinatorLog coordinatorLog = mock(CoordinatorLog.class);
+    private final ExecutorService bankCallExecutor = Executors.newCachedThreadPool();
+
+    private TransactionCoordinator transactionCoordinator;
+
+    @BeforeEach
+    void setUp() {
+        transactionCoordinator = new TransactionCoordinator(mock(AccountRepository.class), transactionRepository,
+                bankClientFactory, mock(EncryptionUtil.class), coordinatorLog, bankCallExecutor,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(AccountBalanceCache.class));
+        ReflectionTestUtils.setField(transactionCoordinator, "phaseTimeout", 1000L);
+        ReflectionTestUtils.setField(transactionCoordinator, "transferDeadline", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankCallExecutor.shutdownNow();
+    }
+
+    @Test
+    void failedCommitIsLeftCommittedAndNeverRolledBack() {
+        BankClient sourceBankClient = bankClient(1L);
+        BankClient destinationBankClient = bankClient(2L);
+        when(sourceBankClient.commitTransaction(10L)).thenThrow(new IllegalStateException("Bank unavailable"));
+        when(destinationBankClient.commitTransaction(100L)).thenReturn(response(100L, TransactionStatus.COMMITTED));
+        when(bankClientFactory.getBankClient("CIB")).thenReturn(sourceBankClient);
+        when(bankClientFactory.getBankClient("NBE")).thenReturn(destinationBankClient);
+
+        assertThrows(IllegalStateException.class, () -> transactionCoordinator.execute(crossBankTransaction()));
+
+        verify(coordinatorLog).logCommit(1, 1, 10, 2, 100);
+        verify(transactionRepository).updateStatus(1L, TransactionStatus.INITIATED, TransactionStatus.COMMITTED, 10L, 100L);
+        verify(sourceBankClient, never()).rollbackTransaction(any());
+        verify(destinationBankClient, never()).rollbackTransaction(any());
+        verify(coordinatorLog).logEnd(1);
+    }
+
+    @Test
+    void preparedRecordLeavesTheRowPreparedToBeRolledBack() {
+        Transaction transaction = recover(CoordinatorRecordType.PREPARED, TransactionStatus.INITIATED);
+
+        assertEquals(TransactionStatus.PREPARED, transaction.getStatus());
+        assertEquals(10L, transaction.getSourceBankTransactionId());
+        assertEquals(100L, transaction.getDestinationBankTransactionId());
+        verify(coordinatorLog).logEnd(1);
+    }
+
+    @Test
+    void interruptedTransactionIsRolledBackOnTheLegsOfItsPreparedRecord() {
+        BankClient sourceBankClient = mock(BankClient.class);
+        BankClient destinationBankClient = mock(BankClient.class);
+        when(sourceBankClient.rollbackTransaction(10L)).thenReturn(response(10L, TransactionStatus.ROLLED_BACK));
+        when(destinationBankClient.rollbackTransaction(100L)).thenReturn(response(100L, TransactionStatus.ROLLED_BACK));
+        when(bankClientFactory.getBankClient("CIB")).thenReturn(sourceBankClient);
+        when(bankClientFactory.getBankClient("NBE")).thenReturn(destinationBankClient);
+
+        Transaction transaction = crossBankTransaction();
+        when(coordinatorLog.getInDoubtRecords()).thenReturn(List.of(record(CoordinatorRecordType.PREPARED)));
+        when(transactionRepository.findById(1L)).thenReturn(Optional.of(transaction));
+
+        transactionCoordinator.recoverInDoubtTransactions();
+        transactionCoordinator.resumeRollback(transaction);
+
+        verify(sourceBankClient).rollbackTransaction(10L);
+        verify(destinationBankClient).rollbackTransaction(100L);
+        verify(transactionRepository).updateStatus(1L, TransactionStatus.PREPARED, TransactionStatus.ROLLED_BACK, 10L, 100L);
+    }
+
+    @Test
+    void commitRecordMarksTheRowCommitted() {
+        Transaction transaction = recover(CoordinatorRecordType.COMMIT, TransactionStatus.INITIATED);
+
+        assertEquals(TransactionStatus.COMMITTED, transaction.getStatus());
+        verify(coordinatorLog).logEnd(1);
+    }
+
+    @Test
+    void rowWithAFinalOutcomeIsLeftAsItIs() {
+        Transaction transaction = recover(CoordinatorRecordType.COMMIT, TransactionStatus.SUCCESS);
+
+        assertEquals(TransactionStatus.SUCCESS, transaction.getStatus());
+        verify(transactionRepository, never()).save(any());
+        verify(coordinatorLog).logEnd(1);
+    }
+
+    @Test
+    void recordWithoutARowIsKeptInTheLog() {
+        when(coordinatorLog.getInDoubtRecords()).thenReturn(List.of(record(CoordinatorRecordType.COMMIT)));
+        when(transactionRepository.findById(1L)).thenReturn(Optional.empty());
+
+        transactionCoordinator.recoverInDoubtTransactions();
+
+        verify(coordinatorLog, never()).logEnd(anyLong());
+    }
+
+    private Transaction recover(CoordinatorRecordType type, TransactionStatus status) {
+        Transaction transaction = Transaction.builder().id(1L).status(status).build();
+        when(coordinatorLog.getInDoubtRecords()).thenReturn(List.of(record(type)));
+        when(transactionRepository.findById(1L)).thenReturn(Optional.of(transaction));
+
+        transactionCoordinator.recoverInDoubtTransactions();
+
+        return transaction;
+    }
+
+    private BankClient bankClient(long transactionId) {
+        BankClient bankClient = mock(BankClient.class);
+        when(bankClient.prepareTransaction(any())).thenReturn(response(transactionId, TransactionStatus.PREPARED));
+        return bankClient;
+    }
+
+    private static Transaction crossBankTransaction() {
+        Bank sourceBank = new Bank("CIB");
+        sourceBank.setId(1L);
+        Bank destinationBank = new Bank("NBE");
+        destinationBank.setId(2L);
+
+        return Transaction.builder()
+                .id(1L)
+                .fromAccount(new Account(null, sourceBank, "1000000000000001"))
+                .toAccount(new Account(null, destinationBank, "2000000000000002"))
+                .fromBank(sourceBank)
+                .toBank(destinationBank)
+                .amount(100.0)
+                .status(TransactionStatus.INITIATED)
+                .build();
+    }
+
+    private static TransactionResponse response(long transactionId, TransactionStatus status) {
+        return TransactionResponse.builder().transactionId(transactionId).status(status).build();
+    }
+
+    private static CoordinatorRecord record(CoordinatorRecordType type) {
+        return new CoordinatorRecord(type, 1, 1, 10, 2, 100, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,83 @@
+package com.psp.instapay.coordinator;
+
+import com.psp.instapay.model.entity.Bank;
+import com.psp.instapay.model.repository.TransactionRepository;
+import com.psp.instapay.util.BankRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests of the resolution, by the TransactionRecoveryDaemon, of the coordinator log records left without
+ * a transaction row: only a durable COMMIT decision is committed, anything else is presumed aborted.
+ */
+class TransactionRecoveryDaemonTest {
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final BankRegistry bankRegistry = mock(BankRegistry.class);
+    private final TransactionCoordinator transactionCoordinator = mock(TransactionCoordinator.class);
+    private final CoordinatorLog coordinatorLog = mock(CoordinatorLog.class);
+
+    private TransactionRecoveryDaemon daemon;
+
+    @BeforeEach
+    void setUp() {
+        daemon = new TransactionRecoveryDaemon(transactionRepository, bankRegistry, transactionCoordinator,
+                coordinatorLog, mock(ExecutorService.class));
+        ReflectionTestUtils.setField(daemon, "batchSize", 10);
+        ReflectionTestUtils.setField(daemon, "perBankParallelism", 1);
+
+        when(bankRegistry.findById(1L)).thenReturn(Optional.of(new Bank("CIB")));
+        when(bankRegistry.findById(2L)).thenReturn(Optional.of(new Bank("NBE")));
+    }
+
+    @Test
+    void preparedRecordIsPresumedAborted() {
+        when(coordinatorLog.getInDoubtRecords()).thenReturn(List.of(record(CoordinatorRecordType.PREPARED, 7)));
+
+        daemon.recoverOnStartup();
+
+        verify(transactionCoordinator).recoverInDoubtTransactions();
+        verify(transactionCoordinator).redriveRollback("CIB", 70L, "NBE", 700L);
+        verify(transactionCoordinator, never()).redriveCommit(any(), any(), any(), any());
+        verify(coordinatorLog).logEnd(7);
+    }
+
+    @Test
+    void commitRecordIsCommitted() {
+        when(coordinatorLog.getInDoubtRecords()).thenReturn(List.of(record(CoordinatorRecordType.COMMIT, 8)));
+
+        daemon.recoverOnStartup();
+
+        verify(transactionCoordinator).redriveCommit("CIB", 80L, "NBE", 800L);
+        verify(transactionCoordinator, never()).redriveRollback(any(), any(), any(), any());
+        verify(coordinatorLog).logEnd(8);
+    }
+
+    @Test
+    void unresolvedRecordIsKeptInTheLog() {
+        when(coordinatorLog.getInDoubtRecords()).thenReturn(List.of(record(CoordinatorRecordType.PREPARED, 7)));
+        doThrow(new IllegalStateException("Bank unavailable"))
+                .when(transactionCoordinator).redriveRollback("CIB", 70L, "NBE", 700L);
+
+        daemon.recoverOnStartup();
+
+        verify(coordinatorLog, never()).logEnd(anyLong());
+    }
+
+    private static CoordinatorRecord record(CoordinatorRecordType type, long transactionId) {
+        return new CoordinatorRecord(type, transactionId, 1, transactionId * 10, 2, transactionId * 100,
+                System.currentTimeMillis());
+    }
+}
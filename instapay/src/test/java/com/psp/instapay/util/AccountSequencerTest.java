@@ -0,0 +1,94 @@
+package com.psp.instapay.util;
+
+import com.psp.instapay.exception.TransactionRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests of the AccountSequencer: transfers sharing an account get their turn in arrival order,
+ * and transfers between unrelated accounts do not wait on each other.
+ * The executor only collects the transfers handed to it, so each test decides when a transfer finishes.
+ */
+class AccountSequencerTest {
+    private final List<String> ran = new ArrayList<>();
+    private final List<Runnable> handed = new ArrayList<>();
+    private final Executor executor = handed::add;
+
+    private AccountSequencer sequencer;
+
+    @BeforeEach
+    void setUp() {
+        sequencer = new AccountSequencer(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(sequencer, "maxQueueDepth", 2);
+        ReflectionTestUtils.setField(sequencer, "maxWait", 1000L);
+    }
+
+    @Test
+    void overlappingTransfersRunInArrivalOrder() {
+        submit("T1", "A", "B");
+        submit("T2", "B", "C");
+        submit("T3", "C", "D");
+        submit("T4", "D", "A");
+
+        // T3 only shares C with T2, which is still waiting, yet it does not overtake it
+        assertEquals(1, handed.size());
+
+        for (int turn = 0; turn < 4; turn++) {
+            assertEquals(turn + 1, handed.size());
+            handed.get(turn).run();
+        }
+
+        assertEquals(List.of("T1", "T2", "T3", "T4"), ran);
+        assertTrue(sequencer.snapshot().isEmpty());
+    }
+
+    @Test
+    void transfersBetweenUnrelatedAccountsRunInParallel() {
+        submit("T1", "A", "B");
+        submit("T2", "C", "D");
+
+        assertEquals(2, handed.size());
+    }
+
+    @Test
+    void transferIsRejectedWhenAnAccountQueueIsFull() {
+        submit("T1", "A", "B");
+        submit("T2", "A", "B");
+
+        assertThrows(TransactionRejectedException.class, () -> submit("T3", "C", "A"));
+
+        List<AccountSequencer.QueueSnapshot> snapshot = sequencer.snapshot();
+        assertEquals(2, snapshot.size());
+        assertTrue(snapshot.stream().noneMatch(queue -> queue.accountNumber().equals("C")));
+    }
+
+    @Test
+    void synchronousTransferWaitsForTheTransferAhead() {
+        ReflectionTestUtils.setField(sequencer, "maxWait", 10L);
+        submit("T1", "A", "B");
+
+        assertThrows(TransactionRejectedException.class,
+                () -> sequencer.call(List.of("B", "C"), () -> ran.add("T2")));
+
+        handed.getFirst().run();
+        assertEquals("T3", sequencer.call(List.of("B", "C"), () -> {
+            ran.add("T3");
+            return "T3";
+        }));
+        assertEquals(List.of("T1", "T3"), ran);
+    }
+
+    private void submit(String name, String... accountNumbers) {
+        sequencer.submit(List.of(accountNumbers), () -> ran.add(name), executor);
+    }
+}
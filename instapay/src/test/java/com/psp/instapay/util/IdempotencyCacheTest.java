@@ -0,0 +1,82 @@
+package com.psp.instapay.util;
+
+import com.psp.instapay.model.dto.request.SendMoneyRequest;
+import com.psp.instapay.model.dto.response.TransactionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests of the IdempotencyCache: entries are kept per user and key, completed entries expire,
+ * and entries still in flight are never evicted.
+ */
+class IdempotencyCacheTest {
+    private static final SendMoneyRequest REQUEST = new SendMoneyRequest("1111222233334444", "5555666677778888", 100.0);
+
+    private IdempotencyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new IdempotencyCache();
+        ReflectionTestUtils.setField(cache, "maxSize", 10);
+        ReflectionTestUtils.setField(cache, "ttl", 60000L);
+    }
+
+    @Test
+    void retryOfTheSameUserSharesTheEntry() {
+        IdempotencyCache.Lookup first = cache.getOrCreate("alice", "key", REQUEST);
+        IdempotencyCache.Lookup retry = cache.getOrCreate("alice", "key", REQUEST);
+
+        assertTrue(first.created());
+        assertFalse(retry.created());
+        assertSame(first.entry(), retry.entry());
+    }
+
+    @Test
+    void usersChooseTheirKeysIndependently() {
+        IdempotencyCache.Lookup alice = cache.getOrCreate("alice", "key", REQUEST);
+        IdempotencyCache.Lookup bob = cache.getOrCreate("bob", "key", REQUEST);
+
+        assertTrue(alice.created());
+        assertTrue(bob.created());
+        assertNotSame(alice.entry(), bob.entry());
+    }
+
+    @Test
+    void removedEntryIsReplacedByTheNextAttempt() {
+        IdempotencyCache.Entry entry = cache.getOrCreate("alice", "key", REQUEST).entry();
+        cache.remove("alice", "key", entry);
+
+        IdempotencyCache.Lookup next = cache.getOrCreate("alice", "key", REQUEST);
+
+        assertTrue(next.created());
+        assertNotSame(entry, next.entry());
+    }
+
+    @Test
+    void completedEntryExpires() {
+        ReflectionTestUtils.setField(cache, "ttl", 0L);
+        IdempotencyCache.Entry entry = cache.getOrCreate("alice", "key", REQUEST).entry();
+        entry.result().complete(TransactionResponse.builder().transactionId(1L).build());
+
+        assertTrue(cache.getOrCreate("alice", "key", REQUEST).created());
+    }
+
+    @Test
+    void entryInFlightIsNeverEvicted() {
+        ReflectionTestUtils.setField(cache, "maxSize", 1);
+        ReflectionTestUtils.setField(cache, "ttl", 0L);
+        IdempotencyCache.Entry entry = cache.getOrCreate("alice", "first", REQUEST).entry();
+        cache.getOrCreate("alice", "second", REQUEST);
+
+        IdempotencyCache.Lookup retry = cache.getOrCreate("alice", "first", REQUEST);
+
+        assertFalse(retry.created());
+        assertSame(entry, retry.entry());
+    }
+}
@@ -0,0 +1,104 @@
+package com.psp.instapay.util;
+
+import com.psp.instapay.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests of the MicroBatcher: calls are coalesced into batches, each batched call carries its own deadline,
+ * and calls whose deadline has passed fail without being sent.
+ */
+class MicroBatcherTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private final Map<String, Long> batchedDeadlines = new ConcurrentHashMap<>();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void lonelyCallIsSentThroughTheSingleCallFunction() {
+        MicroBatcher<String, String> batcher = batcher(1, 10);
+
+        assertEquals("single-a", batcher.submit("a"));
+        assertEquals(1, singleCalls.get());
+        assertEquals(0, batchCalls.get());
+    }
+
+    @Test
+    void fullBatchCarriesTheDeadlineOfEachCall() throws Exception {
+        MicroBatcher<String, String> batcher = batcher(60000, 2);
+        long deadline = System.currentTimeMillis() + 60000;
+
+        Future<String> a = callers.submit(() -> Deadline.callAt(deadline, () -> batcher.submit("a")));
+        Future<String> b = callers.submit(() -> Deadline.callAt(null, () -> batcher.submit("b")));
+
+        assertEquals("batch-a", a.get(5, TimeUnit.SECONDS));
+        assertEquals("batch-b", b.get(5, TimeUnit.SECONDS));
+        assertEquals(1, batchCalls.get());
+        assertEquals(deadline, batchedDeadlines.get("a"));
+        assertNull(batchedDeadlines.get("b"));
+    }
+
+    @Test
+    void expiredCallFailsWithoutBeingSent() {
+        MicroBatcher<String, String> batcher = batcher(60000, 1);
+        long deadline = System.currentTimeMillis() - 1;
+
+        assertThrows(DeadlineExceededException.class, () -> Deadline.callAt(deadline, () -> batcher.submit("a")));
+        assertEquals(0, singleCalls.get());
+        assertEquals(0, batchCalls.get());
+    }
+
+    @Test
+    void expiredCallIsDroppedFromItsBatch() throws Exception {
+        MicroBatcher<String, String> batcher = batcher(60000, 2);
+        long deadline = System.currentTimeMillis() - 1;
+
+        Future<String> late = callers.submit(() -> Deadline.callAt(deadline, () -> batcher.submit("late")));
+        Future<String> onTime = callers.submit(() -> batcher.submit("b"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, e.getCause());
+        assertEquals("single-b", onTime.get(5, TimeUnit.SECONDS));
+        assertEquals(0, batchCalls.get());
+    }
+
+    private MicroBatcher<String, String> batcher(long windowMillis, int maxBatchSize) {
+        return new MicroBatcher<>(
+                input -> {
+                    singleCalls.incrementAndGet();
+                    return "single-" + input;
+                },
+                (inputs, deadlines) -> {
+                    batchCalls.incrementAndGet();
+                    for (int i = 0; i < inputs.size(); i++) {
+                        if (deadlines.get(i) != null)
+                            batchedDeadlines.put(inputs.get(i), deadlines.get(i));
+                    }
+                    return inputs.stream().map(input -> "batch-" + input).toList();
+                },
+                windowMillis, maxBatchSize, scheduler, Runnable::run);
+    }
+}
@@ -0,0 +1,50 @@
+package com.psp.nbebank.model.dto.request;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for internal transfer requests.
+ * Contains the necessary information to move money between two accounts of the bank.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InternalTransferRequest {
+
+    /**
+     * The account number from which the money is transferred.
+     * This field is required.
+     */
+    @NotNull(message = "Source account number is required")
+    private String sourceAccountNumber;
+
+    /**
+     * The account number to which the money is transferred.
+     * This field is required.
+     */
+    @NotNull(message = "Destination account number is required")
+    private String destinationAccountNumber;
+
+    /**
+     * The amount to transfer.
+     * Must be greater than 0 and less than or equal to 50000.
+     * This field is required.
+     */
+    @NotNull(message = "Amount is required")
+    @DecimalMin(value = "1", message = "Amount must be greater than 0")
+    @DecimalMax(value = "50000", message = "Amount must be less than or equal to 50000")
+    private Double amount;
+
+    /**
+     * The caller's reference of the transfer.
+     * A transfer repeated with the same reference is not applied twice; the original outcome is returned instead.
+     */
+    private Long reference;
+}
@@ -4,6 +4,7 @@ import com.psp.nbebank.model.enums.TransactionStatus;
 import com.psp.nbebank.model.enums.TransactionType;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -13,7 +14,7 @@ import java.time.LocalDateTime;
  * This class is used to track all financial activities within the bank.
  */
 @Entity
-@Table(name = "transaction")
+@Table(name = "transaction", indexes = @Index(name = "idx_transaction_reference", columnList = "reference"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -56,6 +57,20 @@ public class Transaction {
     @Column(name = "status", nullable = false)
     private TransactionStatus status;
 
+    /**
+     * The caller's reference of the internal transfer this transaction belongs to, or null for a 2PC leg
+     */
+    @Column(name = "reference")
+    private Long reference;
+
+    /**
+     * Version of the transaction, incremented on every update, so that concurrent changes of its status are detected
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * The date and time when the transaction occurred
      */
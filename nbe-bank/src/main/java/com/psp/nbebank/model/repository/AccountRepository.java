@@ -30,24 +30,20 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findForUpdateByAccountNumber(String accountNumber);
 
     /**
-     * Finds an account by its account number with a pessimistic read lock.
-     * This lock allows other transactions to read but not write to the account
-     * until the current transaction completes.
+     * Finds an account by its account number without locking it.
+     * The account is read as last committed, without waiting for the transactions updating it.
      *
      * @param accountNumber The account number to search for
      * @return An Optional containing the account if found, or empty if not found
      */
-    @Lock(LockModeType.PESSIMISTIC_READ)
-    Optional<Account> findForShareByAccountNumber(String accountNumber);
+    Optional<Account> findByAccountNumber(String accountNumber);
 
     /**
-     * Finds all accounts associated with a specific card with a pessimistic read lock.
-     * This lock allows other transactions to read but not write to the accounts
-     * until the current transaction completes.
+     * Finds all accounts associated with a specific card without locking them.
+     * The accounts are read as last committed, without waiting for the transactions updating them.
      *
      * @param card The card whose associated accounts to find
      * @return A list of accounts associated with the card
      */
-    @Lock(LockModeType.PESSIMISTIC_READ)
-    List<Account> findForShareByCard(Card card);
+    List<Account> findAllByCard(Card card);
 }
\ No newline at end of file
@@ -2,9 +2,11 @@ package com.psp.nbebank.model.repository;
 
 import com.psp.nbebank.model.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Repository interface for managing Transaction entities.
@@ -14,12 +16,19 @@ import java.util.Optional;
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     /**
-     * Finds a transaction by its ID with a lock for update.
-     * This method is useful for scenarios where the transaction needs to be locked
-     * to prevent concurrent modifications.
+     * Finds the transactions with the given IDs together with their accounts, in a single query.
      *
-     * @param id the ID of the transaction
-     * @return an Optional containing the Transaction if found, or empty if not found
+     * @param ids the IDs of the transactions
+     * @return the transactions found; IDs without a transaction are absent
      */
-    Optional<Transaction> findForUpdateById(Long id);
-}
\ No newline at end of file
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.Account WHERE t.id IN :ids")
+    List<Transaction> findAllWithAccountByIdIn(Collection<Long> ids);
+
+    /**
+     * Finds the transactions created by the internal transfer with the given reference.
+     *
+     * @param reference the caller's reference of the internal transfer
+     * @return the withdrawal and deposit transactions of the transfer, or an empty list if it was never applied
+     */
+    List<Transaction> findAllByReference(Long reference);
+}
@@ -3,7 +3,10 @@ package com.psp.nbebank.model.service.impl;
 import com.psp.nbebank.common.exception.AccountNotFoundException;
 import com.psp.nbebank.common.exception.TransactionException;
 import com.psp.nbebank.common.util.EncryptionUtil;
+import com.psp.nbebank.common.util.TransactionRetry;
+import com.psp.nbebank.model.dto.request.InternalTransferRequest;
 import com.psp.nbebank.model.dto.request.TransactionRequest;
+import com.psp.nbebank.model.dto.response.InternalTransferResponse;
 import com.psp.nbebank.model.dto.response.TransactionResponse;
 import com.psp.nbebank.model.entity.Account;
 import com.psp.nbebank.model.entity.Transaction;
@@ -12,15 +15,34 @@ import com.psp.nbebank.model.enums.TransactionType;
 import com.psp.nbebank.model.repository.AccountRepository;
 import com.psp.nbebank.model.repository.TransactionRepository;
 import com.psp.nbebank.model.service.TransactionService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Implementation of the TransactionService interface.
- * Provides methods to prepare, commit, and rollback transactions.
+ * Provides methods to prepare, commit, and rollback transactions, and to transfer money between accounts of the bank.
+ * Every method runs at the default READ COMMITTED isolation. Concurrent changes of the same transaction are
+ * detected by its version, and the caller runs the losing request again; only the accounts whose balance
+ * is updated are locked, because a balance is read and written back under contention.
+ * The items of a batch are run one by one, each in its own short database transaction, so a failing item only
+ * rolls back its own changes and is reported on its own while the other items of the batch are applied.
+ * The cib-bank and nbe-bank services implement the same protocol, and their copies of this class are kept
+ * identical apart from the package: a change to one must be made to both.
  */
 @Service
 @RequiredArgsConstructor
@@ -29,17 +51,64 @@ public class TransactionServiceImpl implements TransactionService {
     private final TransactionRepository transactionRepository;
     private final AccountRepository accountRepository;
     private final EncryptionUtil encryptionUtil;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionRetry transactionRetry;
 
     /**
      * Prepares a transaction based on the provided request.
      * Logs the process and updates the transaction status to PREPARED.
+     * A transaction whose deadline has passed by the time it is recorded is marked TIMEOUT instead.
      *
      * @param request the request object containing transaction details
+     * @param deadline the time, in epoch milliseconds, after which the work is refused, or null if it has none
      * @return a TransactionResponse object containing the prepared transaction details
      */
     @Override
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    public TransactionResponse prepareTransaction(TransactionRequest request) {
+    @Transactional
+    public TransactionResponse prepareTransaction(TransactionRequest request, Long deadline) {
+        return prepare(request, deadline);
+    }
+
+    /**
+     * Prepares a batch of transactions, each in its own database transaction.
+     * Items are processed in account number order; preparing does not lock the accounts.
+     * A failing item is rolled back and reported as FAILED without affecting the others; an item whose own
+     * deadline has passed is refused with a TIMEOUT status.
+     *
+     * @param requests the request objects containing transaction details
+     * @param deadlines the time, in epoch milliseconds, after which each request is refused, or null if it has none
+     * @return the TransactionResponse of each request, in request order
+     */
+    @Override
+    public List<TransactionResponse> prepareTransactions(List<TransactionRequest> requests, List<Long> deadlines) {
+        List<String> accountNumbers = requests.stream()
+                .map(request -> encryptionUtil.decrypt(request.getAccountNumber()))
+                .toList();
+
+        TransactionResponse[] responses = new TransactionResponse[requests.size()];
+        for (int index : lockOrder(accountNumbers, Collections.nCopies(requests.size(), 0L))) {
+            try {
+                TransactionRequest request = requests.get(index);
+                Long deadline = deadlines.get(index);
+                responses[index] = runItem("prepareTransactions", () -> prepare(request, deadline));
+            } catch (RuntimeException e) {
+                log.error("Error preparing batched transaction: {}", e.getMessage());
+
+                responses[index] = buildResponse(null, TransactionStatus.FAILED, "Transaction preparation failed: " + e.getMessage());
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Prepares a transaction within the current database transaction.
+     *
+     * @param request the request object containing transaction details
+     * @param deadline the time, in epoch milliseconds, after which the work is refused, or null if it has none
+     * @return a TransactionResponse object containing the prepared transaction details
+     */
+    private TransactionResponse prepare(TransactionRequest request, Long deadline) {
         Transaction transaction;
         try {
             log.info("Initiating transaction for account: {}", encryptionUtil.decrypt(request.getAccountNumber()));
@@ -53,6 +122,15 @@ public class TransactionServiceImpl implements TransactionService {
             throw e;
         }
 
+        if (isExpired(deadline)) {
+            log.info("Transaction deadline exceeded before preparation: {}", transaction.getId());
+
+            transaction.setStatus(TransactionStatus.TIMEOUT);
+            transactionRepository.save(transaction);
+
+            return buildResponse(transaction.getId(), transaction.getStatus(), "Transaction deadline exceeded: " + transaction.getId());
+        }
+
         String message;
         try {
             log.info("Preparing transaction: {}", transaction);
@@ -80,20 +158,66 @@ public class TransactionServiceImpl implements TransactionService {
     /**
      * Commits a transaction based on the provided transaction ID.
      * Updates the account balance and marks the transaction as COMMITTED.
+     * The response carries the resulting account balance, so the caller needs no separate balance request.
+     * Committing an already committed transaction has no effect, so the coordinator can safely retry it.
+     * A commit has no deadline: the coordinator only sends it once the commit is decided, so a prepared
+     * transaction is committed however late the commit arrives.
      *
      * @param transactionId the unique identifier of the transaction to be committed
      * @return a TransactionResponse object containing the committed transaction details
      */
     @Override
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Transactional
     public TransactionResponse commitTransaction(Long transactionId) {
+        return commit(transactionId);
+    }
+
+    /**
+     * Commits a batch of transactions, each in its own database transaction.
+     * Items are processed in account number order, the same order in which concurrent batches lock the accounts.
+     * A failing item is rolled back and reported with its own status without affecting the others.
+     *
+     * @param transactionIds the unique identifiers of the transactions to be committed
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    @Override
+    public List<TransactionResponse> commitTransactions(List<Long> transactionIds) {
+        TransactionResponse[] responses = new TransactionResponse[transactionIds.size()];
+        for (int index : lockOrder(transactionIds)) {
+            Long transactionId = transactionIds.get(index);
+            try {
+                responses[index] = runItem("commitTransactions", () -> commit(transactionId));
+            } catch (RuntimeException e) {
+                log.error("Error committing batched transaction: {}", e.getMessage());
+
+                responses[index] = buildResponse(transactionId, TransactionStatus.ABORTED, "Transaction commit failed: " + transactionId + " - " + e.getMessage());
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Commits a transaction within the current database transaction.
+     *
+     * @param transactionId the unique identifier of the transaction to be committed
+     * @return a TransactionResponse object containing the committed transaction details
+     */
+    private TransactionResponse commit(Long transactionId) {
         log.info("Fetching transaction for commit: {}", transactionId);
 
         Transaction transaction = getTransactionById(transactionId);
 
         log.info("Transaction fetched successfully for commiting: {}", transaction);
 
+        if (transaction.getStatus().equals(TransactionStatus.COMMITTED)) {
+            log.info("Transaction already committed: {}", transaction.getId());
+
+            return buildResponse(transaction.getId(), transaction.getStatus(), "Transaction already committed: " + transaction.getId(),
+                    transaction.getAccount().getBalance());
+        }
+
         String message;
+        Double balance = null;
         try {
             if (!transaction.getStatus().equals(TransactionStatus.PREPARED)) {
                 log.info("Transaction is not prepared for commit: {}", transaction.getStatus());
@@ -107,7 +231,7 @@ public class TransactionServiceImpl implements TransactionService {
 
             log.info("Updating account balance for transaction: {}", transaction);
 
-            updateAccountBalance(transaction);
+            balance = updateAccountBalance(transaction);
 
             log.info("Account balance updated successfully for transaction: {}", transaction);
 
@@ -130,35 +254,82 @@ public class TransactionServiceImpl implements TransactionService {
             log.info("Transaction marked as aborted: {}", transaction);
         }
 
-        return buildResponse(transaction.getId(), transaction.getStatus(), message);
+        return buildResponse(transaction.getId(), transaction.getStatus(), message, balance);
     }
 
     /**
      * Rolls back a transaction based on the provided transaction ID.
      * Updates the account balance and marks the transaction as ROLLED_BACK.
+     * The response carries the resulting account balance, so the caller needs no separate balance request.
+     * Rolling back an already rolled back or aborted transaction has no effect on the balance,
+     * so the coordinator can safely retry it.
      *
      * @param transactionId the unique identifier of the transaction to be rolled back
      * @return a TransactionResponse object containing the rolled-back transaction details
      */
     @Override
-    @Transactional(isolation = Isolation.SERIALIZABLE)
+    @Transactional
     public TransactionResponse rollbackTransaction(Long transactionId) {
+        return rollback(transactionId);
+    }
+
+    /**
+     * Rolls back a batch of transactions, each in its own database transaction.
+     * Items are processed in account number order, the same order in which concurrent batches lock the accounts.
+     * A failing item is rolled back and reported with its own status without affecting the others.
+     *
+     * @param transactionIds the unique identifiers of the transactions to be rolled back
+     * @return the TransactionResponse of each transaction, in request order
+     */
+    @Override
+    public List<TransactionResponse> rollbackTransactions(List<Long> transactionIds) {
+        TransactionResponse[] responses = new TransactionResponse[transactionIds.size()];
+        for (int index : lockOrder(transactionIds)) {
+            Long transactionId = transactionIds.get(index);
+            try {
+                responses[index] = runItem("rollbackTransactions", () -> rollback(transactionId));
+            } catch (RuntimeException e) {
+                log.error("Error rolling back batched transaction: {}", e.getMessage());
+
+                responses[index] = buildResponse(transactionId, TransactionStatus.FAILED, "Transaction rollback failed: " + transactionId + " - " + e.getMessage());
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Rolls back a transaction within the current database transaction.
+     *
+     * @param transactionId the unique identifier of the transaction to be rolled back
+     * @return a TransactionResponse object containing the rolled-back transaction details
+     */
+    private TransactionResponse rollback(Long transactionId) {
         log.info("Fetching transaction for rollback: {}", transactionId);
 
         Transaction transaction = getTransactionById(transactionId);
 
         log.info("Transaction fetched successfully for rollback: {}", transaction);
 
+        if (transaction.getStatus().equals(TransactionStatus.ROLLED_BACK)) {
+            log.info("Transaction already rolled back: {}", transaction.getId());
+
+            return buildResponse(transaction.getId(), transaction.getStatus(), "Transaction already rolled back: " + transaction.getId(),
+                    transaction.getAccount().getBalance());
+        }
+
         String message;
+        Double balance = null;
         try {
             TransactionStatus status = transaction.getStatus();
-            if (status.equals(TransactionStatus.PREPARED) || status.equals(TransactionStatus.INITIATED)) {
+            if (status.equals(TransactionStatus.PREPARED) || status.equals(TransactionStatus.INITIATED) ||
+                    status.equals(TransactionStatus.ABORTED) || status.equals(TransactionStatus.TIMEOUT)) {
                 log.info("Marking Transaction as ROLLED_BACK: {}", transaction.getStatus());
 
                 transaction.setStatus(TransactionStatus.ROLLED_BACK);
                 transactionRepository.save(transaction);
 
-                return buildResponse(transaction.getId(), transaction.getStatus(), "Transaction rolled back successfully");
+                return buildResponse(transaction.getId(), transaction.getStatus(), "Transaction rolled back successfully",
+                        transaction.getAccount().getBalance());
             }
 
             if (!transaction.getStatus().equals(TransactionStatus.COMMITTED)) {
@@ -173,7 +344,7 @@ public class TransactionServiceImpl implements TransactionService {
 
             log.info("Updating account balance for rollback transaction: {}", transaction);
 
-            updateAccountBalance(transaction);
+            balance = updateAccountBalance(transaction);
 
             log.info("Account balance updated successfully for rollback transaction: {}", transaction);
 
@@ -196,31 +367,179 @@ public class TransactionServiceImpl implements TransactionService {
             log.info("In rolling back Transaction marked as failed: {}", transaction);
         }
 
-        return buildResponse(transaction.getId(), transaction.getStatus(), message);
+        return buildResponse(transaction.getId(), transaction.getStatus(), message, balance);
+    }
+
+    /**
+     * Transfers money between two accounts of the bank in a single database transaction,
+     * recording a committed withdrawal and a committed deposit.
+     * The response carries the resulting balances of both accounts.
+     * Both accounts are locked in account number order, so opposite transfers cannot deadlock on each other.
+     * A transfer repeated with the reference of an applied transfer returns the original outcome.
+     * A new transfer whose deadline has passed by the time both accounts are locked is refused with a TIMEOUT status.
+     *
+     * @param request the request object containing the accounts and the amount to transfer
+     * @param deadline the time, in epoch milliseconds, after which the work is refused, or null if it has none
+     * @return an InternalTransferResponse object containing the outcome of the transfer
+     * @throws TransactionException if the source and destination accounts are the same
+     * @throws AccountNotFoundException if either account is not found
+     */
+    @Override
+    @Transactional
+    public InternalTransferResponse transferInternally(InternalTransferRequest request, Long deadline) {
+        String sourceAccountNumber = encryptionUtil.decrypt(request.getSourceAccountNumber());
+        String destinationAccountNumber = encryptionUtil.decrypt(request.getDestinationAccountNumber());
+        if (sourceAccountNumber.equals(destinationAccountNumber))
+            throw new TransactionException("Source and destination accounts cannot be the same");
+
+        log.info("Transferring internally from account: {} to account: {}", sourceAccountNumber, destinationAccountNumber);
+
+        boolean sourceFirst = sourceAccountNumber.compareTo(destinationAccountNumber) < 0;
+        Account firstAccount = getAccountForUpdate(sourceFirst ? sourceAccountNumber : destinationAccountNumber);
+        Account secondAccount = getAccountForUpdate(sourceFirst ? destinationAccountNumber : sourceAccountNumber);
+        Account sourceAccount = sourceFirst ? firstAccount : secondAccount;
+        Account destinationAccount = sourceFirst ? secondAccount : firstAccount;
+
+        if (request.getReference() != null) {
+            List<Transaction> appliedTransactions = transactionRepository.findAllByReference(request.getReference());
+            if (!appliedTransactions.isEmpty()) {
+                log.info("Internal transfer already applied: {}", request.getReference());
+
+                return buildInternalTransferResponse(appliedTransactions, sourceAccount, destinationAccount,
+                        "Internal transfer already applied: " + request.getReference());
+            }
+        }
+
+        if (isExpired(deadline)) {
+            log.info("Internal transfer deadline exceeded: {}", request.getReference());
+
+            return InternalTransferResponse.builder()
+                    .status(TransactionStatus.TIMEOUT)
+                    .message("Internal transfer failed: deadline exceeded")
+                    .build();
+        }
+
+        if (!checkBalance(sourceAccount, request.getAmount())) {
+            log.info("Insufficient balance for internal transfer from account: {}", sourceAccountNumber);
+
+            return InternalTransferResponse.builder()
+                    .status(TransactionStatus.FAILED)
+                    .message("Internal transfer failed: insufficient balance")
+                    .build();
+        }
+
+        sourceAccount.setBalance(sourceAccount.getBalance() - request.getAmount());
+        destinationAccount.setBalance(destinationAccount.getBalance() + request.getAmount());
+        accountRepository.save(sourceAccount);
+        accountRepository.save(destinationAccount);
+
+        Transaction withdrawal = transactionRepository.save(Transaction.builder()
+                .Account(sourceAccount)
+                .amount(request.getAmount())
+                .transactionType(TransactionType.WITHDRAWAL)
+                .status(TransactionStatus.COMMITTED)
+                .reference(request.getReference())
+                .build());
+        Transaction deposit = transactionRepository.save(Transaction.builder()
+                .Account(destinationAccount)
+                .amount(request.getAmount())
+                .transactionType(TransactionType.DEPOSIT)
+                .status(TransactionStatus.COMMITTED)
+                .reference(request.getReference())
+                .build());
+
+        log.info("Internal transfer completed successfully: {}, {}", withdrawal.getId(), deposit.getId());
+
+        return buildInternalTransferResponse(List.of(withdrawal, deposit), sourceAccount, destinationAccount,
+                "Internal transfer completed successfully");
+    }
+
+    /**
+     * Runs one item of a batch in its own short database transaction, flushed before it commits, and runs it again
+     * if it loses a conflict with a concurrent transaction. A failing item rolls back its own changes only.
+     *
+     * @param operation the name of the batch operation, used to tag the retry counters and in logs
+     * @param item the work of the item
+     * @return the TransactionResponse of the item
+     * @throws RuntimeException if the item fails, or keeps losing conflicts
+     */
+    private TransactionResponse runItem(String operation, Supplier<TransactionResponse> item) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionRetry.execute(operation, () -> transactionTemplate.execute(status -> {
+            TransactionResponse response = item.get();
+            entityManager.flush();
+            return response;
+        }));
+    }
+
+    /**
+     * Computes the order in which the items of a batch of existing transactions are processed:
+     * by the account number of each transaction, then by transaction ID.
+     * The transactions and their accounts are loaded with a single query.
+     *
+     * @param transactionIds the unique identifiers of the transactions in the batch
+     * @return the indexes of the items in processing order
+     */
+    private List<Integer> lockOrder(List<Long> transactionIds) {
+        Map<Long, String> accountNumbers = transactionRepository.findAllWithAccountByIdIn(transactionIds).stream()
+                .collect(Collectors.toMap(Transaction::getId, transaction -> transaction.getAccount().getAccountNumber()));
+
+        return lockOrder(
+                transactionIds.stream().map(id -> accountNumbers.getOrDefault(id, "")).toList(),
+                transactionIds);
+    }
+
+    /**
+     * Computes the order in which the items of a batch are processed, sorting them by account number
+     * and then by the given tie-breaker, so that account locks are always taken in the same order.
+     *
+     * @param accountNumbers the account number of each item
+     * @param tieBreakers the tie-breaker of each item
+     * @return the indexes of the items in processing order
+     */
+    private List<Integer> lockOrder(List<String> accountNumbers, List<Long> tieBreakers) {
+        return IntStream.range(0, accountNumbers.size())
+                .boxed()
+                .sorted(Comparator.comparing((Integer index) -> accountNumbers.get(index))
+                        .thenComparing(index -> tieBreakers.get(index), Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
     }
 
     /**
-     * Retrieves a transaction by its ID.
+     * Retrieves a transaction by its ID, without locking it.
+     * A concurrent change of the same transaction makes the database transaction fail on commit.
      *
      * @param transactionId the unique identifier of the transaction
      * @return the Transaction object
      * @throws TransactionException if the transaction is not found
      */
     private Transaction getTransactionById(Long transactionId) {
-        return transactionRepository.findForUpdateById(transactionId)
+        return transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new TransactionException("Transaction not found"));
     }
 
     /**
-     * Updates the account balance based on the transaction details.
+     * Retrieves an account by its account number with a lock for update.
      *
-     * @param transaction the transaction object containing account and amount details
+     * @param accountNumber the account number
+     * @return the Account object
      * @throws AccountNotFoundException if the account is not found
      */
-    private void updateAccountBalance(Transaction transaction) {
-        String accountNumber = transaction.getAccount().getAccountNumber();
-        Account account = accountRepository.findForUpdateByAccountNumber(accountNumber)
+    private Account getAccountForUpdate(String accountNumber) {
+        return accountRepository.findForUpdateByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountNotFoundException("Account not found"));
+    }
+
+    /**
+     * Updates the account balance based on the transaction details.
+     * The account was loaded with the transaction, without a lock, so it is locked and read again first.
+     *
+     * @param transaction the transaction object containing account and amount details
+     * @return the resulting account balance
+     */
+    private Double updateAccountBalance(Transaction transaction) {
+        Account account = transaction.getAccount();
+        entityManager.refresh(account, LockModeType.PESSIMISTIC_WRITE);
 
         switch (transaction.getStatus()) {
             case COMMITTING:
@@ -243,6 +562,18 @@ public class TransactionServiceImpl implements TransactionService {
                 break;
         }
         accountRepository.save(account);
+
+        return account.getBalance();
+    }
+
+    /**
+     * Checks whether the deadline of a request has passed.
+     *
+     * @param deadline the time, in epoch milliseconds, after which the work is refused, or null if it has none
+     * @return true if the request has a deadline and it has passed
+     */
+    private boolean isExpired(Long deadline) {
+        return deadline != null && System.currentTimeMillis() > deadline;
     }
 
     /**
@@ -258,6 +589,7 @@ public class TransactionServiceImpl implements TransactionService {
 
     /**
      * Initiates a transaction based on the provided request.
+     * The account is not locked: preparing a transaction does not change its balance.
      *
      * @param request the request object containing transaction details
      * @return the initiated Transaction object
@@ -266,7 +598,7 @@ public class TransactionServiceImpl implements TransactionService {
     private Transaction initiateTransaction(TransactionRequest request) {
         String decryptedAccountNumber = encryptionUtil.decrypt(request.getAccountNumber());
 
-        Account account = accountRepository.findForUpdateByAccountNumber(decryptedAccountNumber)
+        Account account = accountRepository.findByAccountNumber(decryptedAccountNumber)
                 .orElseThrow(() -> new AccountNotFoundException("Account not found"));
 
         Transaction transaction = Transaction.builder()
@@ -290,10 +622,51 @@ public class TransactionServiceImpl implements TransactionService {
      * @return a TransactionResponse object
      */
     private TransactionResponse buildResponse(Long transactionId, TransactionStatus status, String message) {
+        return buildResponse(transactionId, status, message, null);
+    }
+
+    /**
+     * Builds a TransactionResponse object carrying the resulting account balance.
+     *
+     * @param transactionId the unique identifier of the transaction
+     * @param status the status of the transaction
+     * @param message the message describing the transaction status
+     * @param balance the resulting account balance, or null if it is not reported
+     * @return a TransactionResponse object
+     */
+    private TransactionResponse buildResponse(Long transactionId, TransactionStatus status, String message, Double balance) {
         return TransactionResponse.builder()
                 .transactionId(transactionId)
                 .status(status)
                 .message(message)
+                .balance(balance)
+                .build();
+    }
+
+    /**
+     * Builds an InternalTransferResponse object from the transactions of an applied internal transfer.
+     *
+     * @param transactions the withdrawal and deposit transactions of the transfer
+     * @param sourceAccount the source account of the transfer
+     * @param destinationAccount the destination account of the transfer
+     * @param message the message describing the transfer
+     * @return an InternalTransferResponse object
+     */
+    private InternalTransferResponse buildInternalTransferResponse(List<Transaction> transactions, Account sourceAccount,
+                                                                   Account destinationAccount, String message) {
+        InternalTransferResponse response = InternalTransferResponse.builder()
+                .status(TransactionStatus.COMMITTED)
+                .message(message)
+                .sourceBalance(sourceAccount.getBalance())
+                .destinationBalance(destinationAccount.getBalance())
                 .build();
+
+        for (Transaction transaction : transactions) {
+            if (transaction.getTransactionType().equals(TransactionType.WITHDRAWAL))
+                response.setWithdrawalTransactionId(transaction.getId());
+            else
+                response.setDepositTransactionId(transaction.getId());
+        }
+        return response;
     }
 }
\ No newline at end of file